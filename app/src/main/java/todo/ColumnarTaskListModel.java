@@ -0,0 +1,422 @@
+package todo;
+
+import javax.swing.AbstractListModel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// List model that keeps the tasks in parallel primitive columns instead of
+// one object per task:
+//
+//   ids           a long per row
+//   completed     one bit per row, so counting completed tasks is a popcount
+//   dues          a long per row, 0 where the task has no due time
+//   descriptions  UTF-8 bytes in one shared arena, found through an offset
+//                 and a length per row
+//
+// Task objects are only built for the rows the JList asks for and kept in
+// a small cache keyed by id. A removed description stays in the arena as
+// garbage until it makes up half of it; the arena is then rewritten in row
+// order. Events, including the edit listener's, are the same as
+// TaskListModel's.
+class ColumnarTaskListModel extends AbstractListModel<Task> implements TaskModel {
+    static final int CACHE_SIZE = 1024;
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int INITIAL_ARENA = 1024;
+    // Garbage below this is never worth a compaction
+    private static final int MIN_COMPACTION = 1 << 16;
+    private static final int MAX_ARRAY = Integer.MAX_VALUE - 8;
+
+    private long[] ids;
+    private long[] completed;
+    private long[] dues;
+    private int[] offsets;
+    private int[] lengths;
+    private byte[] arena;
+    private int arenaSize;
+    private int garbage;
+    private int size;
+    private EditListener editListener;
+    private final TaskIndex taskIndex = new TaskIndex(this);
+
+    private final Map<Long, Task> cache = new LinkedHashMap<Long, Task>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Task> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    public ColumnarTaskListModel() {
+        reset(INITIAL_CAPACITY);
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public Task getElementAt(int index) {
+        checkIndex(index, size);
+        Task task = cache.get(ids[index]);
+        if (task == null) {
+            task = toTask(index);
+            cache.put(task.getId(), task);
+        }
+        return task;
+    }
+
+    @Override
+    public long getIdAt(int index) {
+        checkIndex(index, size);
+        return ids[index];
+    }
+
+    @Override
+    public TaskIndex getIndex() {
+        return taskIndex;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Number of completed tasks, from a popcount of the completed column
+    public int getCompletedCount() {
+        int count = 0;
+        for (int i = 0; i < words(size); i++) {
+            count += Long.bitCount(completed[i]);
+        }
+        return count;
+    }
+
+    @Override
+    public void setEditListener(EditListener listener) {
+        editListener = listener;
+    }
+
+    @Override
+    public void add(Task task) {
+        addAll(size, List.of(task));
+    }
+
+    @Override
+    public void addAll(int index, Collection<? extends Task> tasks) {
+        checkIndex(index, size + 1);
+        int[] indices = new int[tasks.size()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = index + i;
+        }
+        insertAll(indices, new ArrayList<>(tasks));
+    }
+
+    @Override
+    public Task remove(int index) {
+        checkIndex(index, size);
+        return removeAll(new int[] {index}).get(0);
+    }
+
+    @Override
+    public List<Task> removeAll(int[] indices) {
+        TaskListModel.checkAscending(indices, size);
+        List<Task> removed = new ArrayList<>(indices.length);
+        if (indices.length == 0) {
+            return removed;
+        }
+
+        int first = indices[0];
+        int write = first;
+        int next = 0;
+        for (int read = first; read < size; read++) {
+            if (next < indices.length && indices[next] == read) {
+                Task task = cache.remove(ids[read]);
+                removed.add(task != null ? task : toTask(read));
+                garbage += lengths[read];
+                next++;
+            } else {
+                moveRow(read, write++);
+            }
+        }
+        int oldSize = size;
+        for (int i = write; i < oldSize; i++) {
+            setCompletedBit(i, false);
+        }
+        size = write;
+        taskIndex.removed(indices.length);
+        compactIfWasteful();
+        if (editListener != null) {
+            editListener.tasksRemoved(indices, removed);
+        }
+
+        int last = indices[indices.length - 1];
+        if (last - first + 1 == indices.length) {
+            fireIntervalRemoved(this, first, last);
+        } else {
+            if (first < size) {
+                fireContentsChanged(this, first, size - 1);
+            }
+            fireIntervalRemoved(this, size, oldSize - 1);
+        }
+        return removed;
+    }
+
+    @Override
+    public void insertAll(int[] indices, List<Task> tasks) {
+        int count = indices.length;
+        if (tasks.size() != count) {
+            throw new IllegalArgumentException(count + " indices for " + tasks.size() + " tasks");
+        }
+        TaskListModel.checkAscending(indices, size + count);
+        if (count == 0) {
+            return;
+        }
+
+        // The arena is grown (or compacted) before any row moves, since a
+        // compaction needs every row in place
+        byte[][] descriptions = new byte[count][];
+        long bytes = 0;
+        for (int i = 0; i < count; i++) {
+            descriptions[i] = encode(tasks.get(i));
+            bytes += descriptions[i].length;
+        }
+        ensureArena(bytes);
+
+        // Fill from the end so every row moves at most once
+        ensureCapacity(size + count);
+        int read = size - 1;
+        int next = count - 1;
+        for (int write = size + count - 1; next >= 0; write--) {
+            if (write == indices[next]) {
+                setRow(write, tasks.get(next), descriptions[next]);
+                next--;
+            } else {
+                moveRow(read--, write);
+            }
+        }
+        int oldSize = size;
+        size += count;
+        for (int i = 0; i < count; i++) {
+            taskIndex.added(tasks.get(i), indices[i]);
+        }
+        if (editListener != null) {
+            editListener.tasksInserted(indices, tasks);
+        }
+
+        int first = indices[0];
+        int last = indices[count - 1];
+        if (last - first + 1 == count) {
+            fireIntervalAdded(this, first, last);
+        } else {
+            fireIntervalAdded(this, oldSize, size - 1);
+            if (first < oldSize) {
+                fireContentsChanged(this, first, oldSize - 1);
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        int oldSize = size;
+        if (oldSize > 0) {
+            reset(INITIAL_CAPACITY);
+            if (editListener != null) {
+                editListener.tasksReplaced();
+            }
+            fireIntervalRemoved(this, 0, oldSize - 1);
+        }
+    }
+
+    @Override
+    public void replaceAll(Collection<? extends Task> tasks) {
+        int oldSize = size;
+        int newSize = tasks.size();
+        reset(Math.max(INITIAL_CAPACITY, newSize));
+        for (Task task : tasks) {
+            byte[] description = encode(task);
+            ensureArena(description.length);
+            setRow(size++, task, description);
+        }
+        if (editListener != null) {
+            editListener.tasksReplaced();
+        }
+
+        int common = Math.min(oldSize, newSize);
+        if (common > 0) {
+            fireContentsChanged(this, 0, common - 1);
+        }
+        if (newSize > oldSize) {
+            fireIntervalAdded(this, oldSize, newSize - 1);
+        } else if (oldSize > newSize) {
+            fireIntervalRemoved(this, newSize, oldSize - 1);
+        }
+    }
+
+    @Override
+    public void setCompleted(int[] indices, boolean completed) {
+        TaskListModel.checkAscending(indices, size);
+        if (indices.length == 0) {
+            return;
+        }
+        for (int index : indices) {
+            setCompletedBit(index, completed);
+            Task cached = cache.get(ids[index]);
+            if (cached != null) {
+                cached.setCompleted(completed);
+            }
+        }
+        if (editListener != null) {
+            editListener.completedChanged(indices, completed);
+        }
+        fireContentsChanged(this, indices[0], indices[indices.length - 1]);
+    }
+
+    @Override
+    public void setDue(int[] indices, long due) {
+        TaskListModel.checkAscending(indices, size);
+        if (indices.length == 0) {
+            return;
+        }
+        for (int index : indices) {
+            dues[index] = due;
+            Task cached = cache.get(ids[index]);
+            if (cached != null) {
+                cached.setDue(due);
+            }
+        }
+        if (editListener != null) {
+            editListener.tasksChanged(indices);
+        }
+        fireContentsChanged(this, indices[0], indices[indices.length - 1]);
+    }
+
+    // Straight from the columns
+    @Override
+    public void forEachPendingDue(DueVisitor visitor) {
+        for (int i = 0; i < size; i++) {
+            if (dues[i] != 0 && !isCompleted(i)) {
+                visitor.visit(i, ids[i], dues[i]);
+            }
+        }
+    }
+
+    private Task toTask(int row) {
+        Task task = new Task(ids[row], new String(arena, offsets[row], lengths[row], StandardCharsets.UTF_8));
+        task.setCompleted(isCompleted(row));
+        task.setDue(dues[row]);
+        return task;
+    }
+
+    private boolean isCompleted(int row) {
+        return (completed[row >>> 6] & (1L << row)) != 0;
+    }
+
+    private void setCompletedBit(int row, boolean value) {
+        if (value) {
+            completed[row >>> 6] |= 1L << row;
+        } else {
+            completed[row >>> 6] &= ~(1L << row);
+        }
+    }
+
+    private void moveRow(int from, int to) {
+        ids[to] = ids[from];
+        dues[to] = dues[from];
+        offsets[to] = offsets[from];
+        lengths[to] = lengths[from];
+        setCompletedBit(to, isCompleted(from));
+    }
+
+    private static byte[] encode(Task task) {
+        return task.getDescription().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Appends the description to the arena, which must have room for it. A
+    // cached Task for the same id is dropped, as it may be out of date.
+    private void setRow(int row, Task task, byte[] description) {
+        System.arraycopy(description, 0, arena, arenaSize, description.length);
+        ids[row] = task.getId();
+        dues[row] = task.getDue();
+        offsets[row] = arenaSize;
+        lengths[row] = description.length;
+        arenaSize += description.length;
+        setCompletedBit(row, task.isCompleted());
+        cache.remove(task.getId());
+    }
+
+    private void reset(int capacity) {
+        ids = new long[capacity];
+        completed = new long[words(capacity)];
+        dues = new long[capacity];
+        offsets = new int[capacity];
+        lengths = new int[capacity];
+        arena = new byte[INITIAL_ARENA];
+        arenaSize = 0;
+        garbage = 0;
+        size = 0;
+        cache.clear();
+        taskIndex.reset();
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > ids.length) {
+            int newCapacity = Math.max(capacity, ids.length + (ids.length >> 1));
+            ids = Arrays.copyOf(ids, newCapacity);
+            completed = Arrays.copyOf(completed, words(newCapacity));
+            dues = Arrays.copyOf(dues, newCapacity);
+            offsets = Arrays.copyOf(offsets, newCapacity);
+            lengths = Arrays.copyOf(lengths, newCapacity);
+        }
+    }
+
+    private void ensureArena(long extra) {
+        if ((long) arenaSize + extra <= arena.length) {
+            return;
+        }
+        if (garbage >= extra && garbage >= MIN_COMPACTION) {
+            compact((long) arenaSize - garbage + extra);
+            return;
+        }
+        long needed = (long) arenaSize + extra;
+        if (needed > MAX_ARRAY) {
+            throw new OutOfMemoryError("Task descriptions exceed " + MAX_ARRAY + " bytes");
+        }
+        arena = Arrays.copyOf(arena, (int) Math.min(MAX_ARRAY, Math.max(needed, arena.length + (arena.length >> 1))));
+    }
+
+    private void compactIfWasteful() {
+        if (garbage >= MIN_COMPACTION && garbage > arenaSize / 2) {
+            compact(arenaSize - garbage);
+        }
+    }
+
+    // Rewrites the live descriptions in row order into a new arena with
+    // room for at least capacity bytes
+    private void compact(long capacity) {
+        byte[] compacted = new byte[(int) Math.min(MAX_ARRAY, Math.max(INITIAL_ARENA, capacity + (capacity >> 1)))];
+        int position = 0;
+        for (int i = 0; i < size; i++) {
+            System.arraycopy(arena, offsets[i], compacted, position, lengths[i]);
+            offsets[i] = position;
+            position += lengths[i];
+        }
+        arena = compacted;
+        arenaSize = position;
+        garbage = 0;
+    }
+
+    private static int words(int bits) {
+        return (bits + 63) >>> 6;
+    }
+
+    private static void checkIndex(int index, int bound) {
+        if (index < 0 || index >= bound) {
+            throw new ArrayIndexOutOfBoundsException(index + " >= " + bound);
+        }
+    }
+}
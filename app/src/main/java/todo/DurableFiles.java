@@ -0,0 +1,62 @@
+package todo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+// Replaces files so that a crash at any point leaves either the old
+// contents or the new ones, never a mix or an empty file: the new contents
+// go to a temporary file next to the target, which is forced to disk and
+// then renamed over it, and the directory is forced so the rename sticks.
+class DurableFiles {
+    private DurableFiles() {
+    }
+
+    static File tempFile(File target) {
+        return new File(target.getPath() + ".tmp");
+    }
+
+    // Replaces target with content
+    public static void write(File target, byte[] content) throws IOException {
+        File tempFile = tempFile(target);
+        try (FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        replace(tempFile, target, null);
+    }
+
+    // Moves a temporary file that is already on disk over target. With a
+    // backup, the current target is renamed to it first so the version
+    // before survives; target is then briefly missing, which a reader has
+    // to take as an interrupted replace and put the backup back.
+    public static void replace(File tempFile, File target, File backup) throws IOException {
+        if (backup != null && target.exists()) {
+            Files.move(target.toPath(), backup.toPath(),
+                       StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        Files.move(tempFile.toPath(), target.toPath(),
+                   StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(target);
+    }
+
+    // Makes renames in the file's directory durable. Some platforms cannot
+    // open a directory (Windows); there the rename is left to the file
+    // system.
+    public static void syncDirectory(File file) {
+        File directory = file.getAbsoluteFile().getParentFile();
+        try (FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Not supported here
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package todo;
+
+import java.awt.AWTEvent;
+import java.awt.Component;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.awt.event.InvocationEvent;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.swing.AbstractButton;
+
+// Opt-in detector for events that hold up the EDT. A pushed EventQueue
+// stamps the start of every dispatch (two volatile writes and a clock read);
+// a background thread polls the stamp and, once an event has run past the
+// threshold, logs the event and the EDT's stack while it is still stuck.
+// When the event finally returns, its total time is logged as well.
+//
+// Time spent in a nested event loop (a modal dialog) is the user's, not a
+// stall: the outer event stops being watched once a nested event has been
+// dispatched.
+//
+// The log rolls over at LOG_SIZE into LOG_FILES numbered files. All writes
+// happen on the watchdog thread.
+class EdtWatchdog {
+    static final long DEFAULT_THRESHOLD_MILLIS = 500;
+    static final File LOG_FILE = new File("diagnostics", "edt-stalls.log");
+    static final long LOG_SIZE = 1L << 20;
+    static final int LOG_FILES = 3;
+
+    private static final int STACK_DEPTH = 40;
+
+    private static EdtWatchdog running;
+
+    private final WatchingQueue queue = new WatchingQueue();
+    private final ScheduledExecutorService watcher;
+    private volatile long thresholdNanos;
+
+    // Written on the EDT, read by the watcher. dispatchStart is 0 when no
+    // event is being watched; dispatchNumber tells one event from the next.
+    private volatile Thread edt;
+    private volatile long dispatchStart;
+    private volatile long dispatchNumber;
+    private volatile AWTEvent dispatchEvent;
+    // Only touched on the watcher thread
+    private long reportedNumber;
+
+    private EdtWatchdog(long thresholdMillis) {
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.watcher = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "edt-watchdog");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MAX_PRIORITY);
+            return thread;
+        });
+    }
+
+    // Starts watching, or just changes the threshold if already running.
+    // Call on the EDT.
+    static void start(long thresholdMillis) {
+        if (running != null) {
+            running.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+            return;
+        }
+        running = new EdtWatchdog(thresholdMillis);
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(running.queue);
+        // A quarter of the threshold bounds how late a stall is caught
+        long period = Math.max(10, thresholdMillis / 4);
+        running.watcher.scheduleAtFixedRate(running::check, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    // Call on the EDT
+    static void stop() {
+        if (running != null) {
+            running.queue.remove();
+            running.watcher.shutdown();
+            running = null;
+        }
+    }
+
+    private class WatchingQueue extends EventQueue {
+        @Override
+        protected void dispatchEvent(AWTEvent event) {
+            long number = dispatchNumber + 1;
+            dispatchNumber = number;
+            edt = Thread.currentThread();
+            dispatchEvent = event;
+            long start = System.nanoTime();
+            dispatchStart = start;
+            try {
+                super.dispatchEvent(event);
+            } finally {
+                // A nested event loop has run if the number moved on
+                boolean watched = dispatchNumber == number;
+                dispatchStart = 0;
+                dispatchEvent = null;
+                long elapsed = System.nanoTime() - start;
+                if (watched && elapsed >= thresholdNanos) {
+                    watcher.execute(() -> finished(event, elapsed));
+                }
+            }
+        }
+
+        void remove() {
+            pop();
+        }
+    }
+
+    private void check() {
+        long start = dispatchStart;
+        long number = dispatchNumber;
+        AWTEvent event = dispatchEvent;
+        Thread thread = edt;
+        if (start == 0 || event == null || number == reportedNumber) {
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+        if (elapsed < thresholdNanos) {
+            return;
+        }
+        StackTraceElement[] stack = thread.getStackTrace();
+        // Only report the stack if it still belongs to the same event
+        if (dispatchNumber != number || dispatchStart != start) {
+            return;
+        }
+        reportedNumber = number;
+        StringBuilder entry = new StringBuilder();
+        entry.append(LocalDateTime.now()).append(" EDT stalled for ").append(TimeUnit.NANOSECONDS.toMillis(elapsed))
+             .append(" ms in ").append(describe(event)).append(System.lineSeparator());
+        for (int i = 0; i < stack.length && i < STACK_DEPTH; i++) {
+            entry.append("    at ").append(stack[i]).append(System.lineSeparator());
+        }
+        if (stack.length > STACK_DEPTH) {
+            entry.append("    ... ").append(stack.length - STACK_DEPTH).append(" more").append(System.lineSeparator());
+        }
+        write(entry.toString());
+    }
+
+    private void finished(AWTEvent event, long elapsed) {
+        TaskMetrics.EDT_STALL.record(elapsed, 0, 0);
+        write(LocalDateTime.now() + " EDT event finished after " + TimeUnit.NANOSECONDS.toMillis(elapsed)
+              + " ms: " + describe(event) + System.lineSeparator());
+    }
+
+    // The event type and what it was aimed at, such as the button's label.
+    // Invocation events name the posted Runnable.
+    static String describe(AWTEvent event) {
+        String params = event.paramString();
+        if (event instanceof InvocationEvent) {
+            int notifier = params.indexOf(",notifier=");
+            return event.getClass().getSimpleName() + " " + (notifier < 0 ? params : params.substring(0, notifier));
+        }
+        int comma = params.indexOf(',');
+        StringBuilder description = new StringBuilder(event.getClass().getSimpleName()).append(' ')
+                .append(comma < 0 ? params : params.substring(0, comma));
+        Object source = event.getSource();
+        if (source instanceof Component) {
+            description.append(" on ").append(source.getClass().getSimpleName());
+            if (source instanceof AbstractButton) {
+                description.append(" \"").append(((AbstractButton) source).getText()).append('"');
+            } else if (((Component) source).getName() != null) {
+                description.append(" ").append(((Component) source).getName());
+            }
+        }
+        return description.toString();
+    }
+
+    private static void write(String entry) {
+        try {
+            File directory = LOG_FILE.getAbsoluteFile().getParentFile();
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                return;
+            }
+            if (LOG_FILE.length() >= LOG_SIZE) {
+                roll();
+            }
+            try (BufferedWriter writer = new BufferedWriter(new FileWriter(LOG_FILE, true))) {
+                writer.write(entry);
+            }
+        } catch (IOException e) {
+            // Diagnostics must never disturb the application
+        }
+    }
+
+    // edt-stalls.log becomes .1, .1 becomes .2 and so on; the oldest is dropped
+    private static void roll() throws IOException {
+        for (int i = LOG_FILES - 1; i >= 1; i--) {
+            File older = new File(LOG_FILE.getPath() + "." + i);
+            File newer = i == 1 ? LOG_FILE : new File(LOG_FILE.getPath() + "." + (i - 1));
+            if (newer.exists()) {
+                Files.move(newer.toPath(), older.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package todo;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+
+// Reads the text task list (tasks.txt) written before the binary
+// TaskStoreFile format, so existing lists can be migrated, and the text
+// lists written by --export. Exports are version 3: UTF-8, with the due
+// time and the description escaped as in the journal. Older files are in
+// the platform charset.
+class LegacyTaskFile {
+    static final String HEADER = "# tasks v2";
+    static final String EXPORT_HEADER = "# tasks v3";
+
+    private LegacyTaskFile() {
+    }
+
+    // Streams the file one task at a time so callers can publish the
+    // list in batches. progress receives the fraction of the file read so far.
+    public static void stream(File file, Consumer<Task> sink, DoubleConsumer progress) throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+
+        double totalChars = Math.max(1, file.length());
+        long charsRead = 0;
+        boolean export = EXPORT_HEADER.equals(firstLine(file));
+        Charset charset = export ? StandardCharsets.UTF_8 : Charset.defaultCharset();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), charset), 1 << 16)) {
+            String line = reader.readLine();
+            boolean hasIds = export || HEADER.equals(line);
+            if (hasIds) {
+                charsRead += line.length() + 1;
+                line = reader.readLine();
+            }
+            long legacyId = 1;
+            while (line != null) {
+                charsRead += line.length() + 1;
+                Task task = export ? parseExportLine(line)
+                          : hasIds ? parseLine(line) : parseLegacyLine(line, legacyId);
+                if (task != null) {
+                    sink.accept(task);
+                    legacyId++;
+                }
+                progress.accept(Math.min(1.0, charsRead / totalChars));
+                line = reader.readLine();
+            }
+        }
+    }
+
+    // The header is ASCII in every version, so any charset reads it
+    private static String firstLine(File file) throws IOException {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.ISO_8859_1))) {
+            return reader.readLine();
+        }
+    }
+
+    // One line of an EXPORT_HEADER file
+    static String formatExportLine(Task task) {
+        return task.getId() + "|" + task.isCompleted() + "|" + task.getDue() + "|"
+               + TaskJournal.escape(task.getDescription());
+    }
+
+    // "id|completed|due|description", due 0 for none
+    private static Task parseExportLine(String line) {
+        int first = line.indexOf('|');
+        int second = first < 0 ? -1 : line.indexOf('|', first + 1);
+        int third = second < 0 ? -1 : line.indexOf('|', second + 1);
+        if (third < 0) {
+            return null;
+        }
+        try {
+            Task task = new Task(Long.parseLong(line, 0, first, 10), TaskJournal.unescape(line.substring(third + 1)));
+            task.setCompleted(line.startsWith("true", first + 1));
+            task.setDue(Long.parseLong(line, second + 1, third, 10));
+            return task;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // "id|completed|description"; the description may itself contain '|'
+    private static Task parseLine(String line) {
+        int first = line.indexOf('|');
+        int second = first < 0 ? -1 : line.indexOf('|', first + 1);
+        if (second < 0) {
+            return null;
+        }
+        try {
+            Task task = new Task(Long.parseLong(line, 0, first, 10), line.substring(second + 1));
+            task.setCompleted(line.startsWith("true", first + 1));
+            return task;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // Tasks files written before ids existed hold "description|completed"
+    private static Task parseLegacyLine(String line, long id) {
+        int separator = line.lastIndexOf('|');
+        if (separator < 0) {
+            return null;
+        }
+        Task task = new Task(id, line.substring(0, separator));
+        task.setCompleted(line.startsWith("true", separator + 1));
+        return task;
+    }
+}
@@ -0,0 +1,13 @@
+package todo;
+
+// Entry point. With no arguments the task list window is opened; any
+// argument selects the headless command-line mode, which must not load
+// AWT, so nothing in this class refers to Swing types directly.
+public class Main {
+    public static void main(String[] args) {
+        if (args.length > 0) {
+            System.exit(TaskCli.run(args));
+        }
+        TodoListFrame.main(args);
+    }
+}
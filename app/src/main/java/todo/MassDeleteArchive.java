@@ -0,0 +1,337 @@
+package todo;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+// Archive of mass-deleted tasks, in a directory of compressed segment files
+// plus a small session index:
+//
+//   segment-NNNNNN  one independently deflated block per session, holding
+//                   the session's tasks as version 1 TaskStoreFile records,
+//                   with the due time after the flags when FLAG_DUE is set
+//   index           one "timestamp|segment|offset|length|count" line per
+//                   session, oldest first
+//
+// A session can be restored by seeking to its block, so the cost depends
+// only on the session's size, never on the size of the archive. Segments
+// roll over once they pass SEGMENT_SIZE; only the newest MAX_SEGMENTS are
+// kept, which bounds the archive at about SEGMENT_SIZE * MAX_SEGMENTS plus
+// one session. Each open list archives from its own persistence thread,
+// so the public methods are synchronized.
+class MassDeleteArchive {
+    static final String DIRECTORY = "massdelete";
+    static final long SEGMENT_SIZE = 16L << 20;
+    static final int MAX_SEGMENTS = 8;
+
+    // Set in a record's flags when a due time follows them; older archives
+    // never set it
+    private static final byte FLAG_DUE = 2;
+
+    private static final String INDEX_FILE = "index";
+    private static final String SEGMENT_PREFIX = "segment-";
+
+    private final File directory;
+    private final File indexFile;
+    private List<Session> sessions;
+
+    // Source of tasks for one session; may stream them from disk
+    interface TaskSource {
+        void forEach(Consumer<Task> action) throws IOException;
+    }
+
+    // One archived mass delete
+    static class Session {
+        private final long timestamp;
+        private final int segment;
+        private final long offset;
+        private final long length;
+        private final int count;
+
+        Session(long timestamp, int segment, long offset, long length, int count) {
+            this.timestamp = timestamp;
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.count = count;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        // Compressed size in bytes
+        public long getLength() {
+            return length;
+        }
+
+        @Override
+        public String toString() {
+            return new Date(timestamp) + " - " + count + (count == 1 ? " task" : " tasks");
+        }
+    }
+
+    public MassDeleteArchive(File directory) {
+        this.directory = directory;
+        this.indexFile = new File(directory, INDEX_FILE);
+    }
+
+    public static MassDeleteArchive openDefault() {
+        return new MassDeleteArchive(new File(DIRECTORY));
+    }
+
+    // Archived sessions, oldest first
+    public synchronized List<Session> sessions() throws IOException {
+        return Collections.unmodifiableList(loadIndex());
+    }
+
+    // Archives the tasks as one new session
+    public synchronized Session append(TaskSource tasks) throws IOException {
+        List<Session> index = new ArrayList<>(loadIndex());
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+
+        int segment = index.isEmpty() ? 1 : index.get(index.size() - 1).segment;
+        File segmentFile = segmentFile(segment);
+        if (segmentFile.length() >= SEGMENT_SIZE) {
+            segment++;
+            segmentFile = segmentFile(segment);
+        }
+
+        Session session;
+        try (FileChannel channel = FileChannel.open(segmentFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE)) {
+            // Anything past the last indexed session is left over from a
+            // failed append and is overwritten
+            long offset = endOf(index, segment);
+            channel.truncate(offset);
+            channel.position(offset);
+
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            int[] count = new int[1];
+            try {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                        new DeflaterOutputStream(unclosable(Channels.newOutputStream(channel)), deflater, 1 << 16),
+                        1 << 16));
+                IOException[] failure = new IOException[1];
+                tasks.forEach(task -> {
+                    if (failure[0] != null) {
+                        return;
+                    }
+                    try {
+                        writeTask(out, task);
+                        count[0]++;
+                    } catch (IOException e) {
+                        failure[0] = e;
+                    }
+                });
+                if (failure[0] != null) {
+                    throw failure[0];
+                }
+                out.close();
+            } finally {
+                deflater.end();
+            }
+            channel.force(false);
+            session = new Session(System.currentTimeMillis(), segment, offset, channel.position() - offset, count[0]);
+        }
+
+        index.add(session);
+        int oldestKept = segment - MAX_SEGMENTS + 1;
+        index.removeIf(old -> old.segment < oldestKept);
+        saveIndex(index);
+        sessions = index;
+        deleteSegmentsBefore(oldestKept);
+        return session;
+    }
+
+    // Streams one session's tasks back, in the order they were archived
+    public synchronized void restore(Session session, Consumer<Task> sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentFile(session.segment).toPath(), StandardOpenOption.READ)) {
+            channel.position(session.offset);
+            InputStream block = new BoundedInputStream(Channels.newInputStream(channel), session.length);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new InflaterInputStream(block), 1 << 16));
+            for (int i = 0; i < session.count; i++) {
+                sink.accept(readTask(in));
+            }
+        }
+    }
+
+    private static void writeTask(DataOutputStream out, Task task) throws IOException {
+        byte[] description = task.getDescription().getBytes(StandardCharsets.UTF_8);
+        out.writeLong(task.getId());
+        out.writeByte((task.isCompleted() ? TaskStoreFile.FLAG_COMPLETED : 0) | (task.hasDue() ? FLAG_DUE : 0));
+        if (task.hasDue()) {
+            out.writeLong(task.getDue());
+        }
+        out.writeInt(description.length);
+        out.write(description);
+    }
+
+    private static Task readTask(DataInputStream in) throws IOException {
+        long id = in.readLong();
+        byte flags = in.readByte();
+        long due = (flags & FLAG_DUE) != 0 ? in.readLong() : 0;
+        byte[] description = new byte[in.readInt()];
+        in.readFully(description);
+        Task task = new Task(id, new String(description, StandardCharsets.UTF_8));
+        task.setCompleted((flags & TaskStoreFile.FLAG_COMPLETED) != 0);
+        task.setDue(due);
+        return task;
+    }
+
+    private static long endOf(List<Session> index, int segment) {
+        for (int i = index.size() - 1; i >= 0; i--) {
+            Session session = index.get(i);
+            if (session.segment == segment) {
+                return session.offset + session.length;
+            }
+        }
+        return 0;
+    }
+
+    // Only called once the index no longer refers to these segments
+    private void deleteSegmentsBefore(int oldestKept) throws IOException {
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX));
+        if (files != null) {
+            for (File file : files) {
+                if (segmentNumber(file) < oldestKept) {
+                    Files.deleteIfExists(file.toPath());
+                }
+            }
+        }
+    }
+
+    private List<Session> loadIndex() throws IOException {
+        if (sessions != null) {
+            return sessions;
+        }
+        List<Session> index = new ArrayList<>();
+        if (indexFile.exists()) {
+            try (BufferedReader reader = new BufferedReader(new FileReader(indexFile))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] fields = line.split("\\|");
+                    if (fields.length != 5) {
+                        throw new IOException("Corrupt mass delete index: " + line);
+                    }
+                    try {
+                        index.add(new Session(Long.parseLong(fields[0]), Integer.parseInt(fields[1]),
+                                              Long.parseLong(fields[2]), Long.parseLong(fields[3]),
+                                              Integer.parseInt(fields[4])));
+                    } catch (NumberFormatException e) {
+                        throw new IOException("Corrupt mass delete index: " + line);
+                    }
+                }
+            }
+        }
+        sessions = index;
+        return index;
+    }
+
+    // Rewritten whole (it is small) and moved into place, so a crash leaves
+    // either the old index or the new one
+    private void saveIndex(List<Session> index) throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (Session session : index) {
+            text.append(session.timestamp).append('|').append(session.segment).append('|')
+                .append(session.offset).append('|').append(session.length).append('|')
+                .append(session.count).append(System.lineSeparator());
+        }
+        DurableFiles.write(indexFile, text.toString().getBytes());
+    }
+
+    private File segmentFile(int segment) {
+        return new File(directory, String.format("%s%06d", SEGMENT_PREFIX, segment));
+    }
+
+    private static int segmentNumber(File file) {
+        try {
+            return Integer.parseInt(file.getName().substring(SEGMENT_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return Integer.MAX_VALUE; // not ours; leave it alone
+        }
+    }
+
+    // The deflater stream closes its target; the channel is closed by its
+    // own try block once its position has been read
+    private static OutputStream unclosable(OutputStream out) {
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+    }
+
+    // Reads at most limit bytes, so the inflater never looks past its block
+    private static class BoundedInputStream extends FilterInputStream {
+        private long remaining;
+
+        BoundedInputStream(InputStream in, long limit) {
+            super(in);
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = in.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int n = in.read(b, off, (int) Math.min(len, remaining));
+            if (n > 0) {
+                remaining -= n;
+            }
+            return n;
+        }
+
+        @Override
+        public void close() {
+            // The channel is closed by its owner
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package todo;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+// A named task list that is open in the window: its persistence thread and
+// everything the window shows for it (list model, search index, undo
+// history, filtered views). The frame keeps the most recently used lists open, so
+// switching back to one only swaps models.
+class OpenTaskList {
+    private final String name;
+    private final TaskStore store;
+    private final PersistenceWorker persistence;
+    private final Thread shutdownHook;
+    private final TaskSearchIndex searchIndex = new TaskSearchIndex();
+    private final UndoLog undoLog;
+    private TaskModel model = new TaskListModel();
+    private final TaskSearchModel searchModel = new TaskSearchModel(model);
+    private TaskViews views;
+    private long nextTaskId = 1;
+    private boolean loaded;
+
+    // errorHandler is called on the EDT
+    public OpenTaskList(String name, long undoMemoryLimit, Consumer<IOException> errorHandler) {
+        this.name = name;
+        this.undoLog = new UndoLog(undoMemoryLimit);
+        this.store = TaskStore.openList(name);
+        this.persistence = new PersistenceWorker(store, this::copyTasks, errorHandler);
+        this.shutdownHook = new Thread(persistence::close, "task-persistence-flush");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // Only for its file names; the files are read and written through the
+    // persistence worker
+    public TaskStore getStore() {
+        return store;
+    }
+
+    public PersistenceWorker getPersistence() {
+        return persistence;
+    }
+
+    public TaskSearchIndex getSearchIndex() {
+        return searchIndex;
+    }
+
+    public TaskSearchModel getSearchModel() {
+        return searchModel;
+    }
+
+    public UndoLog getUndoLog() {
+        return undoLog;
+    }
+
+    public TaskModel getModel() {
+        return model;
+    }
+
+    public void setModel(TaskModel model) {
+        if (views != null) {
+            views.detach();
+            views = null;
+        }
+        this.model = model;
+        searchModel.setModel(model);
+    }
+
+    // Pending / completed / by-name views of the list, built the first time
+    // they are asked for and kept up to date from then on. Null for models
+    // that are not searchable.
+    public TaskViews getViews() {
+        if (views == null && model.isSearchable()) {
+            views = new TaskViews(model);
+        }
+        return views;
+    }
+
+    public long getNextTaskId() {
+        return nextTaskId;
+    }
+
+    public void setNextTaskId(long nextTaskId) {
+        this.nextTaskId = nextTaskId;
+    }
+
+    // False until the list has been loaded from its files for the first time
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public void setLoaded(boolean loaded) {
+        this.loaded = loaded;
+    }
+
+    // Private copies of the tasks, for a snapshot written on the
+    // persistence thread
+    public List<Task> copyTasks() {
+        List<Task> tasks = new ArrayList<>(model.getSize());
+        for (int i = 0; i < model.getSize(); i++) {
+            Task task = model.getElementAt(i);
+            Task copy = new Task(task.getId(), task.getDescription());
+            copy.setCompleted(task.isCompleted());
+            copy.setDue(task.getDue());
+            tasks.add(copy);
+        }
+        return tasks;
+    }
+
+    // Lets go of the list's memory and files without waiting for the disk.
+    // Queued journal records are still written, and a paged model is closed,
+    // on the persistence thread; the shutdown hook stays registered until
+    // they are.
+    public void close() {
+        setModel(new TaskListModel());
+        persistence.closeLater(() -> {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // Already shutting down
+            }
+        });
+    }
+}
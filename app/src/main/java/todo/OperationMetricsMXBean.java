@@ -0,0 +1,24 @@
+package todo;
+
+// Management view of one instrumented operation, as seen in JConsole or
+// VisualVM under "todo:type=Operation". Latencies are in milliseconds and
+// the percentiles are accurate to within about 12%.
+public interface OperationMetricsMXBean {
+    long getCount();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP99Millis();
+
+    double getMaxMillis();
+
+    // Bytes the operation wrote to disk, summed over all runs
+    long getBytesWritten();
+
+    // Tasks the operation handled, summed over all runs
+    long getTasks();
+
+    void reset();
+}
@@ -0,0 +1,631 @@
+package todo;
+
+import javax.swing.AbstractListModel;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// List model that works directly on a memory-mapped TaskStoreFile, for task
+// lists too large to keep on the heap. Only the rows the JList asks for
+// (plus a prefetch window) live as Task objects, in a bounded LRU cache.
+//
+// Edits are written straight into the mapping:
+//   toggle  rewrites the record's flag byte
+//   due     rewrites the record's due time
+//   add     writes the records where the index starts and moves the index
+//           up behind them (one memory move of 8 bytes per listed task)
+//   delete  closes the gap in the index; the record itself stays behind as
+//           garbage
+// The whole file must fit in one mapping, so stores are limited to 2 GB.
+// Once the garbage passes half the size of the live records, compact()
+// writes the live ones out to a new file.
+//
+// The checksum trailer would be stale after the first edit, so it is
+// dropped when the file is opened and written again by close(). A crash in
+// between leaves a file that is read unverified, not one that fails.
+class PagedTaskListModel extends AbstractListModel<Task> implements TaskModel, Closeable {
+    static final int CACHE_SIZE = 4096;
+    static final int PREFETCH = 256;
+
+    private static final int MOVE_CHUNK = 1 << 16;
+    // Garbage below this is never worth rewriting the store for
+    private static final long MIN_COMPACTION = 1 << 20;
+
+    private final File file;
+    private FileChannel channel;
+    private MappedByteBuffer map;
+    private int count;
+    private long nextId;
+    private int indexOffset;
+    // Size of the records the index points at; everything else between
+    // the header and the index is garbage
+    private long recordBytes;
+    private final TaskIndex taskIndex = new TaskIndex(this);
+
+    private final Map<Integer, Task> cache = new LinkedHashMap<Integer, Task>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Task> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    public PagedTaskListModel(File file) throws IOException {
+        this.file = file;
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            remap(channel.size());
+            if (map.getInt(0) != TaskStoreFile.MAGIC || map.getShort(4) != TaskStoreFile.VERSION) {
+                throw new IOException("Not a task file: " + file);
+            }
+            count = map.getInt(TaskStoreFile.COUNT_OFFSET);
+            nextId = map.getLong(TaskStoreFile.NEXT_ID_OFFSET);
+            indexOffset = (int) map.getLong(TaskStoreFile.INDEX_OFFSET_OFFSET);
+            for (int i = 0; i < count; i++) {
+                recordBytes += recordSize(i);
+            }
+            dropChecksum();
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public int getSize() {
+        return count;
+    }
+
+    @Override
+    public Task getElementAt(int index) {
+        checkIndex(index, count);
+        Task task = cache.get(index);
+        if (task == null) {
+            int end = Math.min(count, index + PREFETCH);
+            for (int i = index; i < end; i++) {
+                if (!cache.containsKey(i)) {
+                    cache.put(i, readTask(i));
+                }
+            }
+            task = cache.get(index);
+        }
+        return task;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public long getNextId() {
+        return nextId;
+    }
+
+    // Read straight from the record, without building the Task
+    @Override
+    public long getIdAt(int index) {
+        checkIndex(index, count);
+        return map.getLong((int) map.getLong(indexOffset + index * Long.BYTES));
+    }
+
+    @Override
+    public TaskIndex getIndex() {
+        return taskIndex;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    @Override
+    public boolean isWriteThrough() {
+        return true;
+    }
+
+    // Not searchable, so nothing listens for edits
+    @Override
+    public void setEditListener(EditListener listener) {
+        throw new UnsupportedOperationException("Paged lists do not report edits");
+    }
+
+    @Override
+    public void add(Task task) {
+        insert(count, Collections.singletonList(task));
+        cache.put(count - 1, task);
+        fireIntervalAdded(this, count - 1, count - 1);
+    }
+
+    @Override
+    public void addAll(int index, Collection<? extends Task> tasks) {
+        checkIndex(index, count + 1);
+        if (tasks.isEmpty()) {
+            return;
+        }
+        insert(index, tasks);
+        cache.clear();
+        fireIntervalAdded(this, index, index + tasks.size() - 1);
+    }
+
+    @Override
+    public Task remove(int index) {
+        Task task = getElementAt(index);
+        recordBytes -= recordSize(index);
+        moveIndexEntries(index + 1, index, count - index - 1);
+        count--;
+        writeHeader();
+        cache.clear();
+        taskIndex.removed(1);
+        fireIntervalRemoved(this, index, index);
+        return task;
+    }
+
+    // Closes all the gaps in the index with one pass over the entries after
+    // the first removed task
+    @Override
+    public List<Task> removeAll(int[] indices) {
+        TaskListModel.checkAscending(indices, count);
+        List<Task> removed = new ArrayList<>(indices.length);
+        if (indices.length == 0) {
+            return removed;
+        }
+        for (int index : indices) {
+            removed.add(getElementAt(index));
+        }
+
+        int first = indices[0];
+        int write = first;
+        int next = 0;
+        for (int read = first; read < count; read++) {
+            if (next < indices.length && indices[next] == read) {
+                recordBytes -= recordSize(read);
+                next++;
+            } else {
+                if (write != read) {
+                    map.putLong(indexOffset + write * Long.BYTES, map.getLong(indexOffset + read * Long.BYTES));
+                }
+                write++;
+            }
+        }
+        int oldCount = count;
+        count = write;
+        writeHeader();
+        cache.clear();
+        taskIndex.removed(indices.length);
+
+        int last = indices[indices.length - 1];
+        if (last - first + 1 == indices.length) {
+            fireIntervalRemoved(this, first, last);
+        } else {
+            if (first < count) {
+                fireContentsChanged(this, first, count - 1);
+            }
+            fireIntervalRemoved(this, count, oldCount - 1);
+        }
+        return removed;
+    }
+
+    // Appends the records with their index entries at the end, then moves
+    // the entries into place in one backwards pass
+    @Override
+    public void insertAll(int[] indices, List<Task> tasks) {
+        int added = indices.length;
+        if (tasks.size() != added) {
+            throw new IllegalArgumentException(added + " indices for " + tasks.size() + " tasks");
+        }
+        TaskListModel.checkAscending(indices, count + added);
+        if (added == 0) {
+            return;
+        }
+
+        int oldCount = count;
+        insert(oldCount, tasks);
+        long[] newEntries = new long[added];
+        for (int i = 0; i < added; i++) {
+            newEntries[i] = map.getLong(indexOffset + (oldCount + i) * Long.BYTES);
+        }
+        int read = oldCount - 1;
+        int next = added - 1;
+        for (int write = count - 1; next >= 0; write--) {
+            long entry = write == indices[next] ? newEntries[next--] : map.getLong(indexOffset + read-- * Long.BYTES);
+            map.putLong(indexOffset + write * Long.BYTES, entry);
+        }
+        cache.clear();
+        for (int i = 0; i < added; i++) {
+            taskIndex.added(tasks.get(i), indices[i]);
+        }
+
+        int first = indices[0];
+        int last = indices[added - 1];
+        if (last - first + 1 == added) {
+            fireIntervalAdded(this, first, last);
+        } else {
+            fireIntervalAdded(this, oldCount, count - 1);
+            if (first < oldCount) {
+                fireContentsChanged(this, first, oldCount - 1);
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        if (count == 0) {
+            return;
+        }
+        int oldCount = count;
+        count = 0;
+        indexOffset = TaskStoreFile.HEADER_SIZE;
+        recordBytes = 0;
+        writeHeader();
+        cache.clear();
+        taskIndex.reset();
+        fireIntervalRemoved(this, 0, oldCount - 1);
+    }
+
+    @Override
+    public void replaceAll(Collection<? extends Task> tasks) {
+        int oldCount = count;
+        count = 0;
+        indexOffset = TaskStoreFile.HEADER_SIZE;
+        recordBytes = 0;
+        writeHeader();
+        cache.clear();
+        taskIndex.reset();
+        insert(0, tasks);
+
+        int common = Math.min(oldCount, count);
+        if (common > 0) {
+            fireContentsChanged(this, 0, common - 1);
+        }
+        if (count > oldCount) {
+            fireIntervalAdded(this, oldCount, count - 1);
+        } else if (oldCount > count) {
+            fireIntervalRemoved(this, count, oldCount - 1);
+        }
+    }
+
+    // Writes each record's flag byte; cached tasks are updated as well
+    @Override
+    public void setCompleted(int[] indices, boolean completed) {
+        TaskListModel.checkAscending(indices, count);
+        if (indices.length == 0) {
+            return;
+        }
+        for (int index : indices) {
+            int offset = (int) map.getLong(indexOffset + index * Long.BYTES);
+            map.put(offset + TaskStoreFile.FLAGS_OFFSET, completed ? TaskStoreFile.FLAG_COMPLETED : 0);
+            Task cached = cache.get(index);
+            if (cached != null) {
+                cached.setCompleted(completed);
+            }
+        }
+        fireContentsChanged(this, indices[0], indices[indices.length - 1]);
+    }
+
+    @Override
+    public void setDue(int[] indices, long due) {
+        TaskListModel.checkAscending(indices, count);
+        if (indices.length == 0) {
+            return;
+        }
+        for (int index : indices) {
+            int offset = (int) map.getLong(indexOffset + index * Long.BYTES);
+            map.putLong(offset + TaskStoreFile.DUE_OFFSET, due);
+            Task cached = cache.get(index);
+            if (cached != null) {
+                cached.setDue(due);
+            }
+        }
+        fireContentsChanged(this, indices[0], indices[indices.length - 1]);
+    }
+
+    // Reads only the record headers; descriptions are never decoded
+    @Override
+    public void forEachPendingDue(DueVisitor visitor) {
+        for (int i = 0; i < count; i++) {
+            int offset = (int) map.getLong(indexOffset + i * Long.BYTES);
+            long due = map.getLong(offset + TaskStoreFile.DUE_OFFSET);
+            if (due != 0 && (map.get(offset + TaskStoreFile.FLAGS_OFFSET) & TaskStoreFile.FLAG_COMPLETED) == 0) {
+                visitor.visit(i, map.getLong(offset), due);
+            }
+        }
+    }
+
+    // Moves the whole store aside to the given file and starts again with an
+    // empty one, so the old tasks can be archived off the EDT. Run on the
+    // persistence thread while no window shows the model, so no events are
+    // fired.
+    public void clearInto(File target) throws IOException {
+        force();
+        TaskStoreFile.unmap(map);
+        map = null;
+        channel.close();
+        Files.move(file.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        // Older than the tasks just moved aside, so nothing to fall back on
+        Files.deleteIfExists(TaskStoreFile.backupFile(file).toPath());
+        TaskStoreFile.write(file, Collections.emptyList(), nextId);
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        count = 0;
+        indexOffset = TaskStoreFile.HEADER_SIZE;
+        recordBytes = 0;
+        dropChecksum();
+        writeHeader();
+        cache.clear();
+        taskIndex.reset();
+    }
+
+    public void force() {
+        map.force();
+    }
+
+    // True once removed records take up more than half as much room as the
+    // live ones
+    public boolean needsCompaction() {
+        long garbage = indexOffset - TaskStoreFile.HEADER_SIZE - recordBytes;
+        return garbage >= MIN_COMPACTION && garbage > recordBytes / 2;
+    }
+
+    // Writes the live records in list order, a new index and a checksum to
+    // a temporary file and renames it over the store. Rows keep their
+    // positions, so the cache and id index stay valid. Run on the
+    // persistence thread while no window shows the model: the mapping is
+    // unmapped before the rename, which Windows refuses for a mapped file.
+    public void compact() throws IOException {
+        File tempFile = DurableFiles.tempFile(file);
+        int compactedIndexOffset = writeLiveRecords(tempFile);
+        TaskStoreFile.unmap(map);
+        map = null;
+        channel.close();
+        try {
+            DurableFiles.replace(tempFile, file, TaskStoreFile.backupFile(file));
+            indexOffset = compactedIndexOffset;
+        } finally {
+            // Whichever file is in place now; a failed rename leaves the old one
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            dropChecksum();
+        }
+    }
+
+    // Copies the records out of the mapping as they are, so nothing is
+    // decoded. Returns the new index offset.
+    private int writeLiveRecords(File target) throws IOException {
+        int[] offsets = new int[count];
+        try (FileChannel out = FileChannel.open(target.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(MOVE_CHUNK);
+            int position = TaskStoreFile.HEADER_SIZE;
+            out.position(position);
+            for (int i = 0; i < count; i++) {
+                int offset = (int) map.getLong(indexOffset + i * Long.BYTES);
+                int size = recordSize(i);
+                if (buffer.remaining() < size) {
+                    drain(out, buffer);
+                    if (buffer.capacity() < size) {
+                        buffer = ByteBuffer.allocate(size);
+                    }
+                }
+                map.get(offset, buffer.array(), buffer.position(), size);
+                buffer.position(buffer.position() + size);
+                offsets[i] = position;
+                position += size;
+            }
+            int compactedIndexOffset = position;
+            for (int offset : offsets) {
+                if (buffer.remaining() < Long.BYTES) {
+                    drain(out, buffer);
+                }
+                buffer.putLong(offset);
+            }
+            drain(out, buffer);
+
+            ByteBuffer header = ByteBuffer.allocate(TaskStoreFile.HEADER_SIZE);
+            map.get(0, header.array());
+            header.putLong(TaskStoreFile.INDEX_OFFSET_OFFSET, compactedIndexOffset);
+            while (header.hasRemaining()) {
+                out.write(header, header.position());
+            }
+            long end = compactedIndexOffset + (long) count * Long.BYTES;
+            TaskStoreFile.writeTrailer(out, end, TaskStoreFile.checksum(out, end));
+            out.force(true);
+            return compactedIndexOffset;
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    // force() for another thread to run: msync of a mapping this large can
+    // take seconds, too long for the EDT. The mapping is picked up here,
+    // on the EDT; edits made after a remap are left for the next force.
+    public Runnable forceLater() {
+        MappedByteBuffer mapping = map;
+        return mapping::force;
+    }
+
+    // Forces the edits to disk before the trailer that vouches for them.
+    // Does nothing once closed, or after a clearInto or compact that failed
+    // half way.
+    @Override
+    public void close() throws IOException {
+        close(true);
+    }
+
+    // Without unmap the mapping stays as it is, for when a window may still
+    // be painting the model (the JVM exiting on a signal). The slack after
+    // the index is then kept as well; readers look for the trailer right
+    // after the index and never past it.
+    public void close(boolean unmap) throws IOException {
+        if (map == null || !channel.isOpen()) {
+            return;
+        }
+        force();
+        long end = indexOffset + (long) count * Long.BYTES;
+        try {
+            if (unmap) {
+                TaskStoreFile.unmap(map);
+                map = null;
+                cache.clear();
+                // Drop the slack so the file is a plain store again
+                channel.truncate(end);
+            }
+            TaskStoreFile.writeTrailer(channel, end, TaskStoreFile.checksum(channel, end));
+            channel.force(true);
+        } finally {
+            channel.close();
+        }
+    }
+
+    // Cuts the file off at the end of the index, taking the trailer with
+    // it, and maps what is left. Forced, so the trailer cannot outlive a
+    // crash that the edits made after it survive.
+    private void dropChecksum() throws IOException {
+        long end = indexOffset + (long) count * Long.BYTES;
+        if (channel.size() > end) {
+            TaskStoreFile.unmap(map);
+            map = null;
+            channel.truncate(end);
+            channel.force(true);
+        }
+        remap(channel.size());
+    }
+
+    // Header and description of the record listed at index
+    private int recordSize(int index) {
+        int offset = (int) map.getLong(indexOffset + index * Long.BYTES);
+        return TaskStoreFile.RECORD_HEADER_SIZE + map.getInt(offset + TaskStoreFile.LENGTH_OFFSET);
+    }
+
+    private Task readTask(int index) {
+        int offset = (int) map.getLong(indexOffset + index * Long.BYTES);
+        long id = map.getLong(offset);
+        boolean completed = (map.get(offset + TaskStoreFile.FLAGS_OFFSET) & TaskStoreFile.FLAG_COMPLETED) != 0;
+        int length = map.getInt(offset + TaskStoreFile.LENGTH_OFFSET);
+        byte[] description = new byte[length];
+        map.get(offset + TaskStoreFile.RECORD_HEADER_SIZE, description);
+        Task task = new Task(id, new String(description, StandardCharsets.UTF_8));
+        task.setCompleted(completed);
+        task.setDue(map.getLong(offset + TaskStoreFile.DUE_OFFSET));
+        return task;
+    }
+
+    // Writes the tasks' records where the index starts, then moves the index
+    // up behind them with the new entries at position. The index is moved
+    // once per call, however many tasks are inserted.
+    private void insert(int position, Collection<? extends Task> tasks) {
+        byte[][] descriptions = new byte[tasks.size()][];
+        long recordsSize = 0;
+        int k = 0;
+        for (Task task : tasks) {
+            descriptions[k] = task.getDescription().getBytes(StandardCharsets.UTF_8);
+            recordsSize += TaskStoreFile.RECORD_HEADER_SIZE + descriptions[k].length;
+            k++;
+        }
+        ensureCapacity(indexOffset + recordsSize + (long) (count + k) * Long.BYTES);
+
+        int newIndexOffset = (int) (indexOffset + recordsSize);
+        moveBytes(indexOffset + position * Long.BYTES, newIndexOffset + (position + k) * Long.BYTES,
+                  (count - position) * Long.BYTES);
+        moveBytes(indexOffset, newIndexOffset, position * Long.BYTES);
+
+        int recordOffset = indexOffset;
+        int entry = newIndexOffset + position * Long.BYTES;
+        k = 0;
+        for (Task task : tasks) {
+            byte[] description = descriptions[k++];
+            map.putLong(recordOffset, task.getId());
+            map.put(recordOffset + TaskStoreFile.FLAGS_OFFSET, task.isCompleted() ? TaskStoreFile.FLAG_COMPLETED : 0);
+            map.putLong(recordOffset + TaskStoreFile.DUE_OFFSET, task.getDue());
+            map.putInt(recordOffset + TaskStoreFile.LENGTH_OFFSET, description.length);
+            map.put(recordOffset + TaskStoreFile.RECORD_HEADER_SIZE, description);
+            map.putLong(entry, recordOffset);
+            entry += Long.BYTES;
+            recordOffset += TaskStoreFile.RECORD_HEADER_SIZE + description.length;
+            nextId = Math.max(nextId, task.getId() + 1);
+        }
+
+        indexOffset = newIndexOffset;
+        recordBytes += recordsSize;
+        count += k;
+        writeHeader();
+        k = 0;
+        for (Task task : tasks) {
+            taskIndex.added(task, position + k++);
+        }
+    }
+
+    private void moveIndexEntries(int from, int to, int entries) {
+        moveBytes(indexOffset + from * Long.BYTES, indexOffset + to * Long.BYTES, entries * Long.BYTES);
+    }
+
+    // memmove within the mapping, copying in chunks in the safe direction
+    private void moveBytes(int from, int to, int length) {
+        if (length <= 0 || from == to) {
+            return;
+        }
+        byte[] chunk = new byte[Math.min(length, MOVE_CHUNK)];
+        if (to < from) {
+            for (int done = 0; done < length; done += chunk.length) {
+                int n = Math.min(chunk.length, length - done);
+                map.get(from + done, chunk, 0, n);
+                map.put(to + done, chunk, 0, n);
+            }
+        } else {
+            for (int remaining = length; remaining > 0; remaining -= chunk.length) {
+                int n = Math.min(chunk.length, remaining);
+                map.get(from + remaining - n, chunk, 0, n);
+                map.put(to + remaining - n, chunk, 0, n);
+            }
+        }
+    }
+
+    private void writeHeader() {
+        map.putInt(TaskStoreFile.COUNT_OFFSET, count);
+        map.putLong(TaskStoreFile.NEXT_ID_OFFSET, nextId);
+        map.putLong(TaskStoreFile.INDEX_OFFSET_OFFSET, indexOffset);
+    }
+
+    // Grows the file (by at least half) and remaps it when an edit needs room
+    private void ensureCapacity(long needed) {
+        if (needed <= map.capacity()) {
+            return;
+        }
+        if (needed > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Task store is limited to 2 GB");
+        }
+        try {
+            remap(Math.min(Integer.MAX_VALUE, Math.max(needed, map.capacity() + (map.capacity() >> 1))));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void remap(long size) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Task store is limited to 2 GB");
+        }
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    private static void checkIndex(int index, int bound) {
+        if (index < 0 || index >= bound) {
+            throw new ArrayIndexOutOfBoundsException(index + " >= " + bound);
+        }
+    }
+}
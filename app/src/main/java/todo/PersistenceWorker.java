@@ -0,0 +1,534 @@
+package todo;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// Runs all task file I/O on one background thread so the EDT never waits on
+// the disk. Work is executed in submission order; journal records are
+// buffered and flushed (and forced to disk) at most FLUSH_DELAY_MILLIS
+// after the first of them, so a burst of edits pays for one fsync. Snapshot
+// saves are group-committed too: a save that finds a newer one queued
+// behind it leaves the writing to that one, whose copy of the list holds
+// everything this one's did.
+//
+// Whenever the files are read or written the store's lock is held, and
+// their state afterwards is remembered. A change that shows up between two
+// of our own writes came from another process; checkForExternalChanges
+// then reads the store again for the window to diff against.
+class PersistenceWorker {
+    // Quiet period after the last journal record before it is flushed
+    static final long FLUSH_DELAY_MILLIS = 200;
+    static final long CLOSE_TIMEOUT_SECONDS = 10;
+    // Rows in the first load batch (about a screenful) and in later ones
+    static final int FIRST_LOAD_BATCH = 100;
+    static final int LOAD_BATCH = 5000;
+    // Wait before reading the store again when a re-read could not be used
+    static final long EXTERNAL_CHANGE_RETRY_MILLIS = 250;
+    // Ids reserved in the store ahead of the ones handed out
+    static final long ID_RESERVATION = 1024;
+
+    // Work that runs on the persistence thread with access to the journal
+    interface JournalTask {
+        void run(TaskJournal journal) throws IOException;
+    }
+
+    private final ScheduledThreadPoolExecutor executor;
+    private final TaskStore store;
+    private final TaskJournal journal;
+    private final Supplier<List<Task>> snapshotSource;
+    private final Consumer<IOException> errorHandler;
+    // Jobs submitted so far, to tell whether an edit was queued while a
+    // re-read of the store was under way
+    private final AtomicLong submitted = new AtomicLong();
+    // Snapshot saves queued so far, and the last one that writes whatever
+    // the state of the store
+    private final AtomicLong snapshotRequests = new AtomicLong();
+    private final AtomicLong lastPlainSnapshot = new AtomicLong();
+
+    // Only touched on the persistence thread
+    private ScheduledFuture<?> pendingFlush;
+    // onSuccess of saves left to a later one, run once that one is done
+    private final List<Runnable> coalescedSaves = new ArrayList<>();
+    private boolean compactionRequested;
+    // Opened by a load, and closed here as well: forcing and checksumming a
+    // mapping this large takes too long for the EDT, which only edits the
+    // model in between
+    private PagedTaskListModel pagedModel;
+    private long reservedIds;
+    private long[] knownFileState;
+    // Counts changes made by other processes; the store was last read at
+    // readGeneration
+    private long externalGeneration;
+    private long readGeneration;
+    // The generation the EDT's model reflects. Only touched on the EDT.
+    private long syncedGeneration;
+
+    // snapshotSource and errorHandler are always called on the EDT
+    public PersistenceWorker(TaskStore store, Supplier<List<Task>> snapshotSource,
+                             Consumer<IOException> errorHandler) {
+        this.store = store;
+        this.journal = store.getJournal();
+        this.snapshotSource = snapshotSource;
+        this.errorHandler = errorHandler;
+        this.executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "task-persistence");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    public void recordAdd(Task task) {
+        long id = task.getId();
+        boolean completed = task.isCompleted();
+        String description = task.getDescription();
+        long due = task.getDue();
+        submit(journal -> {
+            journal.appendAdd(id, completed, description);
+            if (due != 0) {
+                journal.appendSetDue(id, due);
+            }
+            reserveIdsAfter(id);
+        }, null, null);
+    }
+
+    // One queued job for the whole batch. The tasks are read on the
+    // persistence thread; any later edit to them is journaled after this.
+    public void recordAddAll(List<Task> tasks) {
+        submit(journal -> {
+            long maxId = 0;
+            for (Task task : tasks) {
+                journal.appendAdd(task.getId(), task.isCompleted(), task.getDescription());
+                if (task.hasDue()) {
+                    journal.appendSetDue(task.getId(), task.getDue());
+                }
+                maxId = Math.max(maxId, task.getId());
+            }
+            reserveIdsAfter(maxId);
+        }, null, null);
+    }
+
+    // Ids are handed out on the EDT, well before their records are flushed,
+    // so a block of ids beyond them is reserved in the store. Another
+    // process adding a task in the meantime starts above the block.
+    private void reserveIdsAfter(long id) throws IOException {
+        if (id + ID_RESERVATION / 2 >= reservedIds) {
+            reservedIds = id + ID_RESERVATION;
+            locked(() -> store.reserveIds(reservedIds));
+        }
+    }
+
+    public void recordSetCompleted(List<Task> tasks, boolean completed) {
+        long[] ids = ids(tasks);
+        submit(journal -> {
+            for (long id : ids) {
+                journal.appendSetCompleted(id, completed);
+            }
+        }, null, null);
+    }
+
+    public void recordSetDue(List<Task> tasks, long due) {
+        long[] ids = ids(tasks);
+        submit(journal -> {
+            for (long id : ids) {
+                journal.appendSetDue(id, due);
+            }
+        }, null, null);
+    }
+
+    public void recordDeleteAll(List<Task> tasks) {
+        long[] ids = ids(tasks);
+        submit(journal -> {
+            for (long id : ids) {
+                journal.appendDelete(id);
+            }
+        }, null, null);
+    }
+
+    private static long[] ids(List<Task> tasks) {
+        long[] ids = new long[tasks.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = tasks.get(i).getId();
+        }
+        return ids;
+    }
+
+    // Writes a full snapshot and drops the journal records it now contains.
+    // The list must be a private copy; it is read on the persistence thread.
+    public void saveSnapshot(List<Task> tasks, Runnable onSuccess) {
+        long request = snapshotRequests.incrementAndGet();
+        lastPlainSnapshot.set(request);
+        submit(journal -> {
+            if (lastPlainSnapshot.get() != request) {
+                coalesce(onSuccess);
+                return;
+            }
+            locked(() -> writeSnapshot(tasks));
+            snapshotSaved(onSuccess);
+        }, null, null);
+    }
+
+    // Like saveSnapshot, for a list whose every edit is journaled. Should
+    // the copy predate a change by another process, writing it would undo
+    // that change; the journal already holds our edits, so the snapshot is
+    // simply left for the next compaction. For the same reason any later
+    // save can stand in for it.
+    public void saveJournaledSnapshot(List<Task> tasks, Runnable onSuccess) {
+        long synced = syncedGeneration;
+        long request = snapshotRequests.incrementAndGet();
+        submit(journal -> {
+            if (snapshotRequests.get() != request) {
+                coalesce(onSuccess);
+                return;
+            }
+            locked(() -> {
+                if (externalGeneration != synced) {
+                    journal.flush();
+                    return;
+                }
+                writeSnapshot(tasks);
+            });
+            snapshotSaved(onSuccess);
+        }, null, null);
+    }
+
+    private void writeSnapshot(List<Task> tasks) throws IOException {
+        if (pagedModel != null) {
+            return; // the paged model's edits are in the store already
+        }
+        long start = System.nanoTime();
+        store.saveSnapshot(tasks);
+        TaskMetrics.SAVE.recordSince(start, store.getSnapshotFile().length(), tasks.size());
+        compactionRequested = false;
+    }
+
+    private void coalesce(Runnable onSuccess) {
+        if (onSuccess != null) {
+            coalescedSaves.add(onSuccess);
+        }
+    }
+
+    // After a save fails the callbacks of the saves it stood in for are
+    // kept for the next one to succeed
+    private void snapshotSaved(Runnable onSuccess) {
+        coalesce(onSuccess);
+        for (Runnable callback : coalescedSaves) {
+            SwingUtilities.invokeLater(callback);
+        }
+        coalescedSaves.clear();
+    }
+
+    // onSuccess and onFailure run on the EDT; a null onFailure falls back to
+    // the shared error handler. A job that throws an unchecked exception has
+    // failed as well, so it is reported the same way rather than lost in
+    // the executor.
+    public void submit(JournalTask task, Runnable onSuccess, Consumer<IOException> onFailure) {
+        submitted.incrementAndGet();
+        executor.execute(() -> {
+            try {
+                task.run(journal);
+                if (onSuccess != null) {
+                    SwingUtilities.invokeLater(onSuccess);
+                }
+            } catch (IOException | RuntimeException e) {
+                IOException failure = asIOException(e);
+                SwingUtilities.invokeLater(() -> (onFailure != null ? onFailure : errorHandler).accept(failure));
+            }
+            afterTask();
+        });
+    }
+
+    private void afterTask() {
+        if (executor.isShutdown()) {
+            return; // close() flushes whatever is left
+        }
+        if (journal.isDirty() && pendingFlush == null) {
+            pendingFlush = executor.schedule(this::flushJournal, FLUSH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        if (journal.needsCompaction() && !compactionRequested) {
+            // The snapshot has to be copied on the EDT; records queued before
+            // the copy is taken are all contained in it
+            compactionRequested = true;
+            SwingUtilities.invokeLater(() -> saveJournaledSnapshot(snapshotSource.get(), null));
+        }
+    }
+
+    // File work is done holding the store's lock. A change since our own
+    // last write is noted before the work adds to it.
+    private void locked(FileWork work) throws IOException {
+        Closeable lock = store.lock();
+        try {
+            long[] state = store.fileState();
+            if (knownFileState != null && !Arrays.equals(state, knownFileState)) {
+                externalGeneration++;
+            }
+            work.run();
+            knownFileState = store.fileState();
+        } finally {
+            lock.close();
+        }
+    }
+
+    private interface FileWork {
+        void run() throws IOException;
+    }
+
+    private void flushJournal() {
+        pendingFlush = null;
+        try {
+            locked(journal::flush);
+        } catch (IOException | RuntimeException e) {
+            IOException failure = asIOException(e);
+            SwingUtilities.invokeLater(() -> errorHandler.accept(failure));
+        }
+    }
+
+    private static IOException asIOException(Exception e) {
+        if (e instanceof IOException) {
+            return (IOException) e;
+        }
+        if (e instanceof UncheckedIOException) {
+            return ((UncheckedIOException) e).getCause();
+        }
+        return new IOException(e.toString(), e);
+    }
+
+    // Receives a load in batches; every method is called on the EDT
+    interface LoadListener {
+        // Called before the first batch with the size of the snapshot, so
+        // the listener can pick a model that suits it. nextId is the store's,
+        // above every id used or reserved by another window.
+        void loadStarting(int expectedTasks, long nextId);
+
+        // first is true for the first batch, which replaces the current list
+        void tasksLoaded(List<Task> tasks, boolean first, int percent);
+
+        // The store is too large to load and has been opened as a
+        // PagedTaskListModel instead; no batches follow. The model stays
+        // open until closePaged().
+        void pagedStoreReady(PagedTaskListModel model, long nextId);
+
+        void loadFinished();
+
+        void loadFailed(IOException e);
+    }
+
+    // Streams the snapshot through the journal after all queued writes have
+    // landed. A small first batch gets the first screen of tasks up quickly;
+    // the rest follows in larger batches.
+    public void load(LoadListener listener) {
+        long[] generation = new long[1];
+        submit(journal -> locked(() -> {
+            readGeneration = externalGeneration;
+            generation[0] = readGeneration;
+            long nextId = store.nextId();
+            if (store.shouldPage()) {
+                // Kept until closePaged(), so no other process writes the
+                // file while the window edits it in place
+                store.holdForPaging();
+                try {
+                    pagedModel = new PagedTaskListModel(store.getSnapshotFile());
+                } catch (IOException | RuntimeException e) {
+                    store.releasePaging();
+                    throw e;
+                }
+                PagedTaskListModel model = pagedModel;
+                SwingUtilities.invokeLater(() -> listener.pagedStoreReady(model, nextId));
+                return;
+            }
+            int expectedTasks = store.snapshotSize();
+            SwingUtilities.invokeLater(() -> listener.loadStarting(expectedTasks, nextId));
+            LoadBatcher batcher = new LoadBatcher(listener);
+            store.load(batcher::add, batcher::setProgress);
+            batcher.publish();
+        }), () -> {
+            syncedGeneration = generation[0];
+            listener.loadFinished();
+        }, listener::loadFailed);
+    }
+
+    // Closes the model handed to pagedStoreReady, which the window must no
+    // longer show, and lets other processes at the store again
+    public void closePaged() {
+        submit(journal -> locked(() -> closePagedModel(true)), null, null);
+    }
+
+    // See PagedTaskListModel.close(boolean)
+    private void closePagedModel(boolean unmap) throws IOException {
+        if (pagedModel == null) {
+            return;
+        }
+        try {
+            pagedModel.close(unmap);
+        } finally {
+            pagedModel = null;
+            store.releasePaging();
+        }
+    }
+
+    // Moves the paged store aside to target and leaves the model empty; see
+    // PagedTaskListModel.clearInto. The window must not show the model
+    // until onSuccess.
+    public void clearPaged(File target, Runnable onSuccess, Consumer<IOException> onFailure) {
+        submit(journal -> locked(() -> pagedModel.clearInto(target)), onSuccess, onFailure);
+    }
+
+    // Rewrites the paged store without its garbage; see
+    // PagedTaskListModel.compact. The window must not show the model until
+    // onSuccess.
+    public void compactPaged(Runnable onSuccess, Consumer<IOException> onFailure) {
+        submit(journal -> locked(() -> {
+            long start = System.nanoTime();
+            pagedModel.compact();
+            TaskMetrics.SAVE.recordSince(start, store.getSnapshotFile().length(), pagedModel.getSize());
+        }), onSuccess, onFailure);
+    }
+
+    // Receives the store's contents after another process changed them;
+    // called on the EDT
+    interface ExternalChangeListener {
+        // tasks are the whole list as it now is on disk, in store order.
+        // No edit has been queued since they were read, so the model
+        // differs from them by the other process's changes only. Returns
+        // false if the model cannot take them right now (it is loading,
+        // say); the store is then read again a little later.
+        boolean externalChange(List<Task> tasks, long nextId);
+    }
+
+    // Reads the whole store again if another process has written to it
+    // since we last did, with our own queued records flushed first. Should
+    // an edit be queued before the result reaches the EDT, the model no
+    // longer matches what was read, so the read is repeated behind it.
+    // Call on the EDT.
+    public void checkForExternalChanges(ExternalChangeListener listener) {
+        checkForExternalChanges(listener, false);
+    }
+
+    private void checkForExternalChanges(ExternalChangeListener listener, boolean force) {
+        long[] ticket = new long[1];
+        submit(journal -> locked(() -> {
+            journal.flush();
+            if (readGeneration == externalGeneration && !force) {
+                return;
+            }
+            readGeneration = externalGeneration;
+            long generation = readGeneration;
+            List<Task> tasks = store.loadAll();
+            long nextId = store.nextId();
+            // A compaction put off until now can be taken from the model
+            // once the changes are in
+            compactionRequested = false;
+            SwingUtilities.invokeLater(() -> {
+                if (submitted.get() == ticket[0] && listener.externalChange(tasks, nextId)) {
+                    syncedGeneration = generation;
+                } else if (!executor.isShutdown()) {
+                    Timer retry = new Timer((int) EXTERNAL_CHANGE_RETRY_MILLIS, e -> {
+                        if (!executor.isShutdown()) {
+                            checkForExternalChanges(listener, true);
+                        }
+                    });
+                    retry.setRepeats(false);
+                    retry.start();
+                }
+            });
+        }), null, null);
+        ticket[0] = submitted.get();
+    }
+
+    private static class LoadBatcher {
+        private final LoadListener listener;
+        private List<Task> batch = new ArrayList<>(FIRST_LOAD_BATCH);
+        private boolean first = true;
+        private double progress;
+
+        LoadBatcher(LoadListener listener) {
+            this.listener = listener;
+        }
+
+        void setProgress(double progress) {
+            this.progress = progress;
+        }
+
+        void add(Task task) {
+            batch.add(task);
+            if (batch.size() >= (first ? FIRST_LOAD_BATCH : LOAD_BATCH)) {
+                publish();
+            }
+        }
+
+        // Always publishes, even an empty batch, so an empty file still
+        // replaces the current list
+        void publish() {
+            List<Task> tasks = batch;
+            boolean isFirst = first;
+            int percent = (int) (progress * 100);
+            SwingUtilities.invokeLater(() -> listener.tasksLoaded(tasks, isFirst, percent));
+            batch = new ArrayList<>(LOAD_BATCH);
+            first = false;
+        }
+    }
+
+    // Flushes everything that is still queued and stops the thread. Safe to
+    // call from a shutdown hook, also after closeLater.
+    public void close() {
+        shutdown(null, true);
+        try {
+            executor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Like close, but does not wait. afterClose runs on the persistence
+    // thread once the journal has been flushed and closed.
+    public void closeLater(Runnable afterClose) {
+        shutdown(afterClose, false);
+    }
+
+    // When the JVM is exiting there is nobody left to report errors to, and
+    // a paged model may still be on screen, so its mapping is left alone
+    private void shutdown(Runnable afterClose, boolean exiting) {
+        try {
+            executor.execute(() -> {
+                try {
+                    try {
+                        locked(() -> {
+                            try {
+                                closePagedModel(!exiting);
+                            } finally {
+                                store.close();
+                            }
+                        });
+                    } finally {
+                        store.releasePaging();
+                    }
+                } catch (IOException | RuntimeException e) {
+                    if (!exiting) {
+                        IOException failure = asIOException(e);
+                        SwingUtilities.invokeLater(() -> errorHandler.accept(failure));
+                    }
+                }
+                if (afterClose != null) {
+                    afterClose.run();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            return; // already shut down
+        }
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,85 @@
+package todo;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+// Task class to represent individual tasks
+class Task {
+    // Due dates are entered and shown to the minute, in local time
+    static final DateTimeFormatter DUE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private final long id;
+    private String description;
+    private boolean completed;
+    // Epoch milliseconds, 0 for none
+    private long due;
+    // getLabel(), built on first use after the due time changes
+    private String label;
+
+    public Task(long id, String description) {
+        this.id = id;
+        this.description = description;
+        this.completed = false;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(boolean completed) {
+        this.completed = completed;
+    }
+
+    public long getDue() {
+        return due;
+    }
+
+    public void setDue(long due) {
+        if (due != this.due) {
+            this.due = due;
+            label = null;
+        }
+    }
+
+    public boolean hasDue() {
+        return due != 0;
+    }
+
+    // The text the list shows: the description, and the due time if there
+    // is one. Kept, so repainting the row formats and allocates nothing.
+    public String getLabel() {
+        if (label == null) {
+            label = due == 0 ? description : description + "  (due " + formatDue(due) + ")";
+        }
+        return label;
+    }
+
+    @Override
+    public String toString() {
+        return description;
+    }
+
+    static String formatDue(long due) {
+        return DUE_FORMAT.format(LocalDateTime.ofInstant(Instant.ofEpochMilli(due), ZoneId.systemDefault()));
+    }
+
+    // Parses a date in DUE_FORMAT; throws IllegalArgumentException if it is not one
+    static long parseDue(String text) {
+        try {
+            return LocalDateTime.parse(text.trim(), DUE_FORMAT).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Not a date in the form yyyy-MM-dd HH:mm: " + text.trim());
+        }
+    }
+}
@@ -0,0 +1,617 @@
+package todo;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import javax.swing.SwingUtilities;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Optional HTTP API for other programs on the same machine (editor plugins,
+// scripts), working on the list shown in the window:
+//
+//   GET    /tasks?offset=N&limit=N
+//   GET    /tasks/{id}
+//   POST   /tasks                  {"description": "...", "completed": false,
+//                                   "due": epoch milliseconds or null}
+//   POST   /tasks/{id}/complete    body optional; {"completed": false} reopens
+//   DELETE /tasks/{id}
+//   POST   /tasks/batch/add        {"tasks": [{"description": "..."}, ...]}
+//   POST   /tasks/batch/complete   {"ids": [1, 2], "completed": true}
+//   POST   /tasks/batch/delete     {"ids": [1, 2]}
+//
+// Adding a task whose text is already in the list (ignoring case and runs
+// of whitespace) adds nothing: POST /tasks answers 409 with the existing
+// task's id, and batch/add lists such ids under "duplicates". Line breaks
+// and runs of whitespace in descriptions become single spaces.
+//
+// The server binds to the loopback address only. Requests naming another
+// host are refused, which stops DNS rebinding, and POST bodies must be
+// declared as JSON, which a web page cannot send without a CORS preflight
+// that this server never answers.
+//
+// Requests run on a small pool of daemon threads and never touch Swing
+// state themselves. A read copies one page of at most MAX_PAGE rows on the
+// EDT. Edits are queued; one EDT pass drains the queue and applies each run
+// of edits of the same kind as a single bulk edit, so a burst of calls
+// costs the UI one list event per run. While the list is loading, edits
+// wait in the queue until resume() is called.
+class TaskApiServer {
+    static final int DEFAULT_PORT = 8765;
+    static final int THREADS = 4;
+    static final int MAX_PAGE = 1000;
+    static final int MAX_BODY = 4 << 20;
+    static final long EDIT_TIMEOUT_SECONDS = 30;
+
+    // The window's side of the API; every method is called on the EDT
+    interface Backend {
+        String getListName();
+
+        TaskModel getModel();
+
+        // True while edits have to wait, such as during a load
+        boolean isBusy();
+
+        // Appends the tasks with fresh ids and returns them as added
+        List<Task> addTasks(List<NewTask> tasks);
+
+        void setCompleted(int[] indices, boolean completed);
+
+        void delete(int[] indices);
+    }
+
+    static final class NewTask {
+        final String description;
+        final boolean completed;
+        // 0 for none
+        final long due;
+
+        NewTask(String description, boolean completed, long due) {
+            this.description = description;
+            this.completed = completed;
+            this.due = due;
+        }
+    }
+
+    private enum Kind { ADD, COMPLETE, DELETE }
+
+    // One queued API call. For ADD, done gets the new ids, with the ids of
+    // the tasks that duplicates matched in missing; otherwise the ids that
+    // were found, with the others in missing.
+    private static final class Edit {
+        final Kind kind;
+        final List<NewTask> tasks;
+        final long[] ids;
+        final boolean completed;
+        final CompletableFuture<Edit> done = new CompletableFuture<>();
+        long[] affected;
+        long[] missing;
+
+        Edit(Kind kind, List<NewTask> tasks, long[] ids, boolean completed) {
+            this.kind = kind;
+            this.tasks = tasks;
+            this.ids = ids;
+            this.completed = completed;
+        }
+
+        boolean sameRun(Edit other) {
+            return kind == other.kind && completed == other.completed;
+        }
+    }
+
+    private final Backend backend;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ConcurrentLinkedQueue<Edit> edits = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+    private TaskApiServer(Backend backend, HttpServer server, ExecutorService executor) {
+        this.backend = backend;
+        this.server = server;
+        this.executor = executor;
+    }
+
+    static TaskApiServer start(Backend backend, int port) throws IOException {
+        // Without TCP_NODELAY every keep-alive response waits about 40 ms
+        // for a delayed ACK; read once, when the first server is created
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        AtomicInteger threadNumber = new AtomicInteger();
+        // Platform threads: this build targets Java 17. On 21 this can be
+        // Executors.newVirtualThreadPerTaskExecutor().
+        ExecutorService executor = new ThreadPoolExecutor(THREADS, THREADS, 0, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "task-api-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        TaskApiServer api = new TaskApiServer(backend, server, executor);
+        server.createContext("/", api::handle);
+        server.setExecutor(executor);
+        server.start();
+        return api;
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    // Applies edits that waited for the backend to stop being busy. Call on
+    // the EDT.
+    public void resume() {
+        if (!edits.isEmpty()) {
+            scheduleDrain();
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!isLocalHost(exchange.getRequestHeaders().getFirst("Host"))) {
+                send(exchange, 403, error("Forbidden host"));
+                return;
+            }
+            String method = exchange.getRequestMethod();
+            if (method.equals("POST") && !isJson(exchange.getRequestHeaders().getFirst("Content-Type"))) {
+                send(exchange, 415, error("POST requests need Content-Type: application/json"));
+                return;
+            }
+            route(exchange, method, exchange.getRequestURI().getPath());
+        } catch (IllegalArgumentException e) {
+            send(exchange, 400, error(e.getMessage()));
+        } catch (TimeoutException e) {
+            send(exchange, 503, error("The task list is busy"));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            send(exchange, 503, error("Shutting down"));
+        } catch (ExecutionException | RuntimeException e) {
+            send(exchange, 500, error(String.valueOf(e.getMessage())));
+        }
+    }
+
+    private void route(HttpExchange exchange, String method, String path)
+            throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        String[] parts = path.replaceAll("^/+|/+$", "").split("/+");
+        if (parts.length == 0 || !parts[0].equals("tasks")) {
+            send(exchange, 404, error("Not found"));
+            return;
+        }
+        if (parts.length == 1) {
+            if (method.equals("GET")) {
+                listTasks(exchange);
+            } else if (method.equals("POST")) {
+                Edit edit = submit(new Edit(Kind.ADD, List.of(newTask(readBody(exchange))), null, false));
+                if (edit.affected.length == 1) {
+                    send(exchange, 201, "{\"id\":" + edit.affected[0] + "}");
+                } else {
+                    send(exchange, 409, "{\"error\":" + Json.quote("Duplicate of task " + edit.missing[0])
+                                        + ",\"id\":" + edit.missing[0] + "}");
+                }
+            } else {
+                send(exchange, 405, error("Method not allowed"));
+            }
+            return;
+        }
+        if (parts.length == 3 && parts[1].equals("batch") && method.equals("POST")) {
+            Map<String, Object> body = object(readBody(exchange));
+            switch (parts[2]) {
+                case "add":
+                    List<NewTask> tasks = new ArrayList<>();
+                    for (Object task : array(body.get("tasks"), "tasks")) {
+                        tasks.add(newTask(task));
+                    }
+                    Edit added = submit(new Edit(Kind.ADD, tasks, null, false));
+                    send(exchange, 200, "{\"ids\":" + ids(added.affected) + ",\"duplicates\":" + ids(added.missing) + "}");
+                    return;
+                case "complete":
+                    Edit completed = submit(new Edit(Kind.COMPLETE, null, idList(body.get("ids")),
+                                                     bool(body.get("completed"), true)));
+                    send(exchange, 200, "{\"updated\":" + ids(completed.affected)
+                                        + ",\"missing\":" + ids(completed.missing) + "}");
+                    return;
+                case "delete":
+                    Edit deleted = submit(new Edit(Kind.DELETE, null, idList(body.get("ids")), false));
+                    send(exchange, 200, "{\"deleted\":" + ids(deleted.affected)
+                                        + ",\"missing\":" + ids(deleted.missing) + "}");
+                    return;
+                default:
+                    send(exchange, 404, error("Not found"));
+                    return;
+            }
+        }
+
+        long id = parseId(parts[1]);
+        if (parts.length == 2 && method.equals("GET")) {
+            Task task = onEdt(() -> {
+                TaskModel model = backend.getModel();
+                int row = model.getIndex().indexOfId(id);
+                return row >= 0 ? copy(model.getElementAt(row)) : null;
+            });
+            if (task == null) {
+                send(exchange, 404, error("No task " + id));
+            } else {
+                send(exchange, 200, toJson(task));
+            }
+        } else if (parts.length == 2 && method.equals("DELETE")) {
+            Edit edit = submit(new Edit(Kind.DELETE, null, new long[] {id}, false));
+            send(exchange, edit.affected.length == 1 ? 204 : 404, edit.affected.length == 1 ? null : error("No task " + id));
+        } else if (parts.length == 3 && parts[2].equals("complete") && method.equals("POST")) {
+            String body = readBody(exchange);
+            boolean completed = body.isBlank() || bool(object(body).get("completed"), true);
+            Edit edit = submit(new Edit(Kind.COMPLETE, null, new long[] {id}, completed));
+            send(exchange, edit.affected.length == 1 ? 204 : 404, edit.affected.length == 1 ? null : error("No task " + id));
+        } else {
+            send(exchange, 404, error("Not found"));
+        }
+    }
+
+    private void listTasks(HttpExchange exchange)
+            throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        Map<String, String> query = query(exchange.getRequestURI());
+        int offset = Math.max(0, parseInt(query.getOrDefault("offset", "0")));
+        int limit = Math.min(MAX_PAGE, Math.max(0, parseInt(query.getOrDefault("limit", String.valueOf(MAX_PAGE)))));
+        Object[] page = onEdt(() -> {
+            TaskModel model = backend.getModel();
+            int end = Math.min(model.getSize(), offset + limit);
+            List<Task> tasks = new ArrayList<>(Math.max(0, end - offset));
+            for (int i = offset; i < end; i++) {
+                tasks.add(copy(model.getElementAt(i)));
+            }
+            return new Object[] {backend.getListName(), model.getSize(), tasks};
+        });
+        @SuppressWarnings("unchecked")
+        List<Task> tasks = (List<Task>) page[2];
+        StringBuilder body = new StringBuilder(64 + tasks.size() * 64);
+        body.append("{\"list\":").append(Json.quote((String) page[0]))
+            .append(",\"total\":").append(page[1])
+            .append(",\"offset\":").append(offset)
+            .append(",\"tasks\":[");
+        for (int i = 0; i < tasks.size(); i++) {
+            body.append(i > 0 ? "," : "").append(toJson(tasks.get(i)));
+        }
+        send(exchange, 200, body.append("]}").toString());
+    }
+
+    private Edit submit(Edit edit) throws InterruptedException, ExecutionException, TimeoutException {
+        edits.add(edit);
+        scheduleDrain();
+        try {
+            return edit.done.get(EDIT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            if (edits.remove(edit)) {
+                throw e; // never applied
+            }
+            // Already taken by a drain, which finishes without waiting on anything
+            return edit.done.get();
+        }
+    }
+
+    private void scheduleDrain() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(this::drain);
+        }
+    }
+
+    // Runs on the EDT
+    private void drain() {
+        drainScheduled.set(false);
+        if (backend.isBusy()) {
+            return;
+        }
+        List<Edit> batch = new ArrayList<>();
+        for (Edit edit = edits.poll(); edit != null; edit = edits.poll()) {
+            batch.add(edit);
+        }
+        int start = 0;
+        while (start < batch.size()) {
+            int end = start + 1;
+            while (end < batch.size() && batch.get(end).sameRun(batch.get(start))) {
+                end++;
+            }
+            List<Edit> run = batch.subList(start, end);
+            try {
+                apply(run);
+                for (Edit edit : run) {
+                    edit.done.complete(edit);
+                }
+            } catch (RuntimeException e) {
+                for (Edit edit : run) {
+                    edit.done.completeExceptionally(e);
+                }
+            }
+            start = end;
+        }
+    }
+
+    private void apply(List<Edit> run) {
+        Kind kind = run.get(0).kind;
+        if (kind == Kind.ADD) {
+            applyAdds(run);
+            return;
+        }
+
+        Set<Long> wanted = new LinkedHashSet<>();
+        for (Edit edit : run) {
+            for (long id : edit.ids) {
+                wanted.add(id);
+            }
+        }
+        Map<Long, Integer> found = new HashMap<>();
+        TaskIndex index = backend.getModel().getIndex();
+        for (long id : wanted) {
+            int row = index.indexOfId(id);
+            if (row >= 0) {
+                found.put(id, row);
+            }
+        }
+        for (Edit edit : run) {
+            edit.affected = Arrays.stream(edit.ids).filter(found::containsKey).toArray();
+            edit.missing = Arrays.stream(edit.ids).filter(id -> !found.containsKey(id)).toArray();
+        }
+        int[] indices = found.values().stream().mapToInt(Integer::intValue).sorted().toArray();
+        if (indices.length == 0) {
+            return;
+        }
+        if (kind == Kind.COMPLETE) {
+            backend.setCompleted(indices, run.get(0).completed);
+        } else {
+            backend.delete(indices);
+        }
+    }
+
+    // A task whose text is already in the list, or earlier in the run, is
+    // not added again; the call gets the id of the task it matched instead
+    private void applyAdds(List<Edit> run) {
+        TaskModel model = backend.getModel();
+        List<NewTask> fresh = new ArrayList<>();
+        Map<String, Integer> freshByKey = new HashMap<>();
+        // For each task of the run, its place in fresh, or -1 and the id of
+        // the task already in the list
+        List<int[]> places = new ArrayList<>(run.size());
+        List<long[]> matched = new ArrayList<>(run.size());
+        for (Edit edit : run) {
+            int[] place = new int[edit.tasks.size()];
+            long[] match = new long[place.length];
+            for (int i = 0; i < place.length; i++) {
+                NewTask task = edit.tasks.get(i);
+                int row = model.getIndex().indexOfDuplicate(task.description);
+                if (row >= 0) {
+                    place[i] = -1;
+                    match[i] = model.getIdAt(row);
+                } else {
+                    place[i] = freshByKey.computeIfAbsent(TaskImport.key(task.description), key -> {
+                        fresh.add(task);
+                        return fresh.size() - 1;
+                    });
+                }
+            }
+            places.add(place);
+            matched.add(match);
+        }
+
+        List<Task> added = fresh.isEmpty() ? List.of() : backend.addTasks(fresh);
+        boolean[] reported = new boolean[fresh.size()];
+        for (int e = 0; e < run.size(); e++) {
+            Edit edit = run.get(e);
+            int[] place = places.get(e);
+            long[] affected = new long[place.length];
+            long[] duplicates = new long[place.length];
+            int affectedCount = 0;
+            int duplicateCount = 0;
+            for (int i = 0; i < place.length; i++) {
+                if (place[i] < 0) {
+                    duplicates[duplicateCount++] = matched.get(e)[i];
+                } else if (reported[place[i]]) {
+                    duplicates[duplicateCount++] = added.get(place[i]).getId();
+                } else {
+                    reported[place[i]] = true;
+                    affected[affectedCount++] = added.get(place[i]).getId();
+                }
+            }
+            edit.affected = Arrays.copyOf(affected, affectedCount);
+            edit.missing = Arrays.copyOf(duplicates, duplicateCount);
+        }
+    }
+
+    private interface EdtRead<T> {
+        T read();
+    }
+
+    // Reads never wait for queued edits, only for the EDT to be free
+    private static <T> T onEdt(EdtRead<T> read) throws InterruptedException, ExecutionException {
+        List<T> result = new ArrayList<>(1);
+        try {
+            SwingUtilities.invokeAndWait(() -> result.add(read.read()));
+        } catch (InvocationTargetException e) {
+            throw new ExecutionException(e.getCause());
+        }
+        return result.get(0);
+    }
+
+    private static Task copy(Task task) {
+        Task copy = new Task(task.getId(), task.getDescription());
+        copy.setCompleted(task.isCompleted());
+        copy.setDue(task.getDue());
+        return copy;
+    }
+
+    private static String toJson(Task task) {
+        return "{\"id\":" + task.getId() + ",\"description\":" + Json.quote(task.getDescription())
+               + ",\"completed\":" + task.isCompleted() + ",\"due\":" + (task.hasDue() ? task.getDue() : "null") + "}";
+    }
+
+    private static String ids(long[] ids) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < ids.length; i++) {
+            json.append(i > 0 ? "," : "").append(ids[i]);
+        }
+        return json.append(']').toString();
+    }
+
+    private static String error(String message) {
+        return "{\"error\":" + Json.quote(message) + "}";
+    }
+
+    private static NewTask newTask(Object json) {
+        Map<String, Object> task = object(json);
+        Object text = task.get("description");
+        // Kept to one line, as import and the command line do
+        String description = text instanceof String ? TaskImport.cleanDescription((String) text) : "";
+        if (description.isEmpty()) {
+            throw new IllegalArgumentException("A task needs a non-empty \"description\"");
+        }
+        Object due = task.get("due");
+        if (due != null && (!(due instanceof Long) || (Long) due <= 0)) {
+            throw new IllegalArgumentException("\"due\" must be a time in epoch milliseconds");
+        }
+        return new NewTask(description, bool(task.get("completed"), false),
+                           due != null ? (Long) due : 0);
+    }
+
+    private static NewTask newTask(String body) {
+        return newTask(Json.parse(body));
+    }
+
+    private static Map<String, Object> object(String body) {
+        return object(Json.parse(body));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> object(Object json) {
+        if (!(json instanceof Map)) {
+            throw new IllegalArgumentException("Expected a JSON object");
+        }
+        return (Map<String, Object>) json;
+    }
+
+    private static List<?> array(Object json, String name) {
+        if (!(json instanceof List)) {
+            throw new IllegalArgumentException("\"" + name + "\" must be an array");
+        }
+        return (List<?>) json;
+    }
+
+    private static long[] idList(Object json) {
+        List<?> values = array(json, "ids");
+        long[] ids = new long[values.size()];
+        for (int i = 0; i < ids.length; i++) {
+            if (!(values.get(i) instanceof Long)) {
+                throw new IllegalArgumentException("\"ids\" must hold integers");
+            }
+            ids[i] = (Long) values.get(i);
+        }
+        return ids;
+    }
+
+    private static boolean bool(Object json, boolean missing) {
+        if (json == null) {
+            return missing;
+        }
+        if (!(json instanceof Boolean)) {
+            throw new IllegalArgumentException("Expected true or false");
+        }
+        return (Boolean) json;
+    }
+
+    private static long parseId(String id) {
+        try {
+            return Long.parseLong(id);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad task id: " + id);
+        }
+    }
+
+    private static int parseInt(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad number: " + value);
+        }
+    }
+
+    private static Map<String, String> query(URI uri) {
+        Map<String, String> query = new HashMap<>();
+        String raw = uri.getQuery();
+        if (raw != null) {
+            for (String pair : raw.split("&")) {
+                int equals = pair.indexOf('=');
+                if (equals > 0) {
+                    query.put(pair.substring(0, equals), pair.substring(equals + 1));
+                }
+            }
+        }
+        return query;
+    }
+
+    private static boolean isLocalHost(String host) {
+        if (host == null) {
+            return false;
+        }
+        String name = host.replaceFirst(":\\d+$", "");
+        return name.equals("127.0.0.1") || name.equals("localhost") || name.equals("[::1]");
+    }
+
+    private static boolean isJson(String contentType) {
+        return contentType != null && contentType.toLowerCase().startsWith("application/json");
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                if (body.size() + read > MAX_BODY) {
+                    throw new IllegalArgumentException("Request body is larger than " + MAX_BODY + " bytes");
+                }
+                body.write(buffer, 0, read);
+            }
+            return body.toString(StandardCharsets.UTF_8);
+        }
+    }
+
+    // A null body sends no content
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body == null ? new byte[0] : body.getBytes(StandardCharsets.UTF_8);
+        if (body != null) {
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        }
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+        exchange.close();
+    }
+}
@@ -0,0 +1,341 @@
+package todo;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Headless command-line mode. Works on the same TaskStore files as the GUI
+// and never touches AWT or Swing, so it starts quickly and runs without a
+// display (cron jobs, scripts, ssh sessions).
+//
+// Every command appends to the journal, like an edit in the GUI; once the
+// journal is long enough it is folded into a new snapshot. Commands work on
+// the default list unless --tasklist names another one.
+class TaskCli {
+    static final int OK = 0;
+    static final int FAILED = 1;
+    static final int USAGE = 2;
+
+    private final TaskStore store;
+    private final PrintStream out;
+    private final PrintStream err;
+
+    TaskCli(TaskStore store, PrintStream out, PrintStream err) {
+        this.store = store;
+        this.out = out;
+        this.err = err;
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    // Returns the process exit status
+    static int run(String[] args) {
+        String listName = TaskStore.DEFAULT_LIST;
+        if (args.length > 0 && args[0].equals("--tasklist")) {
+            if (args.length < 2) {
+                printHelp(System.err);
+                return USAGE;
+            }
+            listName = args[1];
+            args = Arrays.copyOfRange(args, 2, args.length);
+            if (!TaskStore.listNames().contains(listName)) {
+                System.err.println("Error: No task list named \"" + listName + "\"");
+                return FAILED;
+            }
+        }
+
+        TaskStore store = TaskStore.openList(listName);
+        TaskCli cli = new TaskCli(store, System.out, System.err);
+        // An open window flushes and compacts the same files, so they are
+        // only touched while holding the store's lock
+        try {
+            Closeable lock = store.lock();
+            try {
+                return cli.execute(args);
+            } finally {
+                try {
+                    store.close();
+                } catch (IOException e) {
+                    System.err.println("Error saving tasks: " + e.getMessage());
+                }
+                lock.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+            return FAILED;
+        }
+    }
+
+    int execute(String[] args) throws IOException {
+        String command = args.length > 0 ? args[0] : "--help";
+        switch (command) {
+            case "--add":
+                return args.length < 2 ? usage() : add(String.join(" ", List.of(args).subList(1, args.length)));
+            case "--list":
+                if (args.length == 1) {
+                    return list(null);
+                }
+                if (args.length == 2 && (args[1].equals("--pending") || args[1].equals("--completed"))) {
+                    return list(args[1].equals("--completed"));
+                }
+                return usage();
+            case "--complete":
+                return args.length != 2 ? usage() : setCompleted(args[1]);
+            case "--due":
+                return args.length < 3 ? usage() : setDue(args[1], String.join(" ", List.of(args).subList(2, args.length)));
+            case "--delete":
+                return args.length != 2 ? usage() : delete(args[1]);
+            case "--import":
+                return args.length != 2 ? usage() : importTasks(new File(args[1]));
+            case "--export":
+                return args.length != 2 ? usage() : exportTasks(new File(args[1]));
+            case "--help":
+                printHelp(out);
+                return OK;
+            default:
+                return usage();
+        }
+    }
+
+    private int add(String text) throws IOException {
+        // One line, like every other description
+        String description = TaskImport.cleanDescription(text);
+        if (description.isEmpty()) {
+            err.println("Error: Task description cannot be empty");
+            return USAGE;
+        }
+        String key = TaskImport.key(description);
+        Task[] duplicate = new Task[1];
+        store.load(task -> {
+            if (duplicate[0] == null && TaskImport.key(task.getDescription()).equals(key)) {
+                duplicate[0] = task;
+            }
+        }, progress -> { });
+        if (duplicate[0] != null) {
+            err.println("Error: Already in the list as task " + duplicate[0].getId());
+            return FAILED;
+        }
+        long id = store.nextId();
+        store.getJournal().appendAdd(id, false, description);
+        finish();
+        out.println(id);
+        return OK;
+    }
+
+    // completed is null for every task
+    private int list(Boolean completed) throws IOException {
+        StringBuilder line = new StringBuilder();
+        store.load(task -> {
+            if (completed == null || task.isCompleted() == completed) {
+                line.setLength(0);
+                line.append(task.getId()).append('\t')
+                    .append(task.isCompleted() ? "[x] " : "[ ] ")
+                    .append(task.getDescription());
+                if (task.hasDue()) {
+                    line.append("  (due ").append(Task.formatDue(task.getDue())).append(')');
+                }
+                out.println(line);
+            }
+        }, progress -> { });
+        return OK;
+    }
+
+    private int setCompleted(String idArgument) throws IOException {
+        Task task = find(idArgument);
+        if (task == null) {
+            return FAILED;
+        }
+        if (!task.isCompleted()) {
+            store.getJournal().appendSetCompleted(task.getId(), true);
+            finish();
+        }
+        return OK;
+    }
+
+    // when is a date in Task.DUE_FORMAT, or "none" to clear the due date
+    private int setDue(String idArgument, String when) throws IOException {
+        long due;
+        try {
+            due = when.equalsIgnoreCase("none") ? 0 : Task.parseDue(when);
+        } catch (IllegalArgumentException e) {
+            err.println("Error: " + e.getMessage());
+            return USAGE;
+        }
+        Task task = find(idArgument);
+        if (task == null) {
+            return FAILED;
+        }
+        if (task.getDue() != due) {
+            store.getJournal().appendSetDue(task.getId(), due);
+            finish();
+        }
+        return OK;
+    }
+
+    private int delete(String idArgument) throws IOException {
+        Task task = find(idArgument);
+        if (task == null) {
+            return FAILED;
+        }
+        store.getJournal().appendDelete(task.getId());
+        finish();
+        return OK;
+    }
+
+    // Imports a text task list (either tasks.txt format), or a CSV or JSON
+    // dump without tasks already in the list. Imported tasks get fresh ids
+    // so they can never collide with tasks already in the store.
+    private int importTasks(File file) throws IOException {
+        if (!file.isFile()) {
+            err.println("Error: No such file " + file);
+            return FAILED;
+        }
+        if (TaskImport.canImport(file)) {
+            return importDump(file);
+        }
+        long[] existing = existingHashes();
+        Arrays.sort(existing);
+        Set<String> seen = new HashSet<>();
+        List<Task> imported = new ArrayList<>();
+        int[] duplicates = new int[1];
+        LegacyTaskFile.stream(file, task -> {
+            String key = TaskImport.key(task.getDescription());
+            if (Arrays.binarySearch(existing, TaskIndex.hashKey(key)) < 0 && seen.add(key)) {
+                imported.add(task);
+            } else {
+                duplicates[0]++;
+            }
+        }, progress -> { });
+        long id = store.nextId();
+        TaskJournal journal = store.getJournal();
+        for (Task task : imported) {
+            journal.appendAdd(id, task.isCompleted(), task.getDescription());
+            if (task.hasDue()) {
+                journal.appendSetDue(id, task.getDue());
+            }
+            id++;
+        }
+        finish();
+        out.println("Imported " + imported.size() + " tasks, skipped " + duplicates[0] + " duplicates");
+        return OK;
+    }
+
+    private int importDump(File file) throws IOException {
+        TaskImport.Result result = new TaskImport(file, existingHashes()).run(percent -> { });
+        long id = store.nextId();
+        TaskJournal journal = store.getJournal();
+        for (TaskImport.Row row : result.rows) {
+            journal.appendAdd(id++, row.completed, row.description);
+        }
+        finish();
+        out.println("Imported " + result.rows.size() + " tasks, skipped " + result.duplicates + " duplicates");
+        return OK;
+    }
+
+    private int exportTasks(File file) throws IOException {
+        int[] count = new int[1];
+        try (BufferedWriter writer = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), 1 << 16)) {
+            writer.write(LegacyTaskFile.EXPORT_HEADER);
+            writer.newLine();
+            IOException[] failure = new IOException[1];
+            store.load(task -> {
+                if (failure[0] != null) {
+                    return;
+                }
+                try {
+                    writer.write(LegacyTaskFile.formatExportLine(task));
+                    writer.newLine();
+                    count[0]++;
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            }, progress -> { });
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+        }
+        out.println("Exported " + count[0] + " tasks");
+        return OK;
+    }
+
+    private Task find(String idArgument) throws IOException {
+        long id;
+        try {
+            id = Long.parseLong(idArgument);
+        } catch (NumberFormatException e) {
+            err.println("Error: Not a task id: " + idArgument);
+            return null;
+        }
+        Task[] found = new Task[1];
+        store.load(task -> {
+            if (task.getId() == id) {
+                found[0] = task;
+            }
+        }, progress -> { });
+        if (found[0] == null) {
+            err.println("Error: No task with id " + id);
+        }
+        return found[0];
+    }
+
+    // Content hashes (see TaskIndex) of the tasks in the store, for the
+    // duplicate checks of the imports
+    private long[] existingHashes() throws IOException {
+        long[][] hashes = {new long[1024]};
+        int[] count = new int[1];
+        store.load(task -> {
+            if (count[0] == hashes[0].length) {
+                hashes[0] = Arrays.copyOf(hashes[0], count[0] * 2);
+            }
+            hashes[0][count[0]++] = TaskIndex.contentHash(task.getDescription());
+        }, progress -> { });
+        return Arrays.copyOf(hashes[0], count[0]);
+    }
+
+    // Makes the new journal records durable, compacting when it has grown long
+    private void finish() throws IOException {
+        TaskJournal journal = store.getJournal();
+        journal.flush();
+        if (journal.needsCompaction()) {
+            store.saveSnapshot(store.loadAll());
+        }
+    }
+
+    private int usage() {
+        printHelp(err);
+        return USAGE;
+    }
+
+    static void printHelp(PrintStream stream) {
+        stream.println("Usage: java -jar todo-list.jar [--tasklist NAME] [command]");
+        stream.println();
+        stream.println("Without a command the task list window is opened. Commands work on the");
+        stream.println("default list, or on the list called NAME. Commands:");
+        stream.println("  --add DESCRIPTION          add a task and print its id, unless one with the");
+        stream.println("                             same text (ignoring case and spacing) exists");
+        stream.println("  --list [--pending|--completed]");
+        stream.println("                             print tasks as id, status and description,");
+        stream.println("                             followed by any due date");
+        stream.println("  --complete ID              mark a task as completed");
+        stream.println("  --due ID \"yyyy-MM-dd HH:mm\"|none");
+        stream.println("                             set or clear a task's due date");
+        stream.println("  --delete ID                delete a task");
+        stream.println("  --import FILE              add the tasks from a text task list, or from a");
+        stream.println("                             .csv/.json/.jsonl dump, skipping duplicates");
+        stream.println("  --export FILE              write all tasks to a text task list");
+        stream.println("  --help                     show this message");
+    }
+}
@@ -0,0 +1,94 @@
+package todo;
+
+import javax.swing.SwingUtilities;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Watches the directories that hold task files and reports which files
+// changed, on the EDT. A journal flush or a snapshot rename can arrive as
+// several events, so everything that happens within SETTLE_MILLIS of the
+// first event is reported together. When the platform drops events the
+// whole directory is reported instead.
+//
+// This only says that something changed; PersistenceWorker works out
+// whether it was another process.
+class TaskFileWatcher {
+    static final long SETTLE_MILLIS = 100;
+
+    private final WatchService watchService;
+    private final Consumer<Set<File>> listener;
+    // Only touched on the EDT
+    private final Set<Path> directories = new HashSet<>();
+
+    // listener is called on the EDT with absolute paths
+    public TaskFileWatcher(Consumer<Set<File>> listener) throws IOException {
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.listener = listener;
+        Thread thread = new Thread(this::run, "task-file-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Starts watching a directory; watching one twice is harmless. Call on
+    // the EDT.
+    public void watch(File directory) throws IOException {
+        Path path = directory.getAbsoluteFile().toPath().normalize();
+        if (directories.add(path)) {
+            try {
+                path.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                              StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            } catch (IOException e) {
+                directories.remove(path);
+                throw e;
+            }
+        }
+    }
+
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    private void run() {
+        Set<File> changed = new HashSet<>();
+        long deadline = 0;
+        try {
+            while (true) {
+                WatchKey key;
+                if (changed.isEmpty()) {
+                    key = watchService.take();
+                    deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SETTLE_MILLIS);
+                } else {
+                    key = watchService.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                }
+                if (key == null) {
+                    Set<File> files = changed;
+                    SwingUtilities.invokeLater(() -> listener.accept(files));
+                    changed = new HashSet<>();
+                    continue;
+                }
+                Path directory = (Path) key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        changed.add(directory.toFile());
+                    } else {
+                        changed.add(directory.resolve((Path) event.context()).toFile());
+                    }
+                }
+                key.reset();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Closed
+        }
+    }
+}
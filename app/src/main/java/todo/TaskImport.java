@@ -0,0 +1,531 @@
+package todo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+// Bulk import of task dumps from other trackers: CSV with a header row,
+// a JSON array of objects, or JSON Lines. The file is read whole and cut
+// into chunks at record boundaries by one quick pass over the bytes; the
+// chunks are then parsed on the common fork-join pool. Tasks whose
+// description matches an existing task or an earlier row (ignoring case
+// and runs of whitespace) are dropped. The keys and their content hashes
+// (see TaskIndex) are worked out in parallel, so the final pass in file
+// order only does a binary search of the list's sorted hashes and a hash
+// set lookup of cached hash codes.
+//
+// Nothing touches the list model; the caller adds the rows in one bulk
+// update.
+class TaskImport {
+    static final int CHUNK_SIZE = 1 << 20;
+
+    // Column or member names that hold the description and the state,
+    // lower case, best match first
+    private static final List<String> DESCRIPTION_NAMES = List.of("description", "title", "summary", "name", "task",
+                                                                  "subject", "text");
+    private static final List<String> COMPLETED_NAMES = List.of("completed", "done", "complete", "status", "state",
+                                                                "resolved", "closed");
+    private static final Set<String> COMPLETED_VALUES = Set.of("true", "yes", "y", "1", "x", "done", "completed",
+                                                               "complete", "closed", "resolved", "finished");
+
+    private final File file;
+    private final long[] existingHashes;
+    private volatile boolean cancelled;
+
+    // One imported task
+    static class Row {
+        final String description;
+        final boolean completed;
+        private final String key;
+        private final long contentHash;
+
+        // description has been through cleanDescription
+        Row(String description, boolean completed) {
+            this.description = description;
+            this.completed = completed;
+            this.key = description.toLowerCase(Locale.ROOT);
+            key.hashCode();
+            this.contentHash = TaskIndex.hashKey(key);
+        }
+    }
+
+    static class Result {
+        final List<Row> rows;
+        final int duplicates;
+
+        Result(List<Row> rows, int duplicates) {
+            this.rows = rows;
+            this.duplicates = duplicates;
+        }
+    }
+
+    // existingHashes are the content hashes of the tasks already in the
+    // list (TaskIndex.contentHashes); the array is sorted in place on
+    // another thread
+    public TaskImport(File file, long[] existingHashes) {
+        this.file = file;
+        this.existingHashes = existingHashes;
+    }
+
+    public static boolean canImport(File file) {
+        return format(file) != null;
+    }
+
+    // Makes run() stop at the next chunk and throw CancellationException.
+    // Safe from any thread.
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    // Blocks until the file has been parsed. progress receives whole
+    // percentages as chunks finish, on pool threads.
+    public Result run(IntConsumer progress) throws IOException {
+        String format = format(file);
+        if (format == null) {
+            throw new IOException("Not a CSV or JSON file: " + file.getName());
+        }
+        byte[] data = Files.readAllBytes(file.toPath());
+        checkCancelled();
+        int start = hasByteOrderMark(data) ? 3 : 0;
+
+        List<Chunk> chunks;
+        switch (format) {
+            case "csv": {
+                int headerEnd = csvRecordEnd(data, start);
+                List<String> header = parseCsvRecord(decode(data, start, headerEnd));
+                chunks = csvChunks(data, headerEnd, new CsvColumns(header));
+                break;
+            }
+            case "json":
+                chunks = jsonArrayChunks(data, start);
+                break;
+            default:
+                chunks = lineChunks(data, start);
+        }
+
+        // The existing hashes are sorted alongside the chunks
+        AtomicInteger done = new AtomicInteger();
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(chunks.size() + 1);
+        tasks.add(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                Arrays.sort(existingHashes);
+            }
+        });
+        for (Chunk chunk : chunks) {
+            tasks.add(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    checkCancelled();
+                    chunk.parse(data);
+                    progress.accept(done.incrementAndGet() * 100 / chunks.size());
+                }
+            });
+        }
+        try {
+            ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+            });
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Bad JSON in " + file.getName() + ": " + e.getMessage());
+        }
+        checkCancelled();
+
+        List<Row> rows = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        int duplicates = 0;
+        for (Chunk chunk : chunks) {
+            for (Row row : chunk.rows) {
+                if (Arrays.binarySearch(existingHashes, row.contentHash) < 0 && seen.add(row.key)) {
+                    rows.add(row);
+                } else {
+                    duplicates++;
+                }
+            }
+        }
+        return new Result(rows, duplicates);
+    }
+
+    private void checkCancelled() {
+        if (cancelled) {
+            throw new CancellationException("Import cancelled");
+        }
+    }
+
+    // "csv", "json", "jsonl" or null, by file extension
+    private static String format(File file) {
+        String name = file.getName().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) {
+            return "csv";
+        }
+        if (name.endsWith(".json")) {
+            return "json";
+        }
+        if (name.endsWith(".jsonl") || name.endsWith(".ndjson")) {
+            return "jsonl";
+        }
+        return null;
+    }
+
+    // Duplicate check key: lower case, whitespace runs collapsed. TaskIndex
+    // hashes it for the content index; the String hash code is computed
+    // here so that lookups by key do not have to.
+    static String key(String description) {
+        String key = cleanDescription(description).toLowerCase(Locale.ROOT);
+        key.hashCode();
+        return key;
+    }
+
+    // Descriptions end up on one journal line, so line breaks and runs of
+    // whitespace become single spaces, with none left at either end
+    static String cleanDescription(String description) {
+        if (isClean(description)) {
+            return description;
+        }
+        StringBuilder cleaned = new StringBuilder(description.length());
+        boolean space = false;
+        for (int i = 0; i < description.length(); i++) {
+            char c = description.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = cleaned.length() > 0;
+            } else {
+                if (space) {
+                    cleaned.append(' ');
+                    space = false;
+                }
+                cleaned.append(c);
+            }
+        }
+        return cleaned.toString();
+    }
+
+    // No whitespace but single spaces between words
+    private static boolean isClean(String description) {
+        int length = description.length();
+        for (int i = 0; i < length; i++) {
+            char c = description.charAt(i);
+            if (Character.isWhitespace(c)
+                    && (c != ' ' || i == 0 || i == length - 1 || description.charAt(i + 1) == ' ')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isCompleted(Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).longValue() != 0;
+        }
+        return value != null && COMPLETED_VALUES.contains(value.toString().trim().toLowerCase(Locale.ROOT));
+    }
+
+    private static void addRow(List<Row> rows, Object description, Object completed) {
+        if (description == null) {
+            return;
+        }
+        String cleaned = cleanDescription(description.toString());
+        if (!cleaned.isEmpty()) {
+            rows.add(new Row(cleaned, isCompleted(completed)));
+        }
+    }
+
+    private static boolean hasByteOrderMark(byte[] data) {
+        return data.length >= 3 && (data[0] & 0xFF) == 0xEF && (data[1] & 0xFF) == 0xBB && (data[2] & 0xFF) == 0xBF;
+    }
+
+    // Chunks end on ASCII delimiters, so UTF-8 sequences are never split
+    private static String decode(byte[] data, int start, int end) {
+        return new String(data, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    // A byte range holding whole records; parse() fills in rows
+    private abstract static class Chunk {
+        final int start;
+        final int end;
+        List<Row> rows = List.of();
+
+        Chunk(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        abstract void parse(byte[] data);
+    }
+
+    // CSV (RFC 4180): quoted fields may hold commas, line breaks and
+    // doubled quotes
+
+    private static class CsvColumns {
+        final int description;
+        final int completed;
+
+        // Without a recognised header the first column is the description
+        CsvColumns(List<String> header) {
+            int descriptionColumn = -1;
+            int completedColumn = -1;
+            List<String> names = new ArrayList<>(header.size());
+            for (String name : header) {
+                names.add(name.trim().toLowerCase(Locale.ROOT));
+            }
+            for (String name : DESCRIPTION_NAMES) {
+                if (descriptionColumn < 0) {
+                    descriptionColumn = names.indexOf(name);
+                }
+            }
+            for (String name : COMPLETED_NAMES) {
+                if (completedColumn < 0) {
+                    completedColumn = names.indexOf(name);
+                }
+            }
+            this.description = Math.max(descriptionColumn, 0);
+            this.completed = completedColumn;
+        }
+    }
+
+    // Index just past the record starting at start, including its line break
+    private static int csvRecordEnd(byte[] data, int start) {
+        boolean quoted = false;
+        for (int i = start; i < data.length; i++) {
+            byte b = data[i];
+            if (b == '"') {
+                quoted = !quoted;
+            } else if (b == '\n' && !quoted) {
+                return i + 1;
+            }
+        }
+        return data.length;
+    }
+
+    // One pass tracking only whether the scan is inside quotes; a doubled
+    // quote toggles twice and so changes nothing
+    private static List<Chunk> csvChunks(byte[] data, int start, CsvColumns columns) {
+        List<Chunk> chunks = new ArrayList<>();
+        int chunkStart = start;
+        boolean quoted = false;
+        for (int i = start; i < data.length; i++) {
+            byte b = data[i];
+            if (b == '"') {
+                quoted = !quoted;
+            } else if (b == '\n' && !quoted && i + 1 - chunkStart >= CHUNK_SIZE) {
+                chunks.add(csvChunk(chunkStart, i + 1, columns));
+                chunkStart = i + 1;
+            }
+        }
+        if (chunkStart < data.length) {
+            chunks.add(csvChunk(chunkStart, data.length, columns));
+        }
+        return chunks;
+    }
+
+    private static Chunk csvChunk(int start, int end, CsvColumns columns) {
+        return new Chunk(start, end) {
+            @Override
+            void parse(byte[] data) {
+                String text = decode(data, start, end);
+                List<Row> parsed = new ArrayList<>();
+                int[] position = {0};
+                while (position[0] < text.length()) {
+                    List<String> fields = parseCsvFields(text, position);
+                    if (fields.size() > columns.description) {
+                        addRow(parsed, fields.get(columns.description),
+                               columns.completed >= 0 && columns.completed < fields.size()
+                               ? fields.get(columns.completed) : null);
+                    }
+                }
+                rows = parsed;
+            }
+        };
+    }
+
+    private static List<String> parseCsvRecord(String text) {
+        return parseCsvFields(text, new int[] {0});
+    }
+
+    // Reads one record from position[0] and leaves it past the line break.
+    // Fields are cut out as substrings; only doubled quotes need copying.
+    private static List<String> parseCsvFields(String text, int[] position) {
+        List<String> fields = new ArrayList<>();
+        int length = text.length();
+        int i = position[0];
+        while (true) {
+            String field;
+            if (i < length && text.charAt(i) == '"') {
+                StringBuilder unescaped = null;
+                int from = i + 1;
+                while (true) {
+                    int quote = text.indexOf('"', from);
+                    if (quote < 0) {
+                        // Unterminated; the rest of the chunk is the field
+                        field = unescaped == null ? text.substring(from) : unescaped.append(text, from, length).toString();
+                        i = length;
+                        break;
+                    }
+                    if (quote + 1 < length && text.charAt(quote + 1) == '"') {
+                        if (unescaped == null) {
+                            unescaped = new StringBuilder();
+                        }
+                        unescaped.append(text, from, quote + 1);
+                        from = quote + 2;
+                    } else {
+                        field = unescaped == null ? text.substring(from, quote) : unescaped.append(text, from, quote).toString();
+                        i = quote + 1;
+                        break;
+                    }
+                }
+                // Anything between the closing quote and the delimiter is dropped
+                while (i < length && text.charAt(i) != ',' && text.charAt(i) != '\n') {
+                    i++;
+                }
+            } else {
+                int end = i;
+                while (end < length && text.charAt(end) != ',' && text.charAt(end) != '\n') {
+                    end++;
+                }
+                field = text.substring(i, end > i && text.charAt(end - 1) == '\r' ? end - 1 : end);
+                i = end;
+            }
+            fields.add(field);
+            if (i >= length || text.charAt(i++) == '\n') {
+                break;
+            }
+        }
+        position[0] = i;
+        return fields;
+    }
+
+    // JSON: the top-level array is cut after commas at depth one
+
+    private static List<Chunk> jsonArrayChunks(byte[] data, int start) throws IOException {
+        int i = start;
+        while (i < data.length && Character.isWhitespace(data[i])) {
+            i++;
+        }
+        if (i >= data.length || data[i] != '[') {
+            throw new IOException("Expected a JSON array of tasks");
+        }
+        List<Chunk> chunks = new ArrayList<>();
+        int chunkStart = i + 1;
+        int depth = 1;
+        boolean inString = false;
+        for (i = i + 1; i < data.length && depth > 0; i++) {
+            byte b = data[i];
+            if (inString) {
+                if (b == '\\') {
+                    i++;
+                } else if (b == '"') {
+                    inString = false;
+                }
+            } else if (b == '"') {
+                inString = true;
+            } else if (b == '[' || b == '{') {
+                depth++;
+            } else if (b == ']' || b == '}') {
+                depth--;
+                if (depth == 0) {
+                    chunks.add(jsonChunk(chunkStart, i));
+                }
+            } else if (b == ',' && depth == 1 && i + 1 - chunkStart >= CHUNK_SIZE) {
+                chunks.add(jsonChunk(chunkStart, i));
+                chunkStart = i + 1;
+            }
+        }
+        if (depth > 0) {
+            throw new IOException("Unterminated JSON array");
+        }
+        return chunks;
+    }
+
+    private static Chunk jsonChunk(int start, int end) {
+        return new Chunk(start, end) {
+            @Override
+            void parse(byte[] data) {
+                List<Row> parsed = new ArrayList<>();
+                for (Object element : (List<?>) Json.parse("[" + decode(data, start, end) + "]")) {
+                    addJsonRow(parsed, element);
+                }
+                rows = parsed;
+            }
+        };
+    }
+
+    // JSON Lines: one value per line
+
+    private static List<Chunk> lineChunks(byte[] data, int start) {
+        List<Chunk> chunks = new ArrayList<>();
+        int chunkStart = start;
+        for (int i = start; i < data.length; i++) {
+            if (data[i] == '\n' && i + 1 - chunkStart >= CHUNK_SIZE) {
+                chunks.add(lineChunk(chunkStart, i + 1));
+                chunkStart = i + 1;
+            }
+        }
+        if (chunkStart < data.length) {
+            chunks.add(lineChunk(chunkStart, data.length));
+        }
+        return chunks;
+    }
+
+    private static Chunk lineChunk(int start, int end) {
+        return new Chunk(start, end) {
+            @Override
+            void parse(byte[] data) {
+                List<Row> parsed = new ArrayList<>();
+                for (String line : decode(data, start, end).split("\n")) {
+                    if (!line.isBlank()) {
+                        addJsonRow(parsed, Json.parse(line));
+                    }
+                }
+                rows = parsed;
+            }
+        };
+    }
+
+    // A task is an object with a description-like member, or just a string
+    private static void addJsonRow(List<Row> rows, Object element) {
+        if (element instanceof String) {
+            addRow(rows, element, null);
+            return;
+        }
+        if (!(element instanceof Map)) {
+            return;
+        }
+        Map<?, ?> object = (Map<?, ?>) element;
+        Object description = null;
+        for (String name : DESCRIPTION_NAMES) {
+            if (description == null) {
+                description = object.get(name);
+            }
+        }
+        Object completed = null;
+        for (String name : COMPLETED_NAMES) {
+            if (completed == null) {
+                completed = object.get(name);
+            }
+        }
+        addRow(rows, description, completed);
+    }
+}
@@ -0,0 +1,298 @@
+package todo;
+
+import java.util.Arrays;
+
+// Hash indexes over one TaskModel: from task id to row, and from a 64-bit
+// hash of the task's text (TaskImport.key: case and runs of whitespace
+// ignored) to the id of a task with that text. Ids are stable across
+// reloads and edits from other processes; rows are not.
+//
+// Rows move whenever tasks are removed or inserted in front of them, so
+// the entries are only hints: a lookup checks its answer against the
+// model. A task can only have drifted as many rows as were removed or
+// inserted since the index was built, so a stale entry is fixed by
+// scanning that window, and only after more than MAX_DRIFT such edits is
+// the index rebuilt in one pass. The model reports every task it inserts,
+// so a built index holds every id in the list and a miss needs no check.
+// Each half is built the first time it is asked for, so lists that are
+// never searched by id or text cost nothing.
+//
+// Only used on the EDT, like the model.
+class TaskIndex {
+    // Edits that move rows, after which a stale entry rebuilds the index
+    // rather than scanning for the task
+    static final int MAX_DRIFT = 1024;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final TaskModel model;
+    // id -> row; null until built
+    private LongMap rows;
+    // Rows removed and inserted (other than at the end) since rows was built
+    private int removedRows;
+    private int insertedRows;
+    // content hash -> id; null until built
+    private LongMap contents;
+    // True once a task has been removed since contents was built, so it
+    // may hold the hashes of texts no longer in the list
+    private boolean contentsStale;
+
+    TaskIndex(TaskModel model) {
+        this.model = model;
+    }
+
+    // 64-bit hash of the text a duplicate check compares. ASCII text is
+    // normalized on the fly, as TaskImport.key would, without building the
+    // key.
+    static long contentHash(String description) {
+        long hash = FNV_OFFSET;
+        boolean space = false;
+        boolean started = false;
+        for (int i = 0; i < description.length(); i++) {
+            char c = description.charAt(i);
+            if (c >= 0x80) {
+                return hashKey(TaskImport.key(description));
+            }
+            if (Character.isWhitespace(c)) {
+                space = started;
+                continue;
+            }
+            if (space) {
+                hash = (hash ^ ' ') * FNV_PRIME;
+                space = false;
+            }
+            if (c >= 'A' && c <= 'Z') {
+                c += 'a' - 'A';
+            }
+            hash = (hash ^ c) * FNV_PRIME;
+            started = true;
+        }
+        return mix(hash);
+    }
+
+    // contentHash of an already normalized key: FNV-1a over the chars,
+    // then the MurmurHash3 finalizer to spread FNV's weak low bits
+    static long hashKey(String key) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < key.length(); i++) {
+            hash = (hash ^ key.charAt(i)) * FNV_PRIME;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    // Row of the task with this id, or -1
+    int indexOfId(long id) {
+        if (rows == null) {
+            buildRows();
+        }
+        int row = (int) rows.get(id, -1);
+        int size = model.getSize();
+        if (row < 0 || row < size && model.getIdAt(row) == id) {
+            return row;
+        }
+        if (removedRows + insertedRows <= MAX_DRIFT) {
+            int end = Math.min(size - 1, row + insertedRows);
+            for (int i = Math.max(0, row - removedRows); i <= end; i++) {
+                if (model.getIdAt(i) == id) {
+                    rows.put(id, i);
+                    return i;
+                }
+            }
+        }
+        buildRows();
+        return (int) rows.get(id, -1);
+    }
+
+    // Row of a task whose text matches description ignoring case and runs
+    // of whitespace, or -1
+    int indexOfDuplicate(String description) {
+        String key = TaskImport.key(description);
+        long hash = hashKey(key);
+        if (contents == null) {
+            buildContents();
+        }
+        for (int attempt = 0; ; attempt++) {
+            long id = contents.get(hash, Long.MIN_VALUE);
+            int row = id == Long.MIN_VALUE ? -1 : indexOfId(id);
+            if (row >= 0 && TaskImport.key(model.getElementAt(row).getDescription()).equals(key)) {
+                return row;
+            }
+            // The task it pointed at may be gone while another with the
+            // same text is still there
+            if (id == Long.MIN_VALUE || !contentsStale || attempt > 0) {
+                return -1;
+            }
+            buildContents();
+        }
+    }
+
+    // The content hashes of every task in the list, each once, for checking
+    // other threads' work against the list
+    long[] contentHashes() {
+        if (contents == null || contentsStale) {
+            buildContents();
+        }
+        return contents.keys();
+    }
+
+    // Called by the model once the task is at the given row
+    void added(Task task, int row) {
+        if (rows != null) {
+            rows.put(task.getId(), row);
+            if (row < model.getSize() - 1 && insertedRows <= MAX_DRIFT) {
+                insertedRows++;
+            }
+            if (rows.size() > 2 * model.getSize() + 64) {
+                // Mostly ids that have since been removed; built afresh on
+                // the next lookup
+                rows = null;
+            }
+        }
+        if (contents != null) {
+            contents.put(contentHash(task.getDescription()), task.getId());
+        }
+    }
+
+    // Called by the model after it removes tasks
+    void removed(int count) {
+        removedRows = Math.min(removedRows + count, MAX_DRIFT + 1);
+        contentsStale = true;
+    }
+
+    // Called by the model when its whole contents are replaced
+    void reset() {
+        rows = null;
+        contents = null;
+        contentsStale = false;
+    }
+
+    private void buildRows() {
+        int size = model.getSize();
+        rows = new LongMap(size);
+        removedRows = 0;
+        insertedRows = 0;
+        for (int i = 0; i < size; i++) {
+            rows.put(model.getIdAt(i), i);
+        }
+    }
+
+    private void buildContents() {
+        int size = model.getSize();
+        contents = new LongMap(size);
+        for (int i = 0; i < size; i++) {
+            Task task = model.getElementAt(i);
+            contents.put(contentHash(task.getDescription()), task.getId());
+        }
+        contentsStale = false;
+    }
+
+    // Open addressing with linear probing from long keys to long values,
+    // at most half full. There is no removal; stale entries go when the
+    // index is rebuilt. One key value marks free slots, so it is kept
+    // aside.
+    private static final class LongMap {
+        private static final long FREE = Long.MIN_VALUE;
+
+        private long[] keys;
+        private long[] values;
+        private int mask;
+        private int shift;
+        private int size;
+        private boolean hasFreeKey;
+        private long freeKeyValue;
+
+        LongMap(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(16, expected) * 2 - 1) << 1;
+            allocate(capacity);
+        }
+
+        int size() {
+            return size;
+        }
+
+        long get(long key, long missing) {
+            if (key == FREE) {
+                return hasFreeKey ? freeKeyValue : missing;
+            }
+            for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+                long k = keys[slot];
+                if (k == key) {
+                    return values[slot];
+                }
+                if (k == FREE) {
+                    return missing;
+                }
+            }
+        }
+
+        void put(long key, long value) {
+            if (key == FREE) {
+                if (!hasFreeKey) {
+                    hasFreeKey = true;
+                    size++;
+                }
+                freeKeyValue = value;
+                return;
+            }
+            int slot = slot(key);
+            while (keys[slot] != FREE && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            values[slot] = value;
+            if (keys[slot] == FREE) {
+                keys[slot] = key;
+                if (++size * 2 > keys.length) {
+                    grow();
+                }
+            }
+        }
+
+        long[] keys() {
+            long[] all = new long[size];
+            int count = 0;
+            if (hasFreeKey) {
+                all[count++] = FREE;
+            }
+            for (long key : keys) {
+                if (key != FREE) {
+                    all[count++] = key;
+                }
+            }
+            return all;
+        }
+
+        private int slot(long key) {
+            // Fibonacci hashing: the top bits of the product pick the slot
+            return (int) ((key * 0x9e3779b97f4a7c15L) >>> shift);
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            values = new long[capacity];
+            Arrays.fill(keys, FREE);
+            mask = capacity - 1;
+            shift = 64 - Integer.numberOfTrailingZeros(capacity);
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            long[] oldValues = values;
+            allocate(oldKeys.length * 2);
+            size = hasFreeKey ? 1 : 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != FREE) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+    }
+}
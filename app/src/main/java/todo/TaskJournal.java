@@ -0,0 +1,312 @@
+package todo;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+// Append-only log of task edits made since the last snapshot was written.
+// Each record refers to a task by its stable id, so an edit costs one short
+// line instead of rewriting the whole task file. Only the persistence worker
+// thread writes to it; records are buffered until flush() is called, which
+// forces them to disk. Callers batch records between flushes, so a burst of
+// edits costs one fsync.
+//
+// The file is opened for each flush rather than held open: another process
+// may fold the journal into a snapshot and delete it in between, and
+// records written to the deleted file would be lost.
+//
+// The file is UTF-8, one record per line. Descriptions are the only free
+// text in it, so appendAdd escapes backslashes and line breaks in them; a
+// description can never end its line early and pass the rest off as a
+// record of its own.
+class TaskJournal {
+    // Number of records after which the journal is folded into a new snapshot
+    static final int COMPACT_THRESHOLD = 1000;
+
+    private final File file;
+    private final StringBuilder pending = new StringBuilder();
+    private int recordCount;
+    // Highest id appended by this process, flushed or not
+    private long maxAppendedId;
+
+    public TaskJournal(String fileName) {
+        this.file = new File(fileName);
+        this.recordCount = countRecords(file);
+    }
+
+    public void appendAdd(long id, boolean completed, String description) throws IOException {
+        append("A|" + id + "|" + completed + "|" + escape(description));
+        maxAppendedId = Math.max(maxAppendedId, id);
+    }
+
+    // Backslash, \n and \r become \\, \\n and \\r
+    static String escape(String description) {
+        if (description.indexOf('\\') < 0 && description.indexOf('\n') < 0 && description.indexOf('\r') < 0) {
+            return description;
+        }
+        StringBuilder escaped = new StringBuilder(description.length() + 8);
+        for (int i = 0; i < description.length(); i++) {
+            char c = description.charAt(i);
+            switch (c) {
+                case '\\':
+                    escaped.append("\\\\");
+                    break;
+                case '\n':
+                    escaped.append("\\n");
+                    break;
+                case '\r':
+                    escaped.append("\\r");
+                    break;
+                default:
+                    escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    // Inverse of escape
+    static String unescape(String text) {
+        if (text.indexOf('\\') < 0) {
+            return text;
+        }
+        StringBuilder description = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\\' && i + 1 < text.length()) {
+                char next = text.charAt(++i);
+                description.append(next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else {
+                description.append(c);
+            }
+        }
+        return description.toString();
+    }
+
+    public void appendSetCompleted(long id, boolean completed) throws IOException {
+        append("S|" + id + "|" + completed);
+    }
+
+    // due is epoch milliseconds, 0 to clear it
+    public void appendSetDue(long id, long due) throws IOException {
+        append("T|" + id + "|" + due);
+    }
+
+    public void appendDelete(long id) throws IOException {
+        append("D|" + id);
+    }
+
+    public void appendClear() throws IOException {
+        append("X");
+    }
+
+    private void append(String record) throws IOException {
+        pending.append(record).append('\n');
+        recordCount++;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public boolean isDirty() {
+        return pending.length() > 0;
+    }
+
+    public boolean isEmpty() {
+        return recordCount == 0;
+    }
+
+    public boolean needsCompaction() {
+        return recordCount >= COMPACT_THRESHOLD;
+    }
+
+    public void flush() throws IOException {
+        if (pending.length() == 0) {
+            return;
+        }
+        try (FileOutputStream stream = new FileOutputStream(file, true);
+             Writer writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), 1 << 16)) {
+            writer.append(pending);
+            writer.flush();
+            stream.getChannel().force(false);
+        }
+        pending.setLength(0);
+    }
+
+    // Called once a snapshot containing every journaled record is in place
+    public void reset() throws IOException {
+        pending.setLength(0);
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Could not truncate " + file);
+        }
+        recordCount = 0;
+    }
+
+    public void close() throws IOException {
+        flush();
+    }
+
+    // Net effect of the journal, collected up front so the snapshot can be
+    // streamed through it row by row. Every record is idempotent, so
+    // replaying records that already made it into the snapshot (a crash
+    // between writing it and resetting) is harmless.
+    static class Replay {
+        private boolean cleared;
+        private final Set<Long> deleted = new HashSet<>();
+        private final Map<Long, Boolean> completed = new HashMap<>();
+        private final Map<Long, Long> dues = new HashMap<>();
+        private final Map<Long, Task> added = new LinkedHashMap<>();
+        private long maxId;
+
+        // Applies the journal to a task read from the snapshot and returns
+        // false if the task no longer exists
+        public boolean apply(Task task) {
+            if (cleared || deleted.contains(task.getId())) {
+                return false;
+            }
+            // Already in the snapshot, so keep its position there
+            added.remove(task.getId());
+            Boolean state = completed.get(task.getId());
+            if (state != null) {
+                task.setCompleted(state);
+            }
+            Long due = dues.get(task.getId());
+            if (due != null) {
+                task.setDue(due);
+            }
+            return true;
+        }
+
+        // Tasks added since the snapshot, in the order they were added
+        public Collection<Task> addedTasks() {
+            return added.values();
+        }
+
+        // Highest id ever added through the journal, even if deleted since
+        public long getMaxId() {
+            return maxId;
+        }
+
+        private void record(String line) {
+            int first = line.indexOf('|');
+            int second = first < 0 ? -1 : line.indexOf('|', first + 1);
+            int end = second < 0 ? line.length() : second;
+            switch (line.charAt(0)) {
+                case 'A': {
+                    int third = line.indexOf('|', second + 1);
+                    long id = Long.parseLong(line, first + 1, end, 10);
+                    maxId = Math.max(maxId, id);
+                    if (third > 0 && !added.containsKey(id)) {
+                        boolean state = parseBoolean(line, second + 1, third);
+                        Task task = new Task(id, unescape(line.substring(third + 1)));
+                        task.setCompleted(state);
+                        added.put(id, task);
+                    }
+                    break;
+                }
+                case 'S': {
+                    long id = Long.parseLong(line, first + 1, end, 10);
+                    boolean state = parseBoolean(line, second + 1, line.length());
+                    completed.put(id, state);
+                    Task task = added.get(id);
+                    if (task != null) {
+                        task.setCompleted(state);
+                    }
+                    break;
+                }
+                case 'T': {
+                    long id = Long.parseLong(line, first + 1, end, 10);
+                    long due = Long.parseLong(line, second + 1, line.length(), 10);
+                    dues.put(id, due);
+                    Task task = added.get(id);
+                    if (task != null) {
+                        task.setDue(due);
+                    }
+                    break;
+                }
+                case 'D': {
+                    long id = Long.parseLong(line, first + 1, end, 10);
+                    deleted.add(id);
+                    added.remove(id);
+                    break;
+                }
+                case 'X':
+                    cleared = true;
+                    deleted.clear();
+                    completed.clear();
+                    dues.clear();
+                    added.clear();
+                    break;
+                default:
+                    // Ignore unknown records
+            }
+        }
+
+        // Exactly "true" or "false"; anything else is a torn record
+        private static boolean parseBoolean(String line, int start, int end) {
+            if (end - start == 4 && line.startsWith("true", start)) {
+                return true;
+            }
+            if (end - start == 5 && line.startsWith("false", start)) {
+                return false;
+            }
+            throw new NumberFormatException("Not a boolean: " + line);
+        }
+    }
+
+    public Replay readReplay() throws IOException {
+        flush();
+        return readFile();
+    }
+
+    // Highest id ever added through the journal, without flushing it first
+    public long getMaxId() throws IOException {
+        return Math.max(maxAppendedId, readFile().getMaxId());
+    }
+
+    private Replay readFile() throws IOException {
+        Replay replay = new Replay();
+        if (!file.exists()) {
+            return replay;
+        }
+
+        try (BufferedReader reader = openReader(file)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                try {
+                    if (!line.isEmpty()) {
+                        replay.record(line);
+                    }
+                } catch (NumberFormatException | IndexOutOfBoundsException e) {
+                    // Skip a torn or malformed record, e.g. from a crash mid-write
+                }
+            }
+        }
+        return replay;
+    }
+
+    private static BufferedReader openReader(File file) throws IOException {
+        return new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+    }
+
+    private static int countRecords(File journalFile) {
+        if (!journalFile.exists()) {
+            return 0;
+        }
+
+        int count = 0;
+        try (BufferedReader reader = openReader(journalFile)) {
+            while (reader.readLine() != null) {
+                count++;
+            }
+        } catch (IOException e) {
+            // Treat an unreadable journal as empty; replay reports the error
+        }
+        return count;
+    }
+}
@@ -0,0 +1,101 @@
+package todo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Brings a list model in line with the store's contents after another
+// process changed them. Only rows that differ are touched, so the
+// selection and scroll position stay put: tasks gone from the store are
+// removed, a changed completed state or due time is set in place, a
+// changed description replaces its row and new tasks are added at the
+// end in store order.
+class TaskListDiff {
+    private TaskListDiff() {
+    }
+
+    // tasks are the whole store in store order. The search index is kept in
+    // step for a searchable model. Returns false if nothing differed.
+    public static boolean apply(TaskModel model, List<Task> tasks, TaskSearchIndex index) {
+        // The model is usually in store order, so rows are paired up by
+        // position until the first one out of step; the rest of the store
+        // is then looked up by id
+        Map<Long, Task> stored = null;
+        int size = model.getSize();
+        int[] removed = new int[size];
+        int removedCount = 0;
+        int[] completed = new int[size];
+        int completedCount = 0;
+        int[] reopened = new int[size];
+        int reopenedCount = 0;
+        int[] redated = new int[size];
+        long[] redatedDues = new long[size];
+        int redatedCount = 0;
+        List<Integer> insertedAt = new ArrayList<>();
+        List<Task> inserted = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            Task task = model.getElementAt(i);
+            Task storedTask;
+            if (stored == null && i < tasks.size() && tasks.get(i).getId() == task.getId()) {
+                storedTask = tasks.get(i);
+            } else {
+                if (stored == null) {
+                    stored = new LinkedHashMap<>();
+                    for (Task rest : tasks.subList(i, tasks.size())) {
+                        stored.put(rest.getId(), rest);
+                    }
+                }
+                storedTask = stored.remove(task.getId());
+            }
+            if (storedTask == null) {
+                removed[removedCount++] = i;
+            } else if (!storedTask.getDescription().equals(task.getDescription())) {
+                // Back at the same place once the removals are done
+                insertedAt.add(i - removedCount + inserted.size());
+                inserted.add(storedTask);
+                removed[removedCount++] = i;
+            } else {
+                if (storedTask.isCompleted() != task.isCompleted()) {
+                    if (storedTask.isCompleted()) {
+                        completed[completedCount++] = i;
+                    } else {
+                        reopened[reopenedCount++] = i;
+                    }
+                }
+                if (storedTask.getDue() != task.getDue()) {
+                    redatedDues[redatedCount] = storedTask.getDue();
+                    redated[redatedCount++] = i;
+                }
+            }
+        }
+        int end = size - removedCount + inserted.size();
+        for (Task task : stored != null ? stored.values() : tasks.subList(Math.min(size, tasks.size()), tasks.size())) {
+            insertedAt.add(end++);
+            inserted.add(task);
+        }
+        if (removedCount == 0 && completedCount == 0 && reopenedCount == 0 && redatedCount == 0
+                && inserted.isEmpty()) {
+            return false;
+        }
+
+        model.setCompleted(Arrays.copyOf(completed, completedCount), true);
+        model.setCompleted(Arrays.copyOf(reopened, reopenedCount), false);
+        for (int i = 0; i < redatedCount; i++) {
+            model.setDue(new int[] {redated[i]}, redatedDues[i]);
+        }
+        for (Task task : model.removeAll(Arrays.copyOf(removed, removedCount))) {
+            index.remove(task);
+        }
+        int[] indices = new int[inserted.size()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = insertedAt.get(i);
+        }
+        model.insertAll(indices, inserted);
+        if (model.isSearchable()) {
+            index.addAll(inserted);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,327 @@
+package todo;
+
+import javax.swing.AbstractListModel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+// List model for the task list backed by a plain growable array. Unlike
+// DefaultListModel, every bulk operation fires a single interval event, so
+// loading or clearing thousands of tasks costs one relayout of the JList.
+class TaskListModel extends AbstractListModel<Task> implements TaskModel {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private Task[] tasks = new Task[INITIAL_CAPACITY];
+    private int size;
+    private EditListener editListener;
+    private final TaskIndex taskIndex = new TaskIndex(this);
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public Task getElementAt(int index) {
+        checkIndex(index, size);
+        return tasks[index];
+    }
+
+    @Override
+    public long getIdAt(int index) {
+        return getElementAt(index).getId();
+    }
+
+    @Override
+    public TaskIndex getIndex() {
+        return taskIndex;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public void setEditListener(EditListener listener) {
+        editListener = listener;
+    }
+
+    @Override
+    public void add(Task task) {
+        add(size, task);
+    }
+
+    public void add(int index, Task task) {
+        checkIndex(index, size + 1);
+        ensureCapacity(size + 1);
+        System.arraycopy(tasks, index, tasks, index + 1, size - index);
+        tasks[index] = task;
+        size++;
+        taskIndex.added(task, index);
+        if (editListener != null) {
+            editListener.tasksInserted(new int[] {index}, List.of(task));
+        }
+        fireIntervalAdded(this, index, index);
+    }
+
+    @Override
+    public void addAll(int index, Collection<? extends Task> newTasks) {
+        checkIndex(index, size + 1);
+        int count = newTasks.size();
+        if (count == 0) {
+            return;
+        }
+        ensureCapacity(size + count);
+        System.arraycopy(tasks, index, tasks, index + count, size - index);
+        int i = index;
+        for (Task task : newTasks) {
+            taskIndex.added(task, i);
+            tasks[i++] = task;
+        }
+        size += count;
+        if (editListener != null) {
+            editListener.tasksInserted(range(index, count), Arrays.asList(Arrays.copyOfRange(tasks, index, index + count)));
+        }
+        fireIntervalAdded(this, index, index + count - 1);
+    }
+
+    @Override
+    public Task remove(int index) {
+        Task task = getElementAt(index);
+        removeRange(index, index);
+        return task;
+    }
+
+    // Removes the tasks from fromIndex to toIndex, both inclusive
+    public void removeRange(int fromIndex, int toIndex) {
+        checkIndex(fromIndex, size);
+        checkIndex(toIndex, size);
+        if (fromIndex > toIndex) {
+            throw new IllegalArgumentException("fromIndex must be <= toIndex");
+        }
+        int count = toIndex - fromIndex + 1;
+        List<Task> removed = editListener != null ? List.of(Arrays.copyOfRange(tasks, fromIndex, toIndex + 1)) : null;
+        System.arraycopy(tasks, toIndex + 1, tasks, fromIndex, size - toIndex - 1);
+        Arrays.fill(tasks, size - count, size, null);
+        size -= count;
+        taskIndex.removed(count);
+        if (editListener != null) {
+            editListener.tasksRemoved(range(fromIndex, count), removed);
+        }
+        fireIntervalRemoved(this, fromIndex, toIndex);
+    }
+
+    @Override
+    public List<Task> removeAll(int[] indices) {
+        checkAscending(indices, size);
+        List<Task> removed = new ArrayList<>(indices.length);
+        if (indices.length == 0) {
+            return removed;
+        }
+
+        int first = indices[0];
+        int write = first;
+        int next = 0;
+        for (int read = first; read < size; read++) {
+            if (next < indices.length && indices[next] == read) {
+                removed.add(tasks[read]);
+                next++;
+            } else {
+                tasks[write++] = tasks[read];
+            }
+        }
+        int oldSize = size;
+        Arrays.fill(tasks, write, size, null);
+        size = write;
+        taskIndex.removed(indices.length);
+        if (editListener != null) {
+            editListener.tasksRemoved(indices, removed);
+        }
+
+        int last = indices[indices.length - 1];
+        if (last - first + 1 == indices.length) {
+            fireIntervalRemoved(this, first, last);
+        } else {
+            if (first < size) {
+                fireContentsChanged(this, first, size - 1);
+            }
+            fireIntervalRemoved(this, size, oldSize - 1);
+        }
+        return removed;
+    }
+
+    @Override
+    public void insertAll(int[] indices, List<Task> newTasks) {
+        int count = indices.length;
+        if (newTasks.size() != count) {
+            throw new IllegalArgumentException(count + " indices for " + newTasks.size() + " tasks");
+        }
+        checkAscending(indices, size + count);
+        if (count == 0) {
+            return;
+        }
+
+        // Fill from the end so every task moves at most once
+        ensureCapacity(size + count);
+        int read = size - 1;
+        int next = count - 1;
+        for (int write = size + count - 1; next >= 0; write--) {
+            tasks[write] = write == indices[next] ? newTasks.get(next--) : tasks[read--];
+        }
+        int oldSize = size;
+        size += count;
+        for (int i = 0; i < count; i++) {
+            taskIndex.added(newTasks.get(i), indices[i]);
+        }
+        if (editListener != null) {
+            editListener.tasksInserted(indices, newTasks);
+        }
+
+        int first = indices[0];
+        int last = indices[count - 1];
+        if (last - first + 1 == count) {
+            fireIntervalAdded(this, first, last);
+        } else {
+            fireIntervalAdded(this, oldSize, size - 1);
+            if (first < oldSize) {
+                fireContentsChanged(this, first, oldSize - 1);
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        if (size > 0) {
+            int oldSize = size;
+            Arrays.fill(tasks, 0, size, null);
+            size = 0;
+            taskIndex.reset();
+            if (editListener != null) {
+                editListener.tasksReplaced();
+            }
+            fireIntervalRemoved(this, 0, oldSize - 1);
+        }
+    }
+
+    // Replaces the whole list. Rows that exist before and after are reported
+    // as one change event, plus at most one event for the rows added or
+    // removed at the end.
+    @Override
+    public void replaceAll(Collection<? extends Task> newTasks) {
+        int oldSize = size;
+        int newSize = newTasks.size();
+        tasks = newTasks.toArray(new Task[Math.max(INITIAL_CAPACITY, newSize)]);
+        size = newSize;
+        taskIndex.reset();
+        if (editListener != null) {
+            editListener.tasksReplaced();
+        }
+
+        int common = Math.min(oldSize, newSize);
+        if (common > 0) {
+            fireContentsChanged(this, 0, common - 1);
+        }
+        if (newSize > oldSize) {
+            fireIntervalAdded(this, oldSize, newSize - 1);
+        } else if (oldSize > newSize) {
+            fireIntervalRemoved(this, newSize, oldSize - 1);
+        }
+    }
+
+    public Task set(int index, Task task) {
+        Task previous = getElementAt(index);
+        tasks[index] = task;
+        taskIndex.removed(1);
+        taskIndex.added(task, index);
+        if (editListener != null) {
+            editListener.tasksRemoved(new int[] {index}, List.of(previous));
+            editListener.tasksInserted(new int[] {index}, List.of(task));
+        }
+        fireContentsChanged(this, index, index);
+        return previous;
+    }
+
+    @Override
+    public void setCompleted(int[] indices, boolean completed) {
+        checkAscending(indices, size);
+        if (indices.length == 0) {
+            return;
+        }
+        for (int index : indices) {
+            tasks[index].setCompleted(completed);
+        }
+        if (editListener != null) {
+            editListener.completedChanged(indices, completed);
+        }
+        fireContentsChanged(this, indices[0], indices[indices.length - 1]);
+    }
+
+    @Override
+    public void setDue(int[] indices, long due) {
+        checkAscending(indices, size);
+        if (indices.length == 0) {
+            return;
+        }
+        for (int index : indices) {
+            tasks[index].setDue(due);
+        }
+        if (editListener != null) {
+            editListener.tasksChanged(indices);
+        }
+        fireContentsChanged(this, indices[0], indices[indices.length - 1]);
+    }
+
+    @Override
+    public void forEachPendingDue(DueVisitor visitor) {
+        for (int i = 0; i < size; i++) {
+            Task task = tasks[i];
+            if (task.hasDue() && !task.isCompleted()) {
+                visitor.visit(i, task.getId(), task.getDue());
+            }
+        }
+    }
+
+    public void taskChanged(int index) {
+        tasksChanged(index, index);
+    }
+
+    public void tasksChanged(int fromIndex, int toIndex) {
+        checkIndex(fromIndex, size);
+        checkIndex(toIndex, size);
+        if (editListener != null && fromIndex <= toIndex) {
+            editListener.tasksChanged(range(fromIndex, toIndex - fromIndex + 1));
+        }
+        fireContentsChanged(this, fromIndex, toIndex);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > tasks.length) {
+            tasks = Arrays.copyOf(tasks, Math.max(capacity, tasks.length + (tasks.length >> 1)));
+        }
+    }
+
+    private static int[] range(int from, int count) {
+        int[] indices = new int[count];
+        for (int i = 0; i < count; i++) {
+            indices[i] = from + i;
+        }
+        return indices;
+    }
+
+    static void checkAscending(int[] indices, int size) {
+        for (int i = 0; i < indices.length; i++) {
+            checkIndex(indices[i], size);
+            if (i > 0 && indices[i] <= indices[i - 1]) {
+                throw new IllegalArgumentException("Indices must be ascending");
+            }
+        }
+    }
+
+    private static void checkIndex(int index, int bound) {
+        if (index < 0 || index >= bound) {
+            throw new ArrayIndexOutOfBoundsException(index + " >= " + bound);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package todo;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+// Counts and latency histograms for the operations users wait on. Recording
+// is a few arithmetic operations under a lock, cheap enough for the EDT.
+// The stats are published as MXBeans and can be appended to a text file
+// when the application exits.
+class TaskMetrics {
+    static final OperationStats SAVE = new OperationStats("save");
+    static final OperationStats LOAD = new OperationStats("load");
+    static final OperationStats MASS_DELETE = new OperationStats("massDelete");
+    static final OperationStats MASS_DELETE_ARCHIVE = new OperationStats("massDeleteArchive");
+    static final OperationStats APPLY_THEME = new OperationStats("applyTheme");
+    static final OperationStats IMPORT = new OperationStats("import");
+    // Events that held up the EDT past the EdtWatchdog threshold
+    static final OperationStats EDT_STALL = new OperationStats("edtStall");
+    // From the start of the JVM to the window's first paint
+    static final OperationStats FIRST_PAINT = new OperationStats("firstPaint");
+
+    private static final List<OperationStats> ALL = List.of(SAVE, LOAD, MASS_DELETE, MASS_DELETE_ARCHIVE, APPLY_THEME,
+                                                            IMPORT, EDT_STALL, FIRST_PAINT);
+
+    private static volatile File dumpFile;
+    private static boolean dumpHookInstalled;
+
+    private TaskMetrics() {
+    }
+
+    // Loads the JMX classes, so it is called off the startup path
+    static void registerMBeans() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (OperationStats stats : ALL) {
+            try {
+                server.registerMBean(stats, new ObjectName("todo:type=Operation,name=" + stats.getName()));
+            } catch (JMException e) {
+                // Already registered, or JMX is unavailable; the stats still work
+            }
+        }
+    }
+
+    // The file the stats are appended to on exit, or null for none
+    static synchronized void setDumpFile(File file) {
+        dumpFile = file;
+        if (file != null && !dumpHookInstalled) {
+            dumpHookInstalled = true;
+            Runtime.getRuntime().addShutdownHook(new Thread(TaskMetrics::dump, "task-metrics-dump"));
+        }
+    }
+
+    private static void dump() {
+        File file = dumpFile;
+        if (file == null) {
+            return;
+        }
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file, true))) {
+            writer.write("# " + new Date());
+            writer.newLine();
+            for (OperationStats stats : ALL) {
+                writer.write(stats.toString());
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            // Nobody left to tell
+        }
+    }
+
+    // One operation's stats. Latencies go into log-linear buckets of
+    // microseconds: exact below 16, then 8 buckets per power of two.
+    static class OperationStats implements OperationMetricsMXBean {
+        private static final int EXACT = 16;
+        private static final int SUB_BUCKETS = 8;
+        private static final int BUCKETS = EXACT + (64 - 4) * SUB_BUCKETS;
+
+        private final String name;
+        private final long[] buckets = new long[BUCKETS];
+        private long count;
+        private long totalMicros;
+        private long maxMicros;
+        private long bytesWritten;
+        private long tasks;
+
+        OperationStats(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public synchronized void record(long nanos, long bytes, long taskCount) {
+            long micros = Math.max(0, nanos / 1000);
+            buckets[bucket(micros)]++;
+            count++;
+            totalMicros += micros;
+            maxMicros = Math.max(maxMicros, micros);
+            bytesWritten += bytes;
+            tasks += taskCount;
+        }
+
+        // Records the time since start, a System.nanoTime() value
+        public void recordSince(long start, long bytes, long taskCount) {
+            record(System.nanoTime() - start, bytes, taskCount);
+        }
+
+        @Override
+        public synchronized long getCount() {
+            return count;
+        }
+
+        @Override
+        public synchronized double getMeanMillis() {
+            return count == 0 ? 0 : totalMicros / 1000.0 / count;
+        }
+
+        @Override
+        public double getP50Millis() {
+            return percentileMillis(0.50);
+        }
+
+        @Override
+        public double getP99Millis() {
+            return percentileMillis(0.99);
+        }
+
+        @Override
+        public synchronized double getMaxMillis() {
+            return maxMicros / 1000.0;
+        }
+
+        @Override
+        public synchronized long getBytesWritten() {
+            return bytesWritten;
+        }
+
+        @Override
+        public synchronized long getTasks() {
+            return tasks;
+        }
+
+        @Override
+        public synchronized void reset() {
+            Arrays.fill(buckets, 0);
+            count = 0;
+            totalMicros = 0;
+            maxMicros = 0;
+            bytesWritten = 0;
+            tasks = 0;
+        }
+
+        // The upper bound of the bucket holding the percentile, capped at
+        // the largest value actually seen
+        private synchronized double percentileMillis(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(percentile * count);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    return Math.min(upperBound(i), maxMicros) / 1000.0;
+                }
+            }
+            return maxMicros / 1000.0;
+        }
+
+        private static int bucket(long micros) {
+            if (micros < EXACT) {
+                return (int) micros;
+            }
+            int octave = 63 - Long.numberOfLeadingZeros(micros);
+            int sub = (int) (micros >>> (octave - 3)) & (SUB_BUCKETS - 1);
+            return EXACT + (octave - 4) * SUB_BUCKETS + sub;
+        }
+
+        private static long upperBound(int bucket) {
+            if (bucket < EXACT) {
+                return bucket;
+            }
+            int octave = (bucket - EXACT) / SUB_BUCKETS + 4;
+            int sub = (bucket - EXACT) % SUB_BUCKETS;
+            return ((long) (SUB_BUCKETS + sub + 1) << (octave - 3)) - 1;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return String.format(Locale.ROOT, "%s count=%d mean_ms=%.3f p50_ms=%.3f p99_ms=%.3f max_ms=%.3f bytes=%d tasks=%d",
+                                 name, count, getMeanMillis(), getP50Millis(), getP99Millis(), getMaxMillis(),
+                                 bytesWritten, tasks);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package todo;
+
+import javax.swing.ListModel;
+import java.util.Collection;
+import java.util.List;
+
+// Operations TodoListFrame performs on the task list, implemented by the
+// in-memory TaskListModel and ColumnarTaskListModel and the disk-backed
+// PagedTaskListModel
+interface TaskModel extends ListModel<Task> {
+    // Told exactly which rows an edit touched, unlike the list events,
+    // which may cover more rows than changed. Called after the model is
+    // updated and before the list events fire.
+    interface EditListener {
+        // indices are ascending positions after the insert
+        void tasksInserted(int[] indices, List<Task> tasks);
+
+        // indices are ascending positions before the removal
+        void tasksRemoved(int[] indices, List<Task> tasks);
+
+        void completedChanged(int[] indices, boolean completed);
+
+        // Something other than the description or completed flag changed
+        void tasksChanged(int[] indices);
+
+        // The whole list was replaced or cleared
+        void tasksReplaced();
+    }
+
+    boolean isEmpty();
+
+    void add(Task task);
+
+    void addAll(int index, Collection<? extends Task> tasks);
+
+    default void addAll(Collection<? extends Task> tasks) {
+        addAll(getSize(), tasks);
+    }
+
+    Task remove(int index);
+
+    // Removes the tasks at the given indices, which must be ascending, and
+    // returns them in that order. Listeners get one event for a contiguous
+    // selection, otherwise a change event for the rows that moved up plus
+    // one for the rows dropped off the end.
+    List<Task> removeAll(int[] indices);
+
+    // The inverse of removeAll: inserts the tasks so that they end up at the
+    // given ascending indices, with the same events removeAll would fire
+    void insertAll(int[] indices, List<Task> tasks);
+
+    // Id of the task at index, without building a Task where the model
+    // can avoid it
+    long getIdAt(int index);
+
+    // Lookups by id and by text; the model keeps it told of its edits
+    TaskIndex getIndex();
+
+    // Position of the task with the given task's id, or -1
+    default int indexOf(Task task) {
+        return getIndex().indexOfId(task.getId());
+    }
+
+    void clear();
+
+    void replaceAll(Collection<? extends Task> tasks);
+
+    // Sets the completed flag of the tasks at the given ascending indices,
+    // with one change event spanning them
+    void setCompleted(int[] indices, boolean completed);
+
+    // Sets the due time (epoch milliseconds, 0 for none) of the tasks at the
+    // given ascending indices, with one change event spanning them
+    void setDue(int[] indices, long due);
+
+    interface DueVisitor {
+        void visit(int index, long id, long due);
+    }
+
+    // Calls the visitor with every pending task that has a due time, in
+    // list order, without building Task objects where the model can avoid it
+    void forEachPendingDue(DueVisitor visitor);
+
+    // True if edits are written to disk by the model itself, so they must
+    // not also go through the journal
+    default boolean isWriteThrough() {
+        return false;
+    }
+
+    // False if the list is too large to keep a search index or views for
+    default boolean isSearchable() {
+        return !isWriteThrough();
+    }
+
+    // Only searchable models report their edits
+    void setEditListener(EditListener listener);
+}
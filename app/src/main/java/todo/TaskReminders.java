@@ -0,0 +1,268 @@
+package todo;
+
+import javax.swing.SwingUtilities;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+// Fires reminders for due tasks from a hierarchical timing wheel on its own
+// thread, so the lists are never polled. Time is counted in ticks of
+// TICK_MILLIS. The wheel has LEVELS levels of SLOTS slots; a slot on level
+// L covers SLOTS^L ticks, so level 0 holds the reminders due in the next
+// SLOTS ticks, level 1 those due within SLOTS^2 ticks, and so on. Whenever
+// the ticks on level 0 wrap around, the next slot of level 1 is poured
+// down into the levels below it (and likewise further up), so each
+// reminder moves at most once per level.
+//
+// Every slot is a doubly linked list and every reminder is found by its
+// list and task id through a hash map, so scheduling, cancelling and
+// firing a reminder are all O(1). The thread sleeps until the next tick
+// with something in its slot or the next cascade, so reminders far off
+// cost at most one wake-up a minute. The reminders that come due in one
+// pass are handed to the listener in one batch, on the EDT. All the public
+// methods may be called from any thread.
+class TaskReminders {
+    static final long TICK_MILLIS = 1000;
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    // 64^6 seconds is over 2,000 years; anything later waits in the top
+    // level and is placed again each time it comes round
+    private static final int LEVELS = 6;
+    private static final long MAX_DELTA = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+    // A scheduled reminder; also its own link in a slot's list
+    static final class Reminder {
+        private final Object owner;
+        private final long id;
+        private final long due;
+        private final long tick;
+        private Reminder previous;
+        private Reminder next;
+
+        private Reminder(Object owner, long id, long due) {
+            this.owner = owner;
+            this.id = id;
+            this.due = due;
+            this.tick = (due + TICK_MILLIS - 1) / TICK_MILLIS;
+        }
+
+        // Whatever the reminder was scheduled for, the open list for the window
+        public Object getOwner() {
+            return owner;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public long getDue() {
+            return due;
+        }
+
+        private void unlink() {
+            previous.next = next;
+            next.previous = previous;
+            previous = null;
+            next = null;
+        }
+    }
+
+    private final Consumer<List<Reminder>> listener;
+    // Epoch milliseconds
+    private final LongSupplier clock;
+    // Slot heads: empty reminders whose lists are circular
+    private final Reminder[][] wheel = new Reminder[LEVELS][SLOTS];
+    private final Map<Object, Map<Long, Reminder>> scheduled = new HashMap<>();
+    // The next tick to be processed
+    private long currentTick;
+    private int count;
+    private boolean closed;
+
+    // listener is called on the EDT with the reminders that came due
+    public TaskReminders(Consumer<List<Reminder>> listener) {
+        this(listener, System::currentTimeMillis);
+        Thread thread = new Thread(this::run, "task-reminders");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // A wheel on the given clock with no thread of its own; nothing fires
+    // until poll() is called
+    TaskReminders(Consumer<List<Reminder>> listener, LongSupplier clock) {
+        this.listener = listener;
+        this.clock = clock;
+        for (Reminder[] level : wheel) {
+            for (int i = 0; i < SLOTS; i++) {
+                Reminder head = new Reminder(null, 0, 0);
+                head.previous = head;
+                head.next = head;
+                level[i] = head;
+            }
+        }
+        currentTick = clock.getAsLong() / TICK_MILLIS;
+    }
+
+    // Schedules a reminder at due (epoch milliseconds) for the task, in
+    // place of any it already had. One that is already past fires at once.
+    public synchronized void schedule(Object owner, long id, long due) {
+        cancel(owner, id);
+        if (count == 0) {
+            // Nothing to carry over, so the wheel can skip the idle time
+            currentTick = Math.max(currentTick, clock.getAsLong() / TICK_MILLIS);
+        }
+        Reminder reminder = new Reminder(owner, id, due);
+        scheduled.computeIfAbsent(owner, key -> new HashMap<>()).put(id, reminder);
+        place(reminder);
+        count++;
+        // It may be due before the thread means to wake up
+        notifyAll();
+    }
+
+    public synchronized void cancel(Object owner, long id) {
+        Map<Long, Reminder> reminders = scheduled.get(owner);
+        Reminder reminder = reminders != null ? reminders.remove(id) : null;
+        if (reminder != null) {
+            reminder.unlink();
+            count--;
+            if (reminders.isEmpty()) {
+                scheduled.remove(owner);
+            }
+        }
+    }
+
+    // Cancels every reminder scheduled for owner
+    public synchronized void cancelAll(Object owner) {
+        Map<Long, Reminder> reminders = scheduled.remove(owner);
+        if (reminders != null) {
+            for (Reminder reminder : reminders.values()) {
+                reminder.unlink();
+            }
+            count -= reminders.size();
+        }
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    public synchronized void close() {
+        closed = true;
+        notifyAll();
+    }
+
+    private void run() {
+        synchronized (this) {
+            while (!closed) {
+                long now = clock.getAsLong();
+                List<Reminder> due = poll(now);
+                if (!due.isEmpty()) {
+                    SwingUtilities.invokeLater(() -> listener.accept(due));
+                }
+                try {
+                    if (count == 0) {
+                        wait();
+                    } else {
+                        wait(Math.max(1, nextBusyTick() * TICK_MILLIS - now));
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // Takes out the reminders that have come due by the clock, in the
+    // order they fire
+    synchronized List<Reminder> poll() {
+        return poll(clock.getAsLong());
+    }
+
+    private List<Reminder> poll(long now) {
+        long nowTick = now / TICK_MILLIS;
+        List<Reminder> due = new ArrayList<>();
+        while (count > 0 && currentTick <= nowTick) {
+            advance(due);
+        }
+        if (count == 0) {
+            currentTick = Math.max(currentTick, nowTick + 1);
+        }
+        return due;
+    }
+
+    // Processes currentTick: cascades the higher levels when level 0 wraps,
+    // then fires everything in the tick's slot
+    private void advance(List<Reminder> due) {
+        for (int level = 1; level < LEVELS; level++) {
+            if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) != 0) {
+                break;
+            }
+            cascade(level, (int) (currentTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+        }
+        Reminder head = wheel[0][(int) currentTick & SLOT_MASK];
+        while (head.next != head) {
+            Reminder reminder = head.next;
+            reminder.unlink();
+            Map<Long, Reminder> reminders = scheduled.get(reminder.owner);
+            reminders.remove(reminder.id);
+            if (reminders.isEmpty()) {
+                scheduled.remove(reminder.owner);
+            }
+            count--;
+            due.add(reminder);
+        }
+        currentTick++;
+    }
+
+    // The first tick from currentTick on with work to do: a reminder in its
+    // level 0 slot, or a cascade
+    private long nextBusyTick() {
+        if ((currentTick & SLOT_MASK) == 0) {
+            return currentTick;
+        }
+        long cascade = (currentTick | SLOT_MASK) + 1;
+        for (long tick = currentTick; tick < cascade; tick++) {
+            Reminder head = wheel[0][(int) tick & SLOT_MASK];
+            if (head.next != head) {
+                return tick;
+            }
+        }
+        return cascade;
+    }
+
+    private void cascade(int level, int slot) {
+        Reminder head = wheel[level][slot];
+        while (head.next != head) {
+            Reminder reminder = head.next;
+            reminder.unlink();
+            place(reminder);
+        }
+    }
+
+    // Files the reminder on the lowest level whose span reaches its tick.
+    // An overdue one goes in the slot about to be processed.
+    private void place(Reminder reminder) {
+        long delta = reminder.tick - currentTick;
+        long tick = reminder.tick;
+        int level = 0;
+        if (delta < 0) {
+            tick = currentTick;
+        } else if (delta > MAX_DELTA) {
+            tick = currentTick + MAX_DELTA;
+            level = LEVELS - 1;
+        } else {
+            while (delta >= 1L << (SLOT_BITS * (level + 1))) {
+                level++;
+            }
+        }
+        Reminder head = wheel[level][(int) (tick >>> (SLOT_BITS * level)) & SLOT_MASK];
+        reminder.previous = head.previous;
+        reminder.next = head;
+        head.previous.next = reminder;
+        head.previous = reminder;
+    }
+}
@@ -0,0 +1,239 @@
+package todo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+// In-memory inverted index from description words to task ids, kept up to
+// date as tasks are added and removed so a search never scans the list.
+//
+// Every query term is treated as a prefix. Terms up to MAX_PREFIX_LENGTH
+// characters are answered from a posting list kept for that exact prefix;
+// longer terms union the postings of the (few) words that start with them.
+class TaskSearchIndex {
+    static final int MAX_PREFIX_LENGTH = 3;
+
+    private final TreeMap<String, Postings> words = new TreeMap<>();
+    private final Map<String, Postings> shortPrefixes = new HashMap<>();
+    private long maxId;
+
+    // Only ids are kept, so adding a task twice changes nothing
+    public void add(Task task) {
+        Set<String> taskWords = tokenize(task.getDescription());
+        for (String word : taskWords) {
+            words.computeIfAbsent(word, w -> new Postings()).add(task.getId());
+        }
+        for (String prefix : shortPrefixes(taskWords)) {
+            shortPrefixes.computeIfAbsent(prefix, p -> new Postings()).add(task.getId());
+        }
+        maxId = Math.max(maxId, task.getId());
+    }
+
+    public void addAll(Collection<? extends Task> tasks) {
+        for (Task task : tasks) {
+            add(task);
+        }
+    }
+
+    public void remove(Task task) {
+        Set<String> taskWords = tokenize(task.getDescription());
+        for (String word : taskWords) {
+            removePosting(words, word, task.getId());
+        }
+        for (String prefix : shortPrefixes(taskWords)) {
+            removePosting(shortPrefixes, prefix, task.getId());
+        }
+    }
+
+    public void clear() {
+        words.clear();
+        shortPrefixes.clear();
+        maxId = 0;
+    }
+
+    // Ids of the tasks matching every term of the query, in ascending order
+    public long[] search(String query) {
+        List<long[]> matches = new ArrayList<>();
+        for (String term : tokenize(query)) {
+            matches.add(matchPrefix(term));
+        }
+        if (matches.isEmpty()) {
+            return new long[0];
+        }
+
+        // Intersect starting from the most selective term
+        matches.sort(Comparator.comparingInt(ids -> ids.length));
+        long[] result = matches.get(0);
+        for (int i = 1; i < matches.size() && result.length > 0; i++) {
+            result = intersect(result, matches.get(i));
+        }
+        return result;
+    }
+
+    private long[] matchPrefix(String term) {
+        if (term.length() <= MAX_PREFIX_LENGTH) {
+            Postings postings = shortPrefixes.get(term);
+            return postings == null ? new long[0] : postings.toArray();
+        }
+
+        Collection<Postings> matching = words.subMap(term, term + Character.MAX_VALUE).values();
+        if (matching.size() == 1) {
+            return matching.iterator().next().toArray();
+        }
+        if (maxId < Integer.MAX_VALUE) {
+            // Merging many posting lists through a bit per id beats sorting
+            BitSet union = new BitSet((int) maxId + 1);
+            for (Postings postings : matching) {
+                for (int i = 0; i < postings.size; i++) {
+                    union.set((int) postings.ids[i]);
+                }
+            }
+            long[] ids = new long[union.cardinality()];
+            int n = 0;
+            for (int id = union.nextSetBit(0); id >= 0; id = union.nextSetBit(id + 1)) {
+                ids[n++] = id;
+            }
+            return ids;
+        }
+
+        int total = 0;
+        for (Postings postings : matching) {
+            total += postings.size;
+        }
+        long[] union = new long[total];
+        int n = 0;
+        for (Postings postings : matching) {
+            System.arraycopy(postings.ids, 0, union, n, postings.size);
+            n += postings.size;
+        }
+        Arrays.sort(union);
+        return dedupe(union);
+    }
+
+    private static void removePosting(Map<String, Postings> map, String key, long id) {
+        Postings postings = map.get(key);
+        if (postings != null) {
+            postings.remove(id);
+            if (postings.size == 0) {
+                map.remove(key);
+            }
+        }
+    }
+
+    // Lower-cased runs of letters and digits
+    static Set<String> tokenize(String text) {
+        Set<String> tokens = new HashSet<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase());
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static Set<String> shortPrefixes(Set<String> words) {
+        Set<String> prefixes = new HashSet<>();
+        for (String word : words) {
+            for (int length = 1; length <= Math.min(MAX_PREFIX_LENGTH, word.length()); length++) {
+                prefixes.add(word.substring(0, length));
+            }
+        }
+        return prefixes;
+    }
+
+    // Both arrays are sorted and small is the shorter one. When large is much
+    // longer, each id of small is found by binary search in what is left of
+    // large; otherwise a plain merge is cheaper.
+    private static long[] intersect(long[] small, long[] large) {
+        long[] result = new long[small.length];
+        int n = 0;
+        if (large.length / 16 > small.length) {
+            int from = 0;
+            for (long id : small) {
+                int position = Arrays.binarySearch(large, from, large.length, id);
+                if (position >= 0) {
+                    result[n++] = id;
+                    from = position + 1;
+                } else {
+                    from = -position - 1;
+                }
+                if (from == large.length) {
+                    break;
+                }
+            }
+        } else {
+            int i = 0;
+            int j = 0;
+            while (i < small.length && j < large.length) {
+                if (small[i] < large[j]) {
+                    i++;
+                } else if (small[i] > large[j]) {
+                    j++;
+                } else {
+                    result[n++] = small[i];
+                    i++;
+                    j++;
+                }
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    private static long[] dedupe(long[] sorted) {
+        int n = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (n == 0 || sorted[i] != sorted[n - 1]) {
+                sorted[n++] = sorted[i];
+            }
+        }
+        return n == sorted.length ? sorted : Arrays.copyOf(sorted, n);
+    }
+
+    // Sorted set of task ids. New tasks get increasing ids, so adds are
+    // almost always appends.
+    private static class Postings {
+        private long[] ids = new long[2];
+        private int size;
+
+        void add(long id) {
+            int position = size > 0 && ids[size - 1] < id ? size : Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0 && position < size) {
+                return; // already present
+            }
+            if (position < 0) {
+                position = -position - 1;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            ids[position] = id;
+            size++;
+        }
+
+        void remove(long id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0) {
+                System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+                size--;
+            }
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package todo;
+
+import javax.swing.AbstractListModel;
+
+// Read-only view of the tasks matching the current search. It holds only
+// the matching ids and resolves each visible row through the list model's
+// id index.
+class TaskSearchModel extends AbstractListModel<Task> {
+    private TaskModel model;
+    private long[] ids = new long[0];
+
+    public TaskSearchModel(TaskModel model) {
+        this.model = model;
+    }
+
+    // The matches are cleared along with the index when the model changes
+    public void setModel(TaskModel model) {
+        this.model = model;
+    }
+
+    public void setMatches(long[] matches) {
+        int oldSize = ids.length;
+        ids = matches;
+
+        int common = Math.min(oldSize, ids.length);
+        if (common > 0) {
+            fireContentsChanged(this, 0, common - 1);
+        }
+        if (ids.length > oldSize) {
+            fireIntervalAdded(this, oldSize, ids.length - 1);
+        } else if (oldSize > ids.length) {
+            fireIntervalRemoved(this, ids.length, oldSize - 1);
+        }
+    }
+
+    @Override
+    public int getSize() {
+        return ids.length;
+    }
+
+    @Override
+    public Task getElementAt(int i) {
+        return model.getElementAt(model.getIndex().indexOfId(ids[i]));
+    }
+
+    public long getIdAt(int i) {
+        return ids[i];
+    }
+}
@@ -0,0 +1,381 @@
+package todo;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+
+// The task files on disk: the binary snapshot, the journal of edits made
+// since, and the legacy text file it may have to be migrated from. All
+// methods block; the GUI calls them through PersistenceWorker, the command
+// line calls them directly. Nothing here touches AWT or Swing.
+//
+// Several processes may use the same files (the window and the command
+// line, or two windows). Each holds lock() while it reads or writes them.
+// The lock file also records ids a window has handed out but may not have
+// journaled yet, so nextId() never gives them out again.
+//
+// A window that pages the list maps the snapshot and edits it in place, so
+// nobody else may write it meanwhile: the window also locks a second file
+// for as long as the list is paged, and lock() in any other process fails
+// at once while it is held. It has to be a file of its own, since closing
+// any channel on a file drops every lock the process holds on it.
+//
+// Each snapshot write keeps the one before as a backup. A snapshot that
+// fails its checksum is moved aside and the backup is read instead; the
+// edits saved between the two are lost, but the journal still applies on
+// top.
+class TaskStore {
+    static final String SNAPSHOT_FILE = "tasks.dat";
+    static final String LEGACY_FILE = "tasks.txt";
+    static final String JOURNAL_FILE = "tasks.journal";
+
+    // The list kept in the files above; every other named list has its own
+    // files in LISTS_DIRECTORY
+    static final String DEFAULT_LIST = "Default";
+    static final String LISTS_DIRECTORY = "lists";
+    static final int MAX_LIST_NAME_LENGTH = 64;
+
+    // Stores with at least this many tasks are paged from disk instead of
+    // being loaded onto the heap
+    static final int PAGED_LOAD_THRESHOLD = 250_000;
+    // Smaller stores with at least this many tasks are loaded into a
+    // ColumnarTaskListModel rather than one object per task
+    static final int COLUMNAR_LOAD_THRESHOLD = 100_000;
+
+    private final File snapshotFile;
+    private final File legacyFile;
+    private final File lockFile;
+    private final File pagingLockFile;
+    private final TaskJournal journal;
+    // Open while this process holds the lock
+    private FileChannel lockChannel;
+    // Held while this process pages the list
+    private FileChannel pagingChannel;
+    // fileState() of the snapshot when it last passed its checksum
+    private long[] verifiedState;
+
+    public TaskStore(File snapshotFile, File legacyFile, TaskJournal journal) {
+        this.snapshotFile = snapshotFile;
+        this.legacyFile = legacyFile;
+        this.journal = journal;
+        String path = snapshotFile.getPath();
+        String base = path.endsWith(".dat") ? path.substring(0, path.length() - 4) : path;
+        this.lockFile = new File(base + ".lock");
+        this.pagingLockFile = new File(base + ".paged");
+    }
+
+    // The store in the working directory, shared by the GUI and command line
+    public static TaskStore openDefault() {
+        return new TaskStore(new File(SNAPSHOT_FILE), new File(LEGACY_FILE), new TaskJournal(JOURNAL_FILE));
+    }
+
+    public static TaskStore openList(String name) {
+        if (name.equals(DEFAULT_LIST)) {
+            return openDefault();
+        }
+        File directory = new File(LISTS_DIRECTORY);
+        return new TaskStore(new File(directory, name + ".dat"), new File(directory, name + ".txt"),
+                             new TaskJournal(new File(directory, name + ".journal").getPath()));
+    }
+
+    // Every list that exists, the default one first. Only the directory is
+    // read, so this costs the same however large the lists are.
+    public static List<String> listNames() {
+        List<String> names = new ArrayList<>();
+        String[] files = new File(LISTS_DIRECTORY).list((dir, file) -> file.endsWith(".dat"));
+        if (files != null) {
+            for (String file : files) {
+                String name = file.substring(0, file.length() - ".dat".length());
+                if (isValidListName(name)) {
+                    names.add(name);
+                }
+            }
+        }
+        names.sort(String.CASE_INSENSITIVE_ORDER);
+        names.add(0, DEFAULT_LIST);
+        return names;
+    }
+
+    // List names double as file names, so they are kept to characters that
+    // are safe on every file system
+    public static boolean isValidListName(String name) {
+        if (name.isEmpty() || name.length() > MAX_LIST_NAME_LENGTH || name.equalsIgnoreCase(DEFAULT_LIST)
+                || name.startsWith(" ") || name.endsWith(" ")) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != ' ' && c != '-' && c != '_') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public File getSnapshotFile() {
+        return snapshotFile;
+    }
+
+    public TaskJournal getJournal() {
+        return journal;
+    }
+
+    // Takes the advisory lock on this store's files, waiting for any other
+    // process that holds it, and fails if another process pages the list.
+    // Closing the result releases it. Not reentrant: one thread per process
+    // works on a store.
+    public Closeable lock() throws IOException {
+        File directory = lockFile.getAbsoluteFile().getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+        FileChannel channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                               StandardOpenOption.WRITE);
+        try {
+            channel.lock();
+            if (pagingChannel == null && isPagedElsewhere()) {
+                throw new IOException(snapshotFile.getName() + " is open in another window;"
+                                      + " switch that window to another list first");
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        lockChannel = channel;
+        // Closing the channel releases the lock
+        return () -> {
+            lockChannel = null;
+            channel.close();
+        };
+    }
+
+    // Marks the list as paged by this process until releasePaging(), so
+    // other processes keep off the snapshot. Needs the lock.
+    public void holdForPaging() throws IOException {
+        if (lockChannel == null) {
+            throw new IllegalStateException("The store is not locked");
+        }
+        if (pagingChannel != null) {
+            return;
+        }
+        FileChannel channel = FileChannel.open(pagingLockFile.toPath(), StandardOpenOption.CREATE,
+                                               StandardOpenOption.WRITE);
+        try {
+            channel.lock();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        pagingChannel = channel;
+    }
+
+    public void releasePaging() throws IOException {
+        if (pagingChannel != null) {
+            pagingChannel.close();
+            pagingChannel = null;
+        }
+    }
+
+    private boolean isPagedElsewhere() throws IOException {
+        if (!pagingLockFile.exists()) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(pagingLockFile.toPath(), StandardOpenOption.WRITE)) {
+            return channel.tryLock() == null;
+        } catch (OverlappingFileLockException e) {
+            // Another store object in this process pages the list
+            return true;
+        }
+    }
+
+    // Keeps nextId() in every process at or above upTo. Needs the lock.
+    public void reserveIds(long upTo) throws IOException {
+        if (lockChannel == null) {
+            throw new IllegalStateException("The store is not locked");
+        }
+        if (upTo > reservedIds()) {
+            lockChannel.write(ByteBuffer.allocate(Long.BYTES).putLong(0, upTo), 0);
+        }
+    }
+
+    // 0 unless the lock is held
+    private long reservedIds() throws IOException {
+        if (lockChannel == null) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+        lockChannel.read(buffer, 0);
+        return buffer.position() == Long.BYTES ? buffer.getLong(0) : 0;
+    }
+
+    // Size and modification time of the snapshot and the journal. Any write
+    // to the store changes it, so comparing it with the state after this
+    // process's own last write tells whether another process has been at
+    // the files.
+    public long[] fileState() {
+        File journalFile = journal.getFile();
+        return new long[] {snapshotFile.length(), snapshotFile.lastModified(),
+                           journalFile.length(), journalFile.lastModified()};
+    }
+
+    // Streams the snapshot through the journal, in list order
+    public void load(Consumer<Task> sink, DoubleConsumer progress) throws IOException {
+        prepareSnapshot();
+        verifySnapshot();
+        TaskJournal.Replay replay = journal.readReplay();
+        if (snapshotFile.exists()) {
+            TaskStoreFile.stream(snapshotFile, task -> {
+                if (replay.apply(task)) {
+                    sink.accept(task);
+                }
+            }, progress);
+        }
+        for (Task task : replay.addedTasks()) {
+            sink.accept(task);
+        }
+    }
+
+    public List<Task> loadAll() throws IOException {
+        List<Task> tasks = new ArrayList<>();
+        load(tasks::add, progress -> { });
+        return tasks;
+    }
+
+    // Writes a full snapshot and drops the journal records it now contains.
+    // tasks must include every record still buffered in the journal: they
+    // are dropped unwritten, so the snapshot is the only file forced.
+    public void saveSnapshot(List<Task> tasks) throws IOException {
+        File directory = snapshotFile.getAbsoluteFile().getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+        TaskStoreFile.write(snapshotFile, tasks, snapshotNextId());
+        journal.reset();
+    }
+
+    // Smallest id no task has used and no window has reserved, found from
+    // the snapshot header, the journal and the lock file without reading
+    // the whole list
+    public long nextId() throws IOException {
+        prepareSnapshot();
+        long nextId = 1;
+        if (snapshotFile.exists()) {
+            try (TaskStoreFile.Reader reader = new TaskStoreFile.Reader(snapshotFile)) {
+                nextId = reader.getNextId();
+            }
+        }
+        return Math.max(Math.max(nextId, journal.readReplay().getMaxId() + 1), reservedIds());
+    }
+
+    // nextId() for a snapshot about to replace the journal, taking the
+    // records not yet flushed into account without flushing them
+    private long snapshotNextId() throws IOException {
+        long nextId = 1;
+        if (snapshotFile.exists()) {
+            try (TaskStoreFile.Reader reader = new TaskStoreFile.Reader(snapshotFile)) {
+                nextId = reader.getNextId();
+            } catch (IOException e) {
+                // Not a task file any more; it is about to be replaced
+            }
+        }
+        return Math.max(Math.max(nextId, journal.getMaxId() + 1), reservedIds());
+    }
+
+    // Paging needs the store file to be complete on its own, so a journal
+    // that still has records keeps the list on the heap until the next
+    // snapshot has been written. A paged list is edited in place, so a
+    // snapshot in an older format is first written out again.
+    public boolean shouldPage() throws IOException {
+        if (!journal.isEmpty() || snapshotSize() < PAGED_LOAD_THRESHOLD) {
+            return false;
+        }
+        verifySnapshot();
+        if (snapshotSize() < PAGED_LOAD_THRESHOLD) {
+            return false;
+        }
+        boolean current;
+        try (TaskStoreFile.Reader reader = new TaskStoreFile.Reader(snapshotFile)) {
+            current = reader.isCurrentVersion();
+        }
+        if (!current) {
+            TaskStoreFile.write(snapshotFile, loadAll(), nextId());
+        }
+        return true;
+    }
+
+    // Number of tasks in the snapshot, read from its header
+    public int snapshotSize() throws IOException {
+        prepareSnapshot();
+        if (!snapshotFile.exists()) {
+            return 0;
+        }
+        try (TaskStoreFile.Reader reader = new TaskStoreFile.Reader(snapshotFile)) {
+            return reader.size();
+        }
+    }
+
+    public void close() throws IOException {
+        journal.close();
+    }
+
+    // Run before the snapshot is read. A snapshot missing next to its
+    // backup means a write was cut off between its two renames, and the
+    // backup is the last snapshot written.
+    private void prepareSnapshot() throws IOException {
+        File backup = TaskStoreFile.backupFile(snapshotFile);
+        if (!snapshotFile.exists() && backup.exists()) {
+            Files.move(backup.toPath(), snapshotFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        }
+        migrateLegacyFile();
+    }
+
+    // Checks the snapshot against its checksum, once per version of the
+    // file, and falls back to the backup if it fails. The damaged file is
+    // kept as .damaged.
+    private void verifySnapshot() throws IOException {
+        if (!snapshotFile.exists()) {
+            return;
+        }
+        long[] state = {snapshotFile.length(), snapshotFile.lastModified()};
+        if (Arrays.equals(state, verifiedState) || TaskStoreFile.verify(snapshotFile)) {
+            verifiedState = state;
+            return;
+        }
+        File backup = TaskStoreFile.backupFile(snapshotFile);
+        if (!backup.exists() || !TaskStoreFile.verify(backup)) {
+            throw new IOException(snapshotFile + " is damaged and there is no good backup of it");
+        }
+        Files.move(snapshotFile.toPath(), new File(snapshotFile.getPath() + ".damaged").toPath(),
+                   StandardCopyOption.REPLACE_EXISTING);
+        Files.move(backup.toPath(), snapshotFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        DurableFiles.syncDirectory(snapshotFile);
+        verifiedState = new long[] {snapshotFile.length(), snapshotFile.lastModified()};
+    }
+
+    // One-time conversion of a text tasks.txt into the binary store. The
+    // journal still applies on top since task ids are carried over; the
+    // text file is kept next to it as a backup.
+    private void migrateLegacyFile() throws IOException {
+        if (snapshotFile.exists() || !legacyFile.exists()) {
+            return;
+        }
+        List<Task> tasks = new ArrayList<>();
+        LegacyTaskFile.stream(legacyFile, tasks::add, progress -> { });
+        TaskStoreFile.write(snapshotFile, tasks);
+        File backup = new File(legacyFile.getPath() + ".migrated");
+        if (!legacyFile.renameTo(backup)) {
+            throw new IOException("Could not rename " + legacyFile + " to " + backup);
+        }
+    }
+}
@@ -0,0 +1,453 @@
+package todo;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.zip.CRC32C;
+
+// Binary task snapshot (tasks.dat). Layout, all numbers big-endian:
+//
+//   header   magic "TODO", version (short), reserved (short), task count
+//            (int), reserved (int), next free id (long), index offset (long)
+//   records  id (long), flags (byte, bit 0 = completed), due time in epoch
+//            milliseconds or 0 (long), description length (int),
+//            description (UTF-8)
+//   index    one record offset (long) per task, in list order
+//   trailer  magic "CRCC" (int), CRC-32C (int) of the records and index
+//            followed by the header
+//
+// The index makes task N readable without parsing the tasks before it.
+// Version 1 files, whose records have no due time, are still read; they
+// are written as version 2 the next time.
+//
+// The trailer lets a damaged file be told from a good one before it is
+// read. Readers find everything through the index and never look past it,
+// so a file without one (written before checksums, or a paged list that
+// was not closed) still reads; it just cannot be verified.
+class TaskStoreFile {
+    static final int MAGIC = 0x544F444F; // "TODO"
+    static final short VERSION = 2;
+    static final int HEADER_SIZE = 32;
+    static final int RECORD_HEADER_SIZE = 21;
+    static final byte FLAG_COMPLETED = 1;
+
+    // Record field offsets
+    static final int FLAGS_OFFSET = 8;
+    static final int DUE_OFFSET = 9;
+    static final int LENGTH_OFFSET = 17;
+
+    private static final short VERSION_1 = 1;
+    private static final int VERSION_1_RECORD_HEADER_SIZE = 13;
+
+    // Header field offsets
+    static final int COUNT_OFFSET = 8;
+    static final int NEXT_ID_OFFSET = 16;
+    static final int INDEX_OFFSET_OFFSET = 24;
+
+    static final int CHECKSUM_MAGIC = 0x43524343; // "CRCC"
+    static final int TRAILER_SIZE = 8;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private TaskStoreFile() {
+    }
+
+    // The previous snapshot, kept by write() as the one to fall back on
+    static File backupFile(File file) {
+        return new File(file.getPath() + ".bak");
+    }
+
+    // Writes to a temporary file, forces it to disk and renames it over
+    // target, so readers never see a half-written list and a crash leaves
+    // the old one or the new one. The old one is kept as backupFile(target).
+    public static void write(File target, List<Task> tasks) throws IOException {
+        write(target, tasks, 1);
+    }
+
+    // nextId goes into the header unless a task's id is at or above it.
+    // Ids are never handed out twice, so a store passes on the next id it
+    // had, which may be above every task left.
+    public static void write(File target, List<Task> tasks, long nextId) throws IOException {
+        File tempFile = DurableFiles.tempFile(target);
+        long[] offsets = new long[tasks.size()];
+        CRC32C checksum = new CRC32C();
+
+        try (FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            long position = HEADER_SIZE;
+            channel.position(HEADER_SIZE);
+
+            for (int i = 0; i < tasks.size(); i++) {
+                Task task = tasks.get(i);
+                byte[] description = task.getDescription().getBytes(StandardCharsets.UTF_8);
+                int recordSize = RECORD_HEADER_SIZE + description.length;
+                if (buffer.remaining() < recordSize) {
+                    drain(channel, buffer, checksum);
+                    if (buffer.capacity() < recordSize) {
+                        buffer = ByteBuffer.allocate(recordSize);
+                    }
+                }
+                offsets[i] = position;
+                buffer.putLong(task.getId());
+                buffer.put(task.isCompleted() ? FLAG_COMPLETED : 0);
+                buffer.putLong(task.getDue());
+                buffer.putInt(description.length);
+                buffer.put(description);
+                position += recordSize;
+                nextId = Math.max(nextId, task.getId() + 1);
+            }
+
+            long indexOffset = position;
+            for (long offset : offsets) {
+                if (buffer.remaining() < Long.BYTES) {
+                    drain(channel, buffer, checksum);
+                }
+                buffer.putLong(offset);
+            }
+            drain(channel, buffer, checksum);
+
+            buffer.putInt(MAGIC);
+            buffer.putShort(VERSION);
+            buffer.putShort((short) 0);
+            buffer.putInt(tasks.size());
+            buffer.putInt(0);
+            buffer.putLong(nextId);
+            buffer.putLong(indexOffset);
+            buffer.flip();
+            checksum.update(buffer.duplicate());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, buffer.position());
+            }
+            writeTrailer(channel, indexOffset + (long) offsets.length * Long.BYTES, (int) checksum.getValue());
+            channel.force(true);
+        }
+        DurableFiles.replace(tempFile, target, backupFile(target));
+    }
+
+    // Unmaps a mapping now rather than whenever it is garbage collected.
+    // Windows will not truncate, move or replace a file while any part of
+    // it is mapped. Nothing may touch the mapping afterwards; doing so
+    // crashes the JVM. Where the JDK offers no way to do this the mapping
+    // is left to the collector.
+    static void unmap(MappedByteBuffer map) {
+        if (map == null) {
+            return;
+        }
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            invokeCleaner.invoke(field.get(null), map);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Unmapped once collected
+        }
+    }
+
+    // Appends the trailer at end, just past the index
+    static void writeTrailer(FileChannel channel, long end, int checksum) throws IOException {
+        ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE).putInt(CHECKSUM_MAGIC).putInt(checksum);
+        trailer.flip();
+        while (trailer.hasRemaining()) {
+            channel.write(trailer, end + trailer.position());
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer, CRC32C checksum) throws IOException {
+        buffer.flip();
+        checksum.update(buffer.duplicate());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    // Streams every task in list order. Records are located through the
+    // index, so files edited in place by PagedTaskListModel (records out of
+    // order, deleted records left behind) read correctly; for files written
+    // by write() the records are simply read sequentially. progress receives
+    // the fraction of the tasks read so far.
+    public static void stream(File file, Consumer<Task> sink, DoubleConsumer progress) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = readHeader(channel);
+            int count = header.getInt(COUNT_OFFSET);
+            long indexOffset = header.getLong(INDEX_OFFSET_OFFSET);
+            boolean hasDue = header.getShort(4) != VERSION_1;
+            int recordHeaderSize = hasDue ? RECORD_HEADER_SIZE : VERSION_1_RECORD_HEADER_SIZE;
+
+            ByteBuffer index = ByteBuffer.allocate(BUFFER_SIZE);
+            index.flip();
+            long indexPosition = indexOffset;
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            buffer.flip();
+            // File position just past the last byte in buffer
+            long position = HEADER_SIZE;
+
+            for (int i = 0; i < count; i++) {
+                if (!index.hasRemaining()) {
+                    index.clear();
+                    index.limit((int) Math.min(index.capacity(), (long) (count - i) * Long.BYTES));
+                    while (index.hasRemaining()) {
+                        if (channel.read(index, indexPosition + index.position()) < 0) {
+                            throw new EOFException("Task file ends inside its index");
+                        }
+                    }
+                    indexPosition += index.limit();
+                    index.flip();
+                }
+                long offset = index.getLong();
+                if (offset != position - buffer.remaining()) {
+                    // Not the next record in the file; start reading afresh there
+                    buffer.clear();
+                    buffer.flip();
+                    position = offset;
+                }
+
+                position = fill(channel, buffer, position, recordHeaderSize);
+                long id = buffer.getLong();
+                boolean completed = (buffer.get() & FLAG_COMPLETED) != 0;
+                long due = hasDue ? buffer.getLong() : 0;
+                int length = buffer.getInt();
+                if (length < 0 || length > indexOffset) {
+                    throw new IOException("Corrupt task record " + i + " in " + file);
+                }
+                if (buffer.capacity() < length) {
+                    ByteBuffer larger = ByteBuffer.allocate(length);
+                    larger.put(buffer);
+                    larger.flip();
+                    buffer = larger;
+                }
+                position = fill(channel, buffer, position, length);
+                Task task = new Task(id, decode(buffer, length));
+                task.setCompleted(completed);
+                task.setDue(due);
+                sink.accept(task);
+                progress.accept((double) (i + 1) / count);
+            }
+        }
+    }
+
+    // Makes sure at least needed bytes are buffered, reading more from the
+    // channel if necessary. Returns the new channel read position.
+    private static long fill(FileChannel channel, ByteBuffer buffer, long position, int needed)
+            throws IOException {
+        if (buffer.remaining() >= needed) {
+            return position;
+        }
+        buffer.compact();
+        while (buffer.position() < needed) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("Task file ends mid-record");
+            }
+            position += read;
+        }
+        buffer.flip();
+        return position;
+    }
+
+    private static String decode(ByteBuffer buffer, int length) {
+        String text = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+                                 StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return text;
+    }
+
+    // False if the file is known to be damaged: it is not a task file, it
+    // ends before its index does, or its checksum does not match. A file
+    // without a trailer cannot be checked that way; it passes if every
+    // index entry points at a record that fits between the header and the
+    // index, which catches most of the ways an edit in place can be cut
+    // short (an index moved halfway, records written over the old one).
+    public static boolean verify(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                return false;
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readAt(channel, header, 0);
+            short version = header.getShort(4);
+            int count = header.getInt(COUNT_OFFSET);
+            long indexOffset = header.getLong(INDEX_OFFSET_OFFSET);
+            if (header.getInt(0) != MAGIC || version != VERSION && version != VERSION_1
+                    || count < 0 || indexOffset < HEADER_SIZE) {
+                return false;
+            }
+            long end = indexOffset + (long) count * Long.BYTES;
+            if (size < end) {
+                return false;
+            }
+            if (size >= end + TRAILER_SIZE) {
+                ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE);
+                readAt(channel, trailer, end);
+                if (trailer.getInt(0) == CHECKSUM_MAGIC) {
+                    return checksum(channel, end) == trailer.getInt(4);
+                }
+                // Otherwise slack left behind the index by a paged list
+            }
+            return isWellFormed(channel, count, indexOffset, version != VERSION_1);
+        }
+    }
+
+    private static boolean isWellFormed(FileChannel channel, int count, long indexOffset, boolean hasDue)
+            throws IOException {
+        long end = indexOffset + (long) count * Long.BYTES;
+        if (end > Integer.MAX_VALUE) {
+            return true; // Never edited in place, so never left half-edited
+        }
+        int recordHeaderSize = hasDue ? RECORD_HEADER_SIZE : VERSION_1_RECORD_HEADER_SIZE;
+        MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, end);
+        try {
+            for (int i = 0; i < count; i++) {
+                long offset = map.getLong((int) indexOffset + i * Long.BYTES);
+                if (offset < HEADER_SIZE || offset + recordHeaderSize > indexOffset) {
+                    return false;
+                }
+                int length = map.getInt((int) offset + recordHeaderSize - Integer.BYTES);
+                if (length < 0 || offset + recordHeaderSize + length > indexOffset) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            // The store may be replaced right after it is checked
+            unmap(map);
+        }
+    }
+
+    // CRC-32C of the records and index (everything up to end) followed by
+    // the header
+    static int checksum(FileChannel channel, long end) throws IOException {
+        CRC32C checksum = new CRC32C();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+        for (long position = HEADER_SIZE; position < end; ) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+            readAt(channel, buffer, position);
+            position += buffer.limit();
+            buffer.flip();
+            checksum.update(buffer);
+        }
+        buffer.clear().limit(HEADER_SIZE);
+        readAt(channel, buffer, 0);
+        buffer.flip();
+        checksum.update(buffer);
+        return (int) checksum.getValue();
+    }
+
+    private static void readAt(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int start = buffer.position();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position() - start) < 0) {
+                throw new EOFException("Task file is shorter than it should be");
+            }
+        }
+    }
+
+    private static ByteBuffer readHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) {
+                throw new EOFException("Task file is shorter than its header");
+            }
+        }
+        if (header.getInt(0) != MAGIC) {
+            throw new IOException("Not a task file");
+        }
+        if (header.getShort(4) != VERSION && header.getShort(4) != VERSION_1) {
+            throw new IOException("Unsupported task file version " + header.getShort(4));
+        }
+        return header;
+    }
+
+    // Random access to individual tasks without loading the whole file
+    static class Reader implements Closeable {
+        private final FileChannel channel;
+        private final int count;
+        private final long nextId;
+        private final long indexOffset;
+        private final short version;
+        private final ByteBuffer scratch = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+
+        Reader(File file) throws IOException {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            try {
+                ByteBuffer header = readHeader(channel);
+                count = header.getInt(COUNT_OFFSET);
+                nextId = header.getLong(NEXT_ID_OFFSET);
+                indexOffset = header.getLong(INDEX_OFFSET_OFFSET);
+                version = header.getShort(4);
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        public int size() {
+            return count;
+        }
+
+        public long getNextId() {
+            return nextId;
+        }
+
+        // Files older than VERSION have to be written out again before
+        // they can be edited in place
+        public boolean isCurrentVersion() {
+            return version == VERSION;
+        }
+
+        // Reads task N with two positioned reads: its index entry, then its record
+        public Task read(int index) throws IOException {
+            if (index < 0 || index >= count) {
+                throw new IndexOutOfBoundsException(index + " >= " + count);
+            }
+            long offset = readFully(indexOffset + (long) index * Long.BYTES, Long.BYTES).getLong(0);
+            boolean hasDue = version != VERSION_1;
+            int recordHeaderSize = hasDue ? RECORD_HEADER_SIZE : VERSION_1_RECORD_HEADER_SIZE;
+            ByteBuffer record = readFully(offset, recordHeaderSize);
+            int length = record.getInt(recordHeaderSize - Integer.BYTES);
+            ByteBuffer description = ByteBuffer.allocate(length);
+            readInto(description, offset + recordHeaderSize);
+            Task task = new Task(record.getLong(0),
+                                           new String(description.array(), StandardCharsets.UTF_8));
+            task.setCompleted((record.get(FLAGS_OFFSET) & FLAG_COMPLETED) != 0);
+            if (hasDue) {
+                task.setDue(record.getLong(DUE_OFFSET));
+            }
+            return task;
+        }
+
+        private ByteBuffer readFully(long position, int length) throws IOException {
+            scratch.clear().limit(length);
+            readInto(scratch, position);
+            return scratch;
+        }
+
+        private void readInto(ByteBuffer buffer, long position) throws IOException {
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position + buffer.position());
+                if (read < 0) {
+                    throw new EOFException("Task file ends mid-record");
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
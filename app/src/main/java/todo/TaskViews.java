@@ -0,0 +1,486 @@
+package todo;
+
+import javax.swing.AbstractListModel;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+// Pending / Completed filters and name order over a searchable TaskModel,
+// kept up to date as the list is edited so that switching views is just
+// showing another model.
+//
+// A node keeps only the id, description and completed flag of its task; the
+// rows themselves are read from the model, so a columnar list still builds
+// its Task objects only for the rows that are shown.
+//
+// Every task has a node in two treaps, one in list order and one in name
+// order, and the two nodes point at each other. Each node counts the nodes
+// and the completed nodes below it, so the k-th pending or completed task
+// in either order, and the row of a node in any view, are found in
+// O(log n). An edit costs O(log n) per task, plus one row event per view
+// it shows up in; edits of more than BULK_EDIT tasks are reported as one
+// change of the whole view instead.
+class TaskViews implements TaskModel.EditListener {
+    static final int BULK_EDIT = 64;
+
+    enum Filter {
+        ALL("All"),
+        PENDING("Pending"),
+        COMPLETED("Completed");
+
+        private final String label;
+
+        Filter(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    // Descriptions never change, so a task keeps its place in name order.
+    // Equal names stay in the order they were added.
+    private static final Comparator<Node> BY_NAME = Comparator.comparing((Node node) -> node.description, String.CASE_INSENSITIVE_ORDER)
+            .thenComparing(node -> node.description)
+            .thenComparingLong(node -> node.id);
+
+    private final TaskModel model;
+    private final Random random = new Random();
+    private final Tree inOrder = new Tree();
+    private final Tree byName = new Tree();
+    // Each filter in list order, then in name order
+    private final View[] views = new View[Filter.values().length * 2];
+
+    public TaskViews(TaskModel model) {
+        this.model = model;
+        for (Filter filter : Filter.values()) {
+            views[filter.ordinal() * 2] = new View(filter, inOrder);
+            views[filter.ordinal() * 2 + 1] = new View(filter, byName);
+        }
+        rebuild();
+        model.setEditListener(this);
+    }
+
+    // All tasks in list order is the list model itself; the view for it is
+    // only here for completeness
+    public View get(Filter filter, boolean sortByName) {
+        return views[filter.ordinal() * 2 + (sortByName ? 1 : 0)];
+    }
+
+    public void detach() {
+        model.setEditListener(null);
+    }
+
+    @Override
+    public void tasksInserted(int[] indices, List<Task> tasks) {
+        boolean bulk = indices.length > BULK_EDIT;
+        int[] oldSizes = bulk ? sizes() : null;
+        for (int i = 0; i < indices.length; i++) {
+            Task task = tasks.get(i);
+            Node node = new Node(task, random.nextInt(Integer.MAX_VALUE));
+            Node twin = new Node(task, random.nextInt(Integer.MAX_VALUE));
+            node.twin = twin;
+            twin.twin = node;
+            inOrder.insertAt(indices[i], node);
+            byName.insertAt(byName.insertionPoint(twin), twin);
+            if (!bulk) {
+                for (View view : views) {
+                    Node own = view.own(node);
+                    if (Tree.matches(own, view.filter)) {
+                        view.rowsAdded(Tree.rank(own, view.filter));
+                    }
+                }
+            }
+        }
+        if (bulk) {
+            fireRefresh(oldSizes);
+        }
+    }
+
+    @Override
+    public void tasksRemoved(int[] indices, List<Task> tasks) {
+        boolean bulk = indices.length > BULK_EDIT;
+        int[] oldSizes = bulk ? sizes() : null;
+        // From the end, so the earlier positions still hold
+        for (int i = indices.length - 1; i >= 0; i--) {
+            Node node = inOrder.select(indices[i], Filter.ALL);
+            int[] rows = bulk ? null : rows(node);
+            inOrder.remove(node);
+            byName.remove(node.twin);
+            if (!bulk) {
+                for (int v = 0; v < views.length; v++) {
+                    if (rows[v] >= 0) {
+                        views[v].rowsRemoved(rows[v]);
+                    }
+                }
+            }
+        }
+        if (bulk) {
+            fireRefresh(oldSizes);
+        }
+    }
+
+    @Override
+    public void completedChanged(int[] indices, boolean completed) {
+        boolean bulk = indices.length > BULK_EDIT;
+        int[] oldSizes = bulk ? sizes() : null;
+        for (int index : indices) {
+            Node node = inOrder.select(index, Filter.ALL);
+            if (node.completed == completed) {
+                continue;
+            }
+            int[] before = bulk ? null : rows(node);
+            node.completed = completed;
+            node.twin.completed = completed;
+            Tree.recount(node);
+            Tree.recount(node.twin);
+            if (!bulk) {
+                int[] after = rows(node);
+                for (int v = 0; v < views.length; v++) {
+                    if (before[v] >= 0 && after[v] >= 0) {
+                        views[v].rowsChanged(after[v]);
+                    } else if (before[v] >= 0) {
+                        views[v].rowsRemoved(before[v]);
+                    } else if (after[v] >= 0) {
+                        views[v].rowsAdded(after[v]);
+                    }
+                }
+            }
+        }
+        if (bulk) {
+            fireRefresh(oldSizes);
+        }
+    }
+
+    @Override
+    public void tasksChanged(int[] indices) {
+        if (indices.length > BULK_EDIT) {
+            fireRefresh(sizes());
+            return;
+        }
+        for (int index : indices) {
+            int[] rows = rows(inOrder.select(index, Filter.ALL));
+            for (int v = 0; v < views.length; v++) {
+                if (rows[v] >= 0) {
+                    views[v].rowsChanged(rows[v]);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void tasksReplaced() {
+        int[] oldSizes = sizes();
+        rebuild();
+        fireRefresh(oldSizes);
+    }
+
+    private void rebuild() {
+        int size = model.getSize();
+        List<Node> nodes = new ArrayList<>(size);
+        List<Node> twins = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Task task = model.getElementAt(i);
+            Node node = new Node(task, 0);
+            Node twin = new Node(task, 0);
+            node.twin = twin;
+            twin.twin = node;
+            nodes.add(node);
+            twins.add(twin);
+        }
+        twins.sort(BY_NAME);
+        inOrder.build(nodes);
+        byName.build(twins);
+    }
+
+    // The node's row in every view, or -1 where it is filtered out
+    private int[] rows(Node node) {
+        int[] rows = new int[views.length];
+        for (int v = 0; v < views.length; v++) {
+            Node own = views[v].own(node);
+            rows[v] = Tree.matches(own, views[v].filter) ? Tree.rank(own, views[v].filter) : -1;
+        }
+        return rows;
+    }
+
+    private int[] sizes() {
+        int[] sizes = new int[views.length];
+        for (int v = 0; v < views.length; v++) {
+            sizes[v] = views[v].getSize();
+        }
+        return sizes;
+    }
+
+    private void fireRefresh(int[] oldSizes) {
+        for (int v = 0; v < views.length; v++) {
+            views[v].refresh(oldSizes[v]);
+        }
+    }
+
+    // One filter over one of the two orders
+    final class View extends AbstractListModel<Task> {
+        private final Filter filter;
+        private final Tree tree;
+
+        private View(Filter filter, Tree tree) {
+            this.filter = filter;
+            this.tree = tree;
+        }
+
+        @Override
+        public int getSize() {
+            return tree.count(filter);
+        }
+
+        @Override
+        public Task getElementAt(int index) {
+            return model.getElementAt(modelIndex(index));
+        }
+
+        // Position in the list model of the task shown at row
+        public int modelIndex(int row) {
+            Node node = tree.select(row, filter);
+            return Tree.rank(tree == inOrder ? node : node.twin, Filter.ALL);
+        }
+
+        private Node own(Node listNode) {
+            return tree == inOrder ? listNode : listNode.twin;
+        }
+
+        private void rowsAdded(int row) {
+            fireIntervalAdded(this, row, row);
+        }
+
+        private void rowsRemoved(int row) {
+            fireIntervalRemoved(this, row, row);
+        }
+
+        private void rowsChanged(int row) {
+            fireContentsChanged(this, row, row);
+        }
+
+        // Rows that exist before and after as one change, the rest as one
+        // add or remove at the end
+        private void refresh(int oldSize) {
+            int newSize = getSize();
+            int common = Math.min(oldSize, newSize);
+            if (common > 0) {
+                fireContentsChanged(this, 0, common - 1);
+            }
+            if (newSize > oldSize) {
+                fireIntervalAdded(this, oldSize, newSize - 1);
+            } else if (oldSize > newSize) {
+                fireIntervalRemoved(this, newSize, oldSize - 1);
+            }
+        }
+    }
+
+    private static final class Node {
+        final long id;
+        final String description;
+        int priority;
+        Node left;
+        Node right;
+        Node parent;
+        // The same task's node in the other tree
+        Node twin;
+        // As last reported by the model
+        boolean completed;
+        int size = 1;
+        int completedCount;
+
+        Node(Task task, int priority) {
+            this.id = task.getId();
+            this.description = task.getDescription();
+            this.priority = priority;
+            this.completed = task.isCompleted();
+            this.completedCount = completed ? 1 : 0;
+        }
+    }
+
+    // Treap ordered by position, with the parent links and counts the ranks
+    // need. Where a node goes is up to the caller.
+    private static final class Tree {
+        private Node root;
+
+        int count(Filter filter) {
+            return count(root, filter);
+        }
+
+        // The rank-th node (from 0) that matches the filter
+        Node select(int rank, Filter filter) {
+            if (rank < 0 || rank >= count(filter)) {
+                throw new ArrayIndexOutOfBoundsException(rank + " >= " + count(filter));
+            }
+            Node node = root;
+            while (true) {
+                int left = count(node.left, filter);
+                if (rank < left) {
+                    node = node.left;
+                    continue;
+                }
+                rank -= left;
+                if (matches(node, filter)) {
+                    if (rank == 0) {
+                        return node;
+                    }
+                    rank--;
+                }
+                node = node.right;
+            }
+        }
+
+        // Number of nodes before this one that match the filter
+        static int rank(Node node, Filter filter) {
+            int rank = count(node.left, filter);
+            for (Node child = node, parent = node.parent; parent != null; child = parent, parent = parent.parent) {
+                if (child == parent.right) {
+                    rank += count(parent.left, filter) + (matches(parent, filter) ? 1 : 0);
+                }
+            }
+            return rank;
+        }
+
+        // Position a node takes in name order
+        int insertionPoint(Node twin) {
+            int position = 0;
+            Node node = root;
+            while (node != null) {
+                if (BY_NAME.compare(twin, node) < 0) {
+                    node = node.left;
+                } else {
+                    position += count(node.left, Filter.ALL) + 1;
+                    node = node.right;
+                }
+            }
+            return position;
+        }
+
+        void insertAt(int index, Node node) {
+            Node[] parts = split(root, index);
+            root = merge(merge(parts[0], node), parts[1]);
+            root.parent = null;
+        }
+
+        void remove(Node node) {
+            Node[] before = split(root, rank(node, Filter.ALL));
+            Node[] after = split(before[1], 1);
+            root = merge(before[0], after[1]);
+            if (root != null) {
+                root.parent = null;
+            }
+        }
+
+        // Recounts the node and everything above it after its completed flag
+        // changed
+        static void recount(Node node) {
+            for (; node != null; node = node.parent) {
+                pull(node);
+            }
+        }
+
+        // Replaces the tree with the nodes, which are in order, in O(n). The
+        // priorities are the heights, which keeps it a valid treap; nodes
+        // inserted later get random priorities far above them.
+        void build(List<Node> nodes) {
+            root = build(nodes, 0, nodes.size());
+            if (root != null) {
+                root.parent = null;
+            }
+        }
+
+        private static Node build(List<Node> nodes, int from, int to) {
+            if (from >= to) {
+                return null;
+            }
+            int middle = (from + to) >>> 1;
+            Node node = nodes.get(middle);
+            node.left = build(nodes, from, middle);
+            node.right = build(nodes, middle + 1, to);
+            node.priority = 1 + Math.max(node.left != null ? node.left.priority : 0,
+                                         node.right != null ? node.right.priority : 0);
+            pull(node);
+            return node;
+        }
+
+        static boolean matches(Node node, Filter filter) {
+            switch (filter) {
+                case PENDING:
+                    return !node.completed;
+                case COMPLETED:
+                    return node.completed;
+                default:
+                    return true;
+            }
+        }
+
+        private static int count(Node node, Filter filter) {
+            if (node == null) {
+                return 0;
+            }
+            switch (filter) {
+                case PENDING:
+                    return node.size - node.completedCount;
+                case COMPLETED:
+                    return node.completedCount;
+                default:
+                    return node.size;
+            }
+        }
+
+        // Splits off the first k nodes; both parts come back without parents
+        private static Node[] split(Node node, int k) {
+            if (node == null) {
+                return new Node[2];
+            }
+            Node[] parts;
+            if (count(node.left, Filter.ALL) >= k) {
+                parts = split(node.left, k);
+                node.left = parts[1];
+                parts[1] = node;
+            } else {
+                parts = split(node.right, k - count(node.left, Filter.ALL) - 1);
+                node.right = parts[0];
+                parts[0] = node;
+            }
+            pull(node);
+            node.parent = null;
+            return parts;
+        }
+
+        private static Node merge(Node first, Node second) {
+            if (first == null) {
+                return second;
+            }
+            if (second == null) {
+                return first;
+            }
+            if (first.priority > second.priority) {
+                first.right = merge(first.right, second);
+                pull(first);
+                return first;
+            }
+            second.left = merge(first, second.left);
+            pull(second);
+            return second;
+        }
+
+        private static void pull(Node node) {
+            node.size = 1;
+            node.completedCount = node.completed ? 1 : 0;
+            if (node.left != null) {
+                node.size += node.left.size;
+                node.completedCount += node.left.completedCount;
+                node.left.parent = node;
+            }
+            if (node.right != null) {
+                node.size += node.right.size;
+                node.completedCount += node.right.completedCount;
+                node.right.parent = node;
+            }
+        }
+    }
+}
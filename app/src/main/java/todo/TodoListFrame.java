@@ -0,0 +1,1996 @@
+package todo;
+
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.*;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+
+class TodoListFrame extends JFrame {
+    // Lists kept open after switching away from them; switching back to one
+    // of these does not touch the disk
+    private static final int MAX_OPEN_LISTS = 8;
+    // Exit once the default list has loaded, for timing cold starts and for
+    // the class data sharing training run (the cds build profile)
+    private static final boolean EXIT_AFTER_STARTUP = Boolean.getBoolean("todo.exitAfterStartup");
+
+    private TaskModel listModel;
+    private JList<Task> taskList;
+    private JTextField taskInput;
+    private JTextField searchInput;
+    private JLabel searchStatus;
+    private JComboBox<TaskViews.Filter> viewSelector;
+    private JCheckBox sortByNameBox;
+    private JComboBox<String> listSelector;
+    private JButton newListButton;
+    private JButton addButton;
+    private JButton completeButton;
+    private JButton deleteButton;
+    private JButton saveButton;
+    private JButton loadButton;
+    private JButton importButton;
+    private JButton dueButton;
+    private JButton settingsButton;
+    private JButton massdeleteButton;
+    private JButton restoreButton;
+    private JButton undoButton;
+    private JButton redoButton;
+    private JButton aboutButton;
+    private JProgressBar loadProgress;
+    private JButton cancelImportButton;
+
+    // Search
+    private TaskSearchIndex searchIndex;
+    private TaskSearchModel searchModel;
+    private final String SETTINGS_FILE = "settings.properties";
+
+    // Open lists, least recently used first. The fields above and below
+    // (model, search, persistence, ids, undo) belong to currentList and are
+    // swapped by switchToList.
+    private final LinkedHashMap<String, OpenTaskList> openLists = new LinkedHashMap<>(16, 0.75f, true);
+    private OpenTaskList currentList;
+
+    // Persistence state
+    private PersistenceWorker persistence;
+    // Shared by all lists; only used on their persistence threads
+    private final MassDeleteArchive massDeleteArchive = MassDeleteArchive.openDefault();
+    private long nextTaskId = 1;
+    private UndoLog undoLog;
+    // True while a load or archive read is running; API edits wait for it
+    private boolean loading;
+    private TaskApiServer apiServer;
+    // Picks up changes other processes make to the open lists' files; null
+    // if the platform cannot watch files
+    private TaskFileWatcher fileWatcher;
+    // The import being parsed in the background, if any
+    private TaskImport runningImport;
+    // Reminders for the pending tasks with a due time in every open list,
+    // keyed by the list
+    private final TaskReminders reminders = new TaskReminders(this::remindersDue);
+    // Reminders that fired and have not been dismissed yet
+    private final DefaultListModel<String> reminderLines = new DefaultListModel<>();
+    private JDialog reminderDialog;
+    // Set by the window's first paint, which starts the first load
+    private boolean painted;
+    
+    // Settings
+    private Properties settings;
+    private boolean autoSave = true;
+    private boolean showConfirmDialogs = true;
+    private int undoMemoryMegabytes = (int) (UndoLog.DEFAULT_MEMORY_LIMIT >> 20);
+    private boolean writeMetricsOnExit = false;
+    private boolean edtWatchdog = false;
+    private int edtWatchdogThresholdMillis = (int) EdtWatchdog.DEFAULT_THRESHOLD_MILLIS;
+    private boolean apiEnabled = false;
+    private int apiPort = TaskApiServer.DEFAULT_PORT;
+    private final String METRICS_FILE = "metrics.txt";
+    private String currentTheme = "Default";
+    private Color primaryColor = new Color(46, 125, 50);
+    private Color secondaryColor = new Color(25, 118, 210);
+
+    public TodoListFrame() {
+        loadSettings();
+        TaskMetrics.setDumpFile(writeMetricsOnExit ? new File(METRICS_FILE) : null);
+        updateEdtWatchdog();
+        initializeComponents();
+        setupLayout();
+        setupEventHandlers();
+        try {
+            fileWatcher = new TaskFileWatcher(this::taskFilesChanged);
+        } catch (IOException | UnsupportedOperationException e) {
+            // Changes from other processes show up on Load Tasks only
+        }
+        // Only the default list is opened at startup, and it is read once
+        // the window has painted; the others are loaded the first time they
+        // are shown. Its controls wait for it as for any load.
+        switchToList(TaskStore.DEFAULT_LIST);
+        setLoading(true);
+        applyTheme();
+    }
+
+    // Called by the content pane on every paint. The first one starts what
+    // the window does not need in order to show itself: reading the default
+    // list and the local API.
+    private void painted() {
+        if (painted) {
+            return;
+        }
+        painted = true;
+        Optional<Instant> jvmStart = ProcessHandle.current().info().startInstant();
+        if (jvmStart.isPresent()) {
+            TaskMetrics.FIRST_PAINT.record(Duration.between(jvmStart.get(), Instant.now()).toNanos(), 0, 0);
+        }
+        SwingUtilities.invokeLater(() -> {
+            if (!currentList.isLoaded()) {
+                currentList.setLoaded(true);
+                loadTasksFromFile();
+            }
+            updateApiServer();
+        });
+    }
+
+    private void loadSettings() {
+        settings = new Properties();
+        try (FileInputStream fis = new FileInputStream(SETTINGS_FILE)) {
+            settings.load(fis);
+            autoSave = Boolean.parseBoolean(settings.getProperty("autoSave", "true"));
+            showConfirmDialogs = Boolean.parseBoolean(settings.getProperty("showConfirmDialogs", "true"));
+            currentTheme = settings.getProperty("theme", "Default");
+            undoMemoryMegabytes = Integer.parseInt(settings.getProperty("undoMemoryMegabytes",
+                                                                        String.valueOf(undoMemoryMegabytes)));
+            writeMetricsOnExit = Boolean.parseBoolean(settings.getProperty("writeMetricsOnExit", "false"));
+            edtWatchdog = Boolean.parseBoolean(settings.getProperty("edtWatchdog", "false"));
+            edtWatchdogThresholdMillis = Integer.parseInt(settings.getProperty("edtWatchdogThresholdMillis",
+                                                                               String.valueOf(edtWatchdogThresholdMillis)));
+            apiEnabled = Boolean.parseBoolean(settings.getProperty("apiEnabled", "false"));
+            apiPort = Integer.parseInt(settings.getProperty("apiPort", String.valueOf(apiPort)));
+            
+            // Load custom colors
+            String primaryColorStr = settings.getProperty("primaryColor", "46,125,50");
+            String secondaryColorStr = settings.getProperty("secondaryColor", "25,118,210");
+            
+            String[] primaryRGB = primaryColorStr.split(",");
+            String[] secondaryRGB = secondaryColorStr.split(",");
+            
+            primaryColor = new Color(Integer.parseInt(primaryRGB[0]), 
+                                   Integer.parseInt(primaryRGB[1]), 
+                                   Integer.parseInt(primaryRGB[2]));
+            secondaryColor = new Color(Integer.parseInt(secondaryRGB[0]), 
+                                     Integer.parseInt(secondaryRGB[1]), 
+                                     Integer.parseInt(secondaryRGB[2]));
+        } catch (IOException e) {
+            // Use defaults if settings file doesn't exist
+        }
+    }
+
+    // Replaced whole, so a crash mid-save cannot leave the settings empty
+    private void saveSettings() {
+        try {
+            settings.setProperty("autoSave", String.valueOf(autoSave));
+            settings.setProperty("showConfirmDialogs", String.valueOf(showConfirmDialogs));
+            settings.setProperty("theme", currentTheme);
+            settings.setProperty("undoMemoryMegabytes", String.valueOf(undoMemoryMegabytes));
+            settings.setProperty("writeMetricsOnExit", String.valueOf(writeMetricsOnExit));
+            settings.setProperty("edtWatchdog", String.valueOf(edtWatchdog));
+            settings.setProperty("edtWatchdogThresholdMillis", String.valueOf(edtWatchdogThresholdMillis));
+            settings.setProperty("apiEnabled", String.valueOf(apiEnabled));
+            settings.setProperty("apiPort", String.valueOf(apiPort));
+            settings.setProperty("primaryColor", primaryColor.getRed() + "," + 
+                               primaryColor.getGreen() + "," + primaryColor.getBlue());
+            settings.setProperty("secondaryColor", secondaryColor.getRed() + "," + 
+                               secondaryColor.getGreen() + "," + secondaryColor.getBlue());
+            
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            settings.store(bytes, "To-Do List Settings");
+            DurableFiles.write(new File(SETTINGS_FILE), bytes.toByteArray());
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Error saving settings: " + e.getMessage(), 
+                                        "Settings Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private void initializeComponents() {
+        setTitle("To-Do List Manager v2.0");
+        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        setSize(600, 750);
+        setLocationRelativeTo(null);
+        setContentPane(new JPanel(new BorderLayout()) {
+            @Override
+            protected void paintComponent(Graphics g) {
+                super.paintComponent(g);
+                painted();
+            }
+        });
+
+        // Initialize components; the list model is set by switchToList
+        taskList = new JList<>();
+        taskList.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
+        taskList.setCellRenderer(new TaskRenderer());
+        // With a fixed cell size the list UI no longer measures every row;
+        // a narrow fixed width lets the list track the viewport width
+        taskList.setPrototypeCellValue(new Task(0, "Prototype task"));
+        taskList.setFixedCellWidth(1);
+
+        taskInput = new JTextField(20);
+        searchInput = new JTextField(20);
+        searchStatus = new JLabel(String.format("Search and views are off for lists of %,d tasks or more", TaskStore.PAGED_LOAD_THRESHOLD));
+        searchStatus.setVisible(false);
+        viewSelector = new JComboBox<>(TaskViews.Filter.values());
+        sortByNameBox = new JCheckBox("Sort by name");
+        listSelector = new JComboBox<>(TaskStore.listNames().toArray(new String[0]));
+        newListButton = new JButton("New List");
+        addButton = new JButton("Add Task");
+        completeButton = new JButton("Mark Complete");
+        deleteButton = new JButton("Delete Task");
+        saveButton = new JButton("Save Tasks");
+        loadButton = new JButton("Load Tasks");
+        importButton = new JButton("Import Tasks");
+        dueButton = new JButton("Set Due Date");
+        settingsButton = new JButton("Settings");
+        massdeleteButton = new JButton("Mass Delete");
+        restoreButton = new JButton("Restore Deleted");
+        undoButton = new JButton("Undo");
+        redoButton = new JButton("Redo");
+        undoButton.setEnabled(false);
+        redoButton.setEnabled(false);
+        aboutButton = new JButton("About");
+
+        loadProgress = new JProgressBar(0, 100);
+        loadProgress.setStringPainted(true);
+        loadProgress.setVisible(false);
+        cancelImportButton = new JButton("Cancel");
+        cancelImportButton.setVisible(false);
+
+        // Style buttons with current theme
+        applyButtonStyle();
+    }
+
+    private void applyButtonStyle() {
+        styleButton(addButton, primaryColor);
+        styleButton(completeButton, secondaryColor);
+        styleButton(deleteButton, new Color(211, 47, 47));
+        styleButton(saveButton, new Color(156, 39, 176));
+        styleButton(loadButton, new Color(255, 152, 0));
+        styleButton(importButton, new Color(245, 124, 0));
+        styleButton(dueButton, new Color(63, 81, 181));
+        styleButton(settingsButton, new Color(96, 125, 139));
+        styleButton(massdeleteButton, new Color(59, 147, 240));
+        styleButton(restoreButton, new Color(0, 150, 136));
+        styleButton(undoButton, new Color(84, 110, 122));
+        styleButton(redoButton, new Color(84, 110, 122));
+        styleButton(aboutButton, new Color(121, 85, 72));
+        styleButton(newListButton, new Color(0, 121, 107));
+    }
+
+    private void applyTheme() {
+        long start = System.nanoTime();
+        Color backgroundColor;
+        Color textColor;
+        
+        // Use primary color as background for custom themes
+        if (!currentTheme.equals("Default") && !currentTheme.equals("Light") && 
+            !currentTheme.equals("Dark") && !currentTheme.equals("Blue")) {
+            backgroundColor = primaryColor;
+            textColor = isColorDark(primaryColor) ? Color.WHITE : Color.BLACK;
+        } else {
+            switch (currentTheme) {
+                case "Dark":
+                    backgroundColor = new Color(45, 45, 45);
+                    textColor = Color.WHITE;
+                    break;
+                case "Light":
+                    backgroundColor = Color.WHITE;
+                    textColor = Color.BLACK;
+                    break;
+                case "Blue":
+                    backgroundColor = new Color(240, 248, 255);
+                    textColor = new Color(25, 25, 112);
+                    break;
+                default:
+                    // For default theme, use primary color as background
+                    backgroundColor = primaryColor;
+                    textColor = isColorDark(primaryColor) ? Color.WHITE : Color.BLACK;
+            }
+        }
+        
+        // Apply background color to all components except buttons
+        getContentPane().setBackground(backgroundColor);
+        taskList.setBackground(backgroundColor);
+        taskList.setForeground(textColor);
+        taskInput.setBackground(backgroundColor);
+        taskInput.setForeground(textColor);
+        
+        // Apply to all panels
+        applyBackgroundToAllPanels(backgroundColor);
+        
+        repaint();
+        TaskMetrics.APPLY_THEME.recordSince(start, 0, 0);
+    }
+    
+    private boolean isColorDark(Color color) {
+        // Calculate relative luminance
+        double luminance = (0.299 * color.getRed() + 0.587 * color.getGreen() + 0.114 * color.getBlue()) / 255;
+        return luminance < 0.5;
+    }
+    
+    private void applyBackgroundToAllPanels(Color backgroundColor) {
+        // Apply background to all child components recursively
+        applyBackgroundToContainer(this, backgroundColor);
+    }
+    
+    private void applyBackgroundToContainer(Container container, Color backgroundColor) {
+        for (Component component : container.getComponents()) {
+            if (component instanceof JPanel) {
+                component.setBackground(backgroundColor);
+                if (component instanceof Container) {
+                    applyBackgroundToContainer((Container) component, backgroundColor);
+                }
+            } else if (component instanceof JScrollPane) {
+                component.setBackground(backgroundColor);
+                JScrollPane scrollPane = (JScrollPane) component;
+                if (scrollPane.getViewport() != null) {
+                    scrollPane.getViewport().setBackground(backgroundColor);
+                }
+            } else if (component instanceof JLabel) {
+                Color textColor = isColorDark(backgroundColor) ? Color.WHITE : Color.BLACK;
+                component.setForeground(textColor);
+            }
+        }
+    }
+
+    private void styleButton(JButton button, Color color) {
+        button.setBackground(color);
+        button.setForeground(Color.WHITE);
+        button.setFocusPainted(false);
+        button.setBorderPainted(false);
+        button.setFont(new Font("Arial", Font.BOLD, 12));
+        button.setPreferredSize(new Dimension(120, 35));
+    }
+
+    private void setupLayout() {
+        setLayout(new BorderLayout());
+
+        // Top panel for input
+        JPanel topPanel = new JPanel(new BorderLayout());
+        topPanel.setBorder(new EmptyBorder(10, 10, 10, 10));
+        
+        JPanel listPanel = new JPanel(new BorderLayout(5, 0));
+        listPanel.add(new JLabel("List:"), BorderLayout.WEST);
+        listPanel.add(listSelector, BorderLayout.CENTER);
+        listPanel.add(newListButton, BorderLayout.EAST);
+
+        JLabel titleLabel = new JLabel("Add New Task:");
+        titleLabel.setFont(new Font("Arial", Font.BOLD, 14));
+        titleLabel.setBorder(new EmptyBorder(10, 0, 0, 0));
+
+        JPanel headerPanel = new JPanel(new BorderLayout());
+        headerPanel.add(listPanel, BorderLayout.NORTH);
+        headerPanel.add(titleLabel, BorderLayout.SOUTH);
+        topPanel.add(headerPanel, BorderLayout.NORTH);
+        
+        JPanel inputPanel = new JPanel(new BorderLayout());
+        inputPanel.setBorder(new EmptyBorder(5, 0, 0, 0));
+        inputPanel.add(taskInput, BorderLayout.CENTER);
+        inputPanel.add(addButton, BorderLayout.EAST);
+        topPanel.add(inputPanel, BorderLayout.CENTER);
+
+        JPanel searchPanel = new JPanel(new BorderLayout(5, 0));
+        searchPanel.setBorder(new EmptyBorder(5, 0, 0, 0));
+        searchPanel.add(new JLabel("Search:"), BorderLayout.WEST);
+        searchPanel.add(searchInput, BorderLayout.CENTER);
+        JPanel viewPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 0));
+        viewPanel.add(new JLabel("Show:"));
+        viewPanel.add(viewSelector);
+        viewPanel.add(sortByNameBox);
+        searchPanel.add(viewPanel, BorderLayout.EAST);
+        searchPanel.add(searchStatus, BorderLayout.SOUTH);
+        topPanel.add(searchPanel, BorderLayout.SOUTH);
+
+        // Center panel for task list
+        JPanel centerPanel = new JPanel(new BorderLayout());
+        centerPanel.setBorder(new EmptyBorder(0, 10, 0, 10));
+        
+        JLabel listLabel = new JLabel("Your Tasks:");
+        listLabel.setFont(new Font("Arial", Font.BOLD, 14));
+        centerPanel.add(listLabel, BorderLayout.NORTH);
+        
+        JScrollPane scrollPane = new JScrollPane(taskList);
+        scrollPane.setPreferredSize(new Dimension(580, 350));
+        scrollPane.setBorder(BorderFactory.createLoweredBevelBorder());
+        centerPanel.add(scrollPane, BorderLayout.CENTER);
+        JPanel progressPanel = new JPanel(new BorderLayout(5, 0));
+        progressPanel.add(loadProgress, BorderLayout.CENTER);
+        progressPanel.add(cancelImportButton, BorderLayout.EAST);
+        centerPanel.add(progressPanel, BorderLayout.SOUTH);
+
+        // Bottom panel for action buttons
+        JPanel bottomPanel = new JPanel(new GridLayout(6, 2, 10, 10));
+        bottomPanel.setBorder(new EmptyBorder(10, 10, 10, 10));
+        bottomPanel.add(completeButton);
+        bottomPanel.add(deleteButton);
+        bottomPanel.add(saveButton);
+        bottomPanel.add(loadButton);
+        bottomPanel.add(importButton);
+        bottomPanel.add(settingsButton);
+        bottomPanel.add(aboutButton);
+        bottomPanel.add(massdeleteButton);
+        bottomPanel.add(restoreButton);
+        bottomPanel.add(undoButton);
+        bottomPanel.add(redoButton);
+        bottomPanel.add(dueButton);
+
+        add(topPanel, BorderLayout.NORTH);
+        add(centerPanel, BorderLayout.CENTER);
+        add(bottomPanel, BorderLayout.SOUTH);
+    }
+
+    private void setupEventHandlers() {
+        // Add task button and Enter key
+        ActionListener addTaskAction = e -> addTask();
+        addButton.addActionListener(addTaskAction);
+        taskInput.addActionListener(addTaskAction);
+
+        // Search field filters the list as you type
+        searchInput.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                updateSearch();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                updateSearch();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                updateSearch();
+            }
+        });
+
+        // Views are kept up to date, so switching only swaps the model
+        viewSelector.addActionListener(e -> updateSearch());
+        sortByNameBox.addActionListener(e -> updateSearch());
+
+        // List switcher
+        listSelector.addActionListener(e -> {
+            String name = (String) listSelector.getSelectedItem();
+            if (name != null && !name.equals(currentList.getName())) {
+                switchToList(name);
+            }
+        });
+        newListButton.addActionListener(e -> createList());
+
+        // Complete task button
+        completeButton.addActionListener(e -> markTaskComplete());
+
+        // Delete task button
+        deleteButton.addActionListener(e -> deleteTask());
+
+        // Save tasks button
+        saveButton.addActionListener(e -> saveTasksToFile());
+
+        // Load tasks button
+        loadButton.addActionListener(e -> loadTasksFromFile());
+
+        // Import button, and cancelling a running import
+        importButton.addActionListener(e -> importTasks());
+        dueButton.addActionListener(e -> setDueDate());
+        cancelImportButton.addActionListener(e -> {
+            if (runningImport != null) {
+                runningImport.cancel();
+            }
+        });
+
+        // Settings button
+        settingsButton.addActionListener(e -> showSettingsDialog());
+
+        // About button
+        aboutButton.addActionListener(e -> showAboutDialog());
+        // Mass delete button
+        massdeleteButton.addActionListener(e -> massDeleteTasks());
+        restoreButton.addActionListener(e -> restoreMassDelete());
+
+        // Runs before EXIT_ON_CLOSE exits. A paged model is taken off the
+        // window first, so the persistence thread can write its checksum
+        // while nothing paints it; the shutdown hook waits for that.
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                closePagedModel();
+            }
+        });
+
+        // Undo and redo, also on Ctrl+Z and Ctrl+Y / Ctrl+Shift+Z
+        undoButton.addActionListener(e -> undo());
+        redoButton.addActionListener(e -> redo());
+        InputMap keys = getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW);
+        int menuMask = Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx();
+        keys.put(KeyStroke.getKeyStroke(KeyEvent.VK_Z, menuMask), "undo");
+        keys.put(KeyStroke.getKeyStroke(KeyEvent.VK_Y, menuMask), "redo");
+        keys.put(KeyStroke.getKeyStroke(KeyEvent.VK_Z, menuMask | InputEvent.SHIFT_DOWN_MASK), "redo");
+        getRootPane().getActionMap().put("undo", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                undoButton.doClick(0);
+            }
+        });
+        getRootPane().getActionMap().put("redo", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                redoButton.doClick(0);
+            }
+        });
+    }
+
+    private void massDeleteTasks() {
+        if (listModel.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "No tasks to delete!", "Mass Delete", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        
+        boolean confirmMassDelete = true;
+        if (showConfirmDialogs) {
+            int confirm = JOptionPane.showConfirmDialog(this, "Are you sure you want to delete ALL tasks?\nThis will permanently remove all tasks from the list.", "Confirm Mass Delete", JOptionPane.YES_NO_OPTION);
+            confirmMassDelete = (confirm == JOptionPane.YES_OPTION);
+        }
+        
+        if (confirmMassDelete) {
+            long start = System.nanoTime();
+            if (listModel instanceof PagedTaskListModel) {
+                massDeletePagedTasks((PagedTaskListModel) listModel, start);
+                return;
+            }
+
+            // Save all tasks to mass delete file before deletion
+            List<Task> deletedTasks = currentList.copyTasks();
+            UndoLog.Operation operation = UndoLog.Operation.massDelete(deletedTasks);
+            boolean journalClear = autoSave;
+            // The callbacks may run after the user has switched lists
+            OpenTaskList list = currentList;
+            persistence.submit(journal -> {
+                operation.setSession(archive(deletedTasks::forEach));
+                if (journalClear) {
+                    journal.appendClear();
+                }
+            }, () -> list.getUndoLog().checkpoint(operation), e -> {
+                // Nothing was archived, so put the tasks back
+                list.getUndoLog().clear();
+                list.getModel().addAll(0, deletedTasks);
+                if (list.getModel().isSearchable()) {
+                    list.getSearchIndex().addAll(deletedTasks);
+                }
+                if (list == currentList) {
+                    updateUndoButtons();
+                    updateSearch();
+                }
+                JOptionPane.showMessageDialog(this, "Error saving mass delete tasks: " + e.getMessage(), "Mass Delete Error", JOptionPane.ERROR_MESSAGE);
+            });
+
+            // Clear all tasks from the list
+            clearTasks(false);
+            recordUndo(operation);
+            TaskMetrics.MASS_DELETE.recordSince(start, 0, deletedTasks.size());
+
+            JOptionPane.showMessageDialog(this, "All tasks have been deleted!", "Mass Delete Complete", JOptionPane.INFORMATION_MESSAGE);
+        }
+    }
+
+    // A paged list is too large to copy, so its store file is moved aside
+    // and archived from disk by the persistence thread. Moving it means
+    // forcing the mapping first, so the model is cleared there too, with
+    // an empty list shown until it is back.
+    private void massDeletePagedTasks(PagedTaskListModel pagedModel, long start) {
+        File clearedFile = new File(pagedModel.getFile().getPath() + ".cleared");
+        int oldSize = pagedModel.getSize();
+        setLoading(true);
+        detachListModel(new TaskListModel());
+        persistence.clearPaged(clearedFile, () -> {
+            detachListModel(pagedModel);
+            setLoading(false);
+            UndoLog.Operation operation = UndoLog.Operation.massDelete(oldSize);
+            recordUndo(operation);
+            TaskMetrics.MASS_DELETE.recordSince(start, 0, oldSize);
+            persistence.submit(journal -> {
+                operation.setSession(archive(sink -> TaskStoreFile.stream(clearedFile, sink, progress -> { })));
+                Files.delete(clearedFile.toPath());
+            }, null, e -> JOptionPane.showMessageDialog(this, "Error saving mass delete tasks: " + e.getMessage()
+                    + "\nThe deleted tasks are still in " + clearedFile + ".", "Mass Delete Error", JOptionPane.ERROR_MESSAGE));
+
+            JOptionPane.showMessageDialog(this, "All tasks have been deleted!", "Mass Delete Complete", JOptionPane.INFORMATION_MESSAGE);
+        }, e -> {
+            // The model may be half cleared; show whatever the store now holds
+            String where = clearedFile.exists() ? "\nThe deleted tasks are in " + clearedFile + "." : "";
+            JOptionPane.showMessageDialog(this, "Error saving mass delete tasks: " + e.getMessage() + where,
+                                          "Mass Delete Error", JOptionPane.ERROR_MESSAGE);
+            persistence.closePaged();
+            loadTasksFromFile();
+        });
+    }
+
+    // Runs on the persistence thread
+    private MassDeleteArchive.Session archive(MassDeleteArchive.TaskSource tasks) throws IOException {
+        long start = System.nanoTime();
+        MassDeleteArchive.Session session = massDeleteArchive.append(tasks);
+        TaskMetrics.MASS_DELETE_ARCHIVE.recordSince(start, session.getLength(), session.getCount());
+        return session;
+    }
+
+    // The session list is read on the persistence thread, behind any mass
+    // delete that is still being archived
+    private void restoreMassDelete() {
+        persistence.submit(journal -> {
+            List<MassDeleteArchive.Session> sessions = massDeleteArchive.sessions();
+            SwingUtilities.invokeLater(() -> chooseSessionToRestore(sessions));
+        }, null, e -> JOptionPane.showMessageDialog(this, "Error reading mass delete archive: " + e.getMessage(), "Restore Error", JOptionPane.ERROR_MESSAGE));
+    }
+
+    private void chooseSessionToRestore(List<MassDeleteArchive.Session> sessions) {
+        if (sessions.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "No mass deleted tasks to restore!", "Restore Deleted", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+
+        MassDeleteArchive.Session[] newestFirst = new MassDeleteArchive.Session[sessions.size()];
+        for (int i = 0; i < newestFirst.length; i++) {
+            newestFirst[i] = sessions.get(sessions.size() - 1 - i);
+        }
+        Object choice = JOptionPane.showInputDialog(this, "Choose a mass delete session to restore:", "Restore Deleted",
+                                                    JOptionPane.QUESTION_MESSAGE, null, newestFirst, newestFirst[0]);
+        if (choice == null) {
+            return;
+        }
+
+        // Loading keeps the list from being switched until the tasks are in
+        setLoading(true);
+        MassDeleteArchive.Session session = (MassDeleteArchive.Session) choice;
+        List<Task> archived = new ArrayList<>(session.getCount());
+        persistence.submit(journal -> massDeleteArchive.restore(session, archived::add), () -> {
+            setLoading(false);
+            addRestoredTasks(archived);
+        }, e -> {
+            setLoading(false);
+            JOptionPane.showMessageDialog(this, "Error restoring tasks: " + e.getMessage(), "Restore Error", JOptionPane.ERROR_MESSAGE);
+        });
+    }
+
+    // Restored tasks get fresh ids, since the same session may be restored
+    // more than once
+    private void addRestoredTasks(List<Task> archived) {
+        List<Task> restored = new ArrayList<>(archived.size());
+        for (Task task : archived) {
+            Task copy = new Task(nextTaskId++, task.getDescription());
+            copy.setCompleted(task.isCompleted());
+            copy.setDue(task.getDue());
+            restored.add(copy);
+        }
+        int[] indices = new int[restored.size()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = listModel.getSize() + i;
+        }
+        insertTasks(indices, restored);
+        recordUndo(UndoLog.Operation.add(indices, restored));
+        JOptionPane.showMessageDialog(this, "Restored " + restored.size() + " tasks.", "Restore Deleted", JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    private void undo() {
+        UndoLog.Operation operation = undoLog.undo();
+        if (operation == null) {
+            return;
+        }
+        switch (operation.getKind()) {
+            case ADD:
+                removeTasks(operation.getIndices());
+                break;
+            case SET_COMPLETED:
+                setTasksCompleted(operation.getIndices(), !operation.isCompleted());
+                break;
+            case SET_DUE:
+                restoreDues(operation.getIndices(), operation.getPreviousDues());
+                break;
+            case DELETE:
+                insertTasks(operation.getIndices(), operation.getTasks());
+                break;
+            case MASS_DELETE:
+                if (operation.getTasks() != null) {
+                    insertTasks(operation.getIndices(), operation.getTasks());
+                } else {
+                    undoArchivedMassDelete(operation);
+                    return;
+                }
+                break;
+        }
+        updateUndoButtons();
+    }
+
+    // The tasks are read back from the archive on the persistence thread,
+    // after the archiving job itself, and inserted in one batch. undo()
+    // returns before refreshing the buttons, so both callbacks do it once
+    // the log is final.
+    private void undoArchivedMassDelete(UndoLog.Operation operation) {
+        setLoading(true);
+        List<Task> archived = new ArrayList<>(operation.getIndices().length);
+        persistence.submit(journal -> {
+            MassDeleteArchive.Session session = operation.getSession();
+            if (session == null) {
+                throw new IOException("The deleted tasks were not archived");
+            }
+            massDeleteArchive.restore(session, archived::add);
+        }, () -> {
+            insertTasks(operation.getIndices(), archived);
+            setLoading(false);
+            updateUndoButtons();
+        }, e -> {
+            undoLog.clear();
+            setLoading(false);
+            updateUndoButtons();
+            JOptionPane.showMessageDialog(this, "Error undoing mass delete: " + e.getMessage(), "Undo Error", JOptionPane.ERROR_MESSAGE);
+        });
+    }
+
+    private void redo() {
+        UndoLog.Operation operation = undoLog.redo();
+        if (operation == null) {
+            return;
+        }
+        switch (operation.getKind()) {
+            case ADD:
+                insertTasks(operation.getIndices(), operation.getTasks());
+                break;
+            case SET_COMPLETED:
+                setTasksCompleted(operation.getIndices(), operation.isCompleted());
+                break;
+            case SET_DUE:
+                setTasksDue(operation.getIndices(), operation.getDue());
+                break;
+            case DELETE:
+                removeTasks(operation.getIndices());
+                break;
+            case MASS_DELETE:
+                // Already archived the first time round
+                clearTasks(autoSave);
+                break;
+        }
+        updateUndoButtons();
+    }
+
+    private void recordUndo(UndoLog.Operation operation) {
+        undoLog.record(operation);
+        updateUndoButtons();
+    }
+
+    private void updateUndoButtons() {
+        undoButton.setEnabled(undoLog.canUndo());
+        redoButton.setEnabled(undoLog.canRedo());
+    }
+
+    // List edits shared by the user actions and undo/redo. Each is one bulk
+    // model operation and at most one journal job, and keeps the list's
+    // reminders in step.
+    private void insertTasks(int[] indices, List<Task> tasks) {
+        listModel.insertAll(indices, tasks);
+        if (listModel.isSearchable()) {
+            searchIndex.addAll(tasks);
+        }
+        updateSearch();
+        if (autoSave && !listModel.isWriteThrough()) {
+            persistence.recordAddAll(tasks);
+        }
+        for (Task task : tasks) {
+            updateReminder(task);
+        }
+    }
+
+    private List<Task> removeTasks(int[] indices) {
+        taskList.clearSelection();
+        List<Task> removedTasks = listModel.removeAll(indices);
+        for (Task task : removedTasks) {
+            searchIndex.remove(task);
+            reminders.cancel(currentList, task.getId());
+        }
+        updateSearch();
+        if (autoSave && !listModel.isWriteThrough()) {
+            persistence.recordDeleteAll(removedTasks);
+        }
+        if (listModel instanceof PagedTaskListModel) {
+            // Not until the edit that called this is over
+            SwingUtilities.invokeLater(this::compactPagedModel);
+        }
+        return removedTasks;
+    }
+
+    // Removed records stay in a paged store as garbage; once there is
+    // enough of it the persistence thread writes the store out again. An
+    // empty list is shown meanwhile. The rows come back where they were,
+    // so the undo history is kept and the view scrolled back.
+    private void compactPagedModel() {
+        if (loading || !(listModel instanceof PagedTaskListModel)
+                || !((PagedTaskListModel) listModel).needsCompaction()) {
+            return;
+        }
+        PagedTaskListModel pagedModel = (PagedTaskListModel) listModel;
+        Rectangle visible = taskList.getVisibleRect();
+        setLoading(true);
+        detachListModel(new TaskListModel());
+        persistence.compactPaged(() -> {
+            detachListModel(pagedModel);
+            setLoading(false);
+            taskList.scrollRectToVisible(visible);
+        }, e -> {
+            showSaveError(e);
+            persistence.closePaged();
+            loadTasksFromFile();
+        });
+    }
+
+    private void setTasksCompleted(int[] indices, boolean completed) {
+        List<Task> tasks = new ArrayList<>(indices.length);
+        for (int index : indices) {
+            tasks.add(listModel.getElementAt(index));
+        }
+        listModel.setCompleted(indices, completed);
+        updateSearch();
+        if (autoSave && !listModel.isWriteThrough() && !tasks.isEmpty()) {
+            persistence.recordSetCompleted(tasks, completed);
+        }
+        for (Task task : tasks) {
+            if (completed) {
+                reminders.cancel(currentList, task.getId());
+            } else if (task.hasDue()) {
+                reminders.schedule(currentList, task.getId(), task.getDue());
+            }
+        }
+    }
+
+    private void setTasksDue(int[] indices, long due) {
+        List<Task> tasks = new ArrayList<>(indices.length);
+        for (int index : indices) {
+            tasks.add(listModel.getElementAt(index));
+        }
+        listModel.setDue(indices, due);
+        updateSearch();
+        if (autoSave && !listModel.isWriteThrough() && !tasks.isEmpty()) {
+            persistence.recordSetDue(tasks, due);
+        }
+        for (Task task : tasks) {
+            // A paged model's cached row may be gone by now
+            task.setDue(due);
+            updateReminder(task);
+        }
+    }
+
+    // Undo of a due date change: the tasks may have had different due
+    // times, so they are set back one due time at a time
+    private void restoreDues(int[] indices, long[] dues) {
+        Map<Long, List<Integer>> byDue = new LinkedHashMap<>();
+        for (int i = 0; i < indices.length; i++) {
+            byDue.computeIfAbsent(dues[i], due -> new ArrayList<>()).add(indices[i]);
+        }
+        for (Map.Entry<Long, List<Integer>> entry : byDue.entrySet()) {
+            setTasksDue(entry.getValue().stream().mapToInt(Integer::intValue).toArray(), entry.getKey());
+        }
+    }
+
+    // Schedules the task's reminder in the current list, or cancels it if
+    // the task is done or has no due time
+    private void updateReminder(Task task) {
+        if (task.hasDue() && !task.isCompleted()) {
+            reminders.schedule(currentList, task.getId(), task.getDue());
+        } else {
+            reminders.cancel(currentList, task.getId());
+        }
+    }
+
+    // Schedules a reminder for every pending task with a due time in the
+    // list, replacing whatever the list had; after a load or an outside
+    // change. Tasks already overdue are shown in red rather than announced
+    // again every time the list is read.
+    private void scheduleReminders(OpenTaskList list) {
+        reminders.cancelAll(list);
+        long now = System.currentTimeMillis();
+        list.getModel().forEachPendingDue((index, id, due) -> {
+            if (due > now) {
+                reminders.schedule(list, id, due);
+            }
+        });
+    }
+
+    // Called on the EDT with the reminders that came due. Each one is
+    // checked against its list, which may have changed while it was on its
+    // way, and the rest are added to the reminder window.
+    private void remindersDue(List<TaskReminders.Reminder> due) {
+        List<String> lines = new ArrayList<>();
+        for (TaskReminders.Reminder reminder : due) {
+            OpenTaskList list = (OpenTaskList) reminder.getOwner();
+            if (openLists.get(list.getName()) != list) {
+                continue;
+            }
+            TaskModel model = list.getModel();
+            int index = model.getIndex().indexOfId(reminder.getId());
+            Task task = index >= 0 ? model.getElementAt(index) : null;
+            if (task != null && !task.isCompleted() && task.getDue() == reminder.getDue()) {
+                String prefix = list == currentList ? "" : list.getName() + ": ";
+                lines.add(prefix + task.getDescription() + " (due " + Task.formatDue(task.getDue()) + ")");
+            }
+        }
+        if (!lines.isEmpty()) {
+            showReminders(lines);
+        }
+    }
+
+    // One window collects every reminder until it is dismissed, however
+    // many come due at once
+    private void showReminders(List<String> lines) {
+        reminderLines.addAll(lines);
+        if (reminderDialog == null) {
+            reminderDialog = new JDialog(this, "Reminders", false);
+            reminderDialog.setSize(400, 250);
+            reminderDialog.setLocationRelativeTo(this);
+            reminderDialog.setLayout(new BorderLayout());
+            reminderDialog.add(new JScrollPane(new JList<>(reminderLines)), BorderLayout.CENTER);
+            JButton dismissButton = new JButton("Dismiss");
+            dismissButton.addActionListener(e -> {
+                reminderLines.clear();
+                reminderDialog.setVisible(false);
+            });
+            JPanel buttonPanel = new JPanel(new FlowLayout());
+            buttonPanel.add(dismissButton);
+            reminderDialog.add(buttonPanel, BorderLayout.SOUTH);
+        }
+        reminderDialog.setTitle("Reminders (" + reminderLines.size() + ")");
+        if (!reminderDialog.isVisible()) {
+            reminderDialog.setVisible(true);
+        }
+        Toolkit.getDefaultToolkit().beep();
+    }
+
+    private void clearTasks(boolean journalClear) {
+        taskList.clearSelection();
+        listModel.clear();
+        searchIndex.clear();
+        reminders.cancelAll(currentList);
+        updateSearch();
+        if (journalClear && !listModel.isWriteThrough()) {
+            persistence.submit(journal -> journal.appendClear(), null, null);
+        }
+    }
+
+    private void showSettingsDialog() {
+        JDialog settingsDialog = new JDialog(this, "Settings", true);
+        settingsDialog.setSize(480, 480);
+        settingsDialog.setLocationRelativeTo(this);
+        settingsDialog.setLayout(new BorderLayout());
+
+        JTabbedPane tabbedPane = new JTabbedPane();
+
+        // General Settings Tab
+        JPanel generalPanel = new JPanel(new GridBagLayout());
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(10, 10, 10, 10);
+        gbc.anchor = GridBagConstraints.WEST;
+
+        JCheckBox autoSaveCheckBox = new JCheckBox("Auto-save tasks", autoSave);
+        JCheckBox confirmDialogsCheckBox = new JCheckBox("Show confirmation dialogs", showConfirmDialogs);
+        JCheckBox metricsCheckBox = new JCheckBox("Append timing metrics to " + METRICS_FILE + " on exit",
+                                                  writeMetricsOnExit);
+
+        gbc.gridx = 0; gbc.gridy = 0;
+        generalPanel.add(autoSaveCheckBox, gbc);
+        gbc.gridy = 1;
+        generalPanel.add(confirmDialogsCheckBox, gbc);
+
+        JPanel undoMemoryPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
+        JSpinner undoMemorySpinner = new JSpinner(new SpinnerNumberModel(undoMemoryMegabytes, 1, 4096, 8));
+        undoMemoryPanel.add(new JLabel("Undo history memory (MB): "));
+        undoMemoryPanel.add(undoMemorySpinner);
+        gbc.gridy = 2;
+        generalPanel.add(undoMemoryPanel, gbc);
+        gbc.gridy = 3;
+        generalPanel.add(metricsCheckBox, gbc);
+
+        JPanel watchdogPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
+        JCheckBox watchdogCheckBox = new JCheckBox("Log UI stalls longer than (ms): ", edtWatchdog);
+        JSpinner watchdogSpinner = new JSpinner(new SpinnerNumberModel(edtWatchdogThresholdMillis, 50, 60000, 50));
+        watchdogPanel.add(watchdogCheckBox);
+        watchdogPanel.add(watchdogSpinner);
+        gbc.gridy = 4;
+        generalPanel.add(watchdogPanel, gbc);
+
+        JPanel apiPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
+        JCheckBox apiCheckBox = new JCheckBox("Local HTTP API on port: ", apiEnabled);
+        JSpinner apiPortSpinner = new JSpinner(new SpinnerNumberModel(apiPort, 1024, 65535, 1));
+        apiPortSpinner.setEditor(new JSpinner.NumberEditor(apiPortSpinner, "#"));
+        apiPanel.add(apiCheckBox);
+        apiPanel.add(apiPortSpinner);
+        gbc.gridy = 5;
+        generalPanel.add(apiPanel, gbc);
+
+        tabbedPane.addTab("General", generalPanel);
+
+        // Theme Settings Tab
+        JPanel themePanel = new JPanel(new GridBagLayout());
+        gbc = new GridBagConstraints();
+        gbc.insets = new Insets(10, 10, 10, 10);
+        gbc.anchor = GridBagConstraints.WEST;
+
+        JLabel themeLabel = new JLabel("Theme:");
+        String[] themes = {"Default", "Light", "Dark", "Blue"};
+        JComboBox<String> themeComboBox = new JComboBox<>(themes);
+        themeComboBox.setSelectedItem(currentTheme);
+
+        JButton primaryColorButton = new JButton("Primary Color");
+        primaryColorButton.setBackground(primaryColor);
+        primaryColorButton.setForeground(Color.WHITE);
+
+        JButton secondaryColorButton = new JButton("Secondary Color");
+        secondaryColorButton.setBackground(secondaryColor);
+        secondaryColorButton.setForeground(Color.WHITE);
+
+        gbc.gridx = 0; gbc.gridy = 0;
+        themePanel.add(themeLabel, gbc);
+        gbc.gridx = 1;
+        themePanel.add(themeComboBox, gbc);
+
+        gbc.gridx = 0; gbc.gridy = 1;
+        themePanel.add(new JLabel("Colors:"), gbc);
+
+        gbc.gridx = 0; gbc.gridy = 2;
+        themePanel.add(primaryColorButton, gbc);
+        gbc.gridx = 1;
+        themePanel.add(secondaryColorButton, gbc);
+
+        // Color chooser events
+        primaryColorButton.addActionListener(e -> {
+            Color newColor = JColorChooser.showDialog(settingsDialog, "Choose Primary Color", primaryColor);
+            if (newColor != null) {
+                primaryColor = newColor;
+                primaryColorButton.setBackground(newColor);
+            }
+        });
+
+        secondaryColorButton.addActionListener(e -> {
+            Color newColor = JColorChooser.showDialog(settingsDialog, "Choose Secondary Color", secondaryColor);
+            if (newColor != null) {
+                secondaryColor = newColor;
+                secondaryColorButton.setBackground(newColor);
+            }
+        });
+
+        tabbedPane.addTab("Theme", themePanel);
+
+        // Buttons Panel
+        JPanel buttonPanel = new JPanel(new FlowLayout());
+        JButton saveSettingsButton = new JButton("Save");
+        JButton cancelButton = new JButton("Cancel");
+        JButton resetButton = new JButton("Reset to Defaults");
+
+        styleButton(saveSettingsButton, new Color(46, 125, 50));
+        styleButton(cancelButton, new Color(158, 158, 158));
+        styleButton(resetButton, new Color(211, 47, 47));
+
+        saveSettingsButton.addActionListener(e -> {
+            boolean wasAutoSave = autoSave;
+            autoSave = autoSaveCheckBox.isSelected();
+            showConfirmDialogs = confirmDialogsCheckBox.isSelected();
+            currentTheme = (String) themeComboBox.getSelectedItem();
+            undoMemoryMegabytes = (Integer) undoMemorySpinner.getValue();
+            writeMetricsOnExit = metricsCheckBox.isSelected();
+            TaskMetrics.setDumpFile(writeMetricsOnExit ? new File(METRICS_FILE) : null);
+            edtWatchdog = watchdogCheckBox.isSelected();
+            edtWatchdogThresholdMillis = (Integer) watchdogSpinner.getValue();
+            updateEdtWatchdog();
+            apiEnabled = apiCheckBox.isSelected();
+            apiPort = (Integer) apiPortSpinner.getValue();
+            updateApiServer();
+            for (OpenTaskList list : openLists.values()) {
+                list.getUndoLog().setMemoryLimit((long) undoMemoryMegabytes << 20);
+            }
+            updateUndoButtons();
+            
+            saveSettings();
+            if (autoSave && !wasAutoSave) {
+                // The journal only records edits on top of a current snapshot
+                saveOpenLists();
+            }
+            applyButtonStyle();
+            applyTheme();
+            settingsDialog.dispose();
+            
+            JOptionPane.showMessageDialog(this, "Settings saved successfully!", 
+                                        "Settings", JOptionPane.INFORMATION_MESSAGE);
+        });
+
+        cancelButton.addActionListener(e -> settingsDialog.dispose());
+
+        resetButton.addActionListener(e -> {
+            int confirm = JOptionPane.showConfirmDialog(settingsDialog, 
+                "Reset all settings to defaults?", "Confirm Reset", JOptionPane.YES_NO_OPTION);
+            if (confirm == JOptionPane.YES_OPTION) {
+                autoSave = true;
+                showConfirmDialogs = true;
+                currentTheme = "Default";
+                undoMemoryMegabytes = (int) (UndoLog.DEFAULT_MEMORY_LIMIT >> 20);
+                undoMemorySpinner.setValue(undoMemoryMegabytes);
+                writeMetricsOnExit = false;
+                metricsCheckBox.setSelected(writeMetricsOnExit);
+                edtWatchdog = false;
+                edtWatchdogThresholdMillis = (int) EdtWatchdog.DEFAULT_THRESHOLD_MILLIS;
+                watchdogCheckBox.setSelected(edtWatchdog);
+                watchdogSpinner.setValue(edtWatchdogThresholdMillis);
+                apiEnabled = false;
+                apiPort = TaskApiServer.DEFAULT_PORT;
+                apiCheckBox.setSelected(apiEnabled);
+                apiPortSpinner.setValue(apiPort);
+                primaryColor = new Color(46, 125, 50);
+                secondaryColor = new Color(25, 118, 210);
+                
+                autoSaveCheckBox.setSelected(autoSave);
+                confirmDialogsCheckBox.setSelected(showConfirmDialogs);
+                themeComboBox.setSelectedItem(currentTheme);
+                primaryColorButton.setBackground(primaryColor);
+                secondaryColorButton.setBackground(secondaryColor);
+            }
+        });
+
+        buttonPanel.add(saveSettingsButton);
+        buttonPanel.add(cancelButton);
+        buttonPanel.add(resetButton);
+
+        settingsDialog.add(tabbedPane, BorderLayout.CENTER);
+        settingsDialog.add(buttonPanel, BorderLayout.SOUTH);
+        settingsDialog.setVisible(true);
+    }
+
+    // Stalls go to EdtWatchdog.LOG_FILE
+    private void updateEdtWatchdog() {
+        if (edtWatchdog) {
+            EdtWatchdog.start(edtWatchdogThresholdMillis);
+        } else {
+            EdtWatchdog.stop();
+        }
+    }
+
+    // Starts, stops or moves the local API to match the settings
+    private void updateApiServer() {
+        if (apiServer != null && (!apiEnabled || apiServer.getPort() != apiPort)) {
+            apiServer.stop();
+            apiServer = null;
+        }
+        if (apiEnabled && apiServer == null) {
+            try {
+                apiServer = TaskApiServer.start(new ApiBackend(), apiPort);
+            } catch (IOException e) {
+                JOptionPane.showMessageDialog(this, "Could not start the local API on port " + apiPort + ": "
+                        + e.getMessage(), "API Error", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+
+    // API edits go through the same helpers, journal and undo log as the
+    // buttons, on whichever list is shown
+    private class ApiBackend implements TaskApiServer.Backend {
+        @Override
+        public String getListName() {
+            return currentList.getName();
+        }
+
+        @Override
+        public TaskModel getModel() {
+            return listModel;
+        }
+
+        @Override
+        public boolean isBusy() {
+            return loading;
+        }
+
+        @Override
+        public List<Task> addTasks(List<TaskApiServer.NewTask> newTasks) {
+            List<Task> tasks = new ArrayList<>(newTasks.size());
+            int[] indices = new int[newTasks.size()];
+            for (int i = 0; i < indices.length; i++) {
+                TaskApiServer.NewTask newTask = newTasks.get(i);
+                Task task = new Task(nextTaskId++, newTask.description);
+                task.setCompleted(newTask.completed);
+                task.setDue(newTask.due);
+                tasks.add(task);
+                indices[i] = listModel.getSize() + i;
+            }
+            insertTasks(indices, tasks);
+            recordUndo(UndoLog.Operation.add(indices, tasks));
+            return tasks;
+        }
+
+        @Override
+        public void setCompleted(int[] indices, boolean completed) {
+            changeCompleted(indices, completed);
+        }
+
+        @Override
+        public void delete(int[] indices) {
+            List<Task> removedTasks = removeTasks(indices);
+            recordUndo(UndoLog.Operation.delete(indices, removedTasks));
+        }
+    }
+
+    private void showAboutDialog() {
+        JDialog aboutDialog = new JDialog(this, "About", true);
+        aboutDialog.setSize(350, 250);
+        aboutDialog.setLocationRelativeTo(this);
+        aboutDialog.setLayout(new BorderLayout());
+
+        JPanel contentPanel = new JPanel(new GridBagLayout());
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(10, 10, 10, 10);
+
+        JLabel titleLabel = new JLabel("To-Do List Manager");
+        titleLabel.setFont(new Font("Arial", Font.BOLD, 18));
+        
+        JLabel versionLabel = new JLabel("Version 2.0");
+        versionLabel.setFont(new Font("Arial", Font.PLAIN, 14));
+        
+        JLabel descLabel = new JLabel("<html><center>A simple and elegant task management<br>application with customizable themes<br>and persistent storage.</center></html>");
+        descLabel.setFont(new Font("Arial", Font.PLAIN, 12));
+        
+        JLabel authorLabel = new JLabel("Built with Java Swing");
+        authorLabel.setFont(new Font("Arial", Font.ITALIC, 10));
+
+        gbc.gridx = 0; gbc.gridy = 0;
+        contentPanel.add(titleLabel, gbc);
+        gbc.gridy = 1;
+        contentPanel.add(versionLabel, gbc);
+        gbc.gridy = 2;
+        contentPanel.add(descLabel, gbc);
+        gbc.gridy = 3;
+        contentPanel.add(authorLabel, gbc);
+
+        JButton closeButton = new JButton("Close");
+        styleButton(closeButton, new Color(96, 125, 139));
+        closeButton.addActionListener(e -> aboutDialog.dispose());
+
+        JPanel buttonPanel = new JPanel(new FlowLayout());
+        buttonPanel.add(closeButton);
+
+        aboutDialog.add(contentPanel, BorderLayout.CENTER);
+        aboutDialog.add(buttonPanel, BorderLayout.SOUTH);
+        aboutDialog.setVisible(true);
+    }
+
+    private void addTask() {
+        String taskText = taskInput.getText().trim();
+        if (!taskText.isEmpty()) {
+            int duplicate = listModel.getIndex().indexOfDuplicate(taskText);
+            if (duplicate >= 0) {
+                JOptionPane.showMessageDialog(this, "\"" + listModel.getElementAt(duplicate).getDescription()
+                        + "\" is already in the list.", "Duplicate Task", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+            Task newTask = new Task(nextTaskId++, taskText);
+            listModel.add(newTask);
+            if (listModel.isSearchable()) {
+                searchIndex.add(newTask);
+            }
+            updateSearch();
+            taskInput.setText("");
+            taskInput.requestFocus();
+            
+            if (autoSave && !listModel.isWriteThrough()) {
+                persistence.recordAdd(newTask);
+            }
+            recordUndo(UndoLog.Operation.add(new int[] {listModel.getSize() - 1}, List.of(newTask)));
+        } else {
+            JOptionPane.showMessageDialog(this, "Please enter a task description!", 
+                                        "Empty Task", JOptionPane.WARNING_MESSAGE);
+        }
+    }
+
+    // Completes every selected task in one batch. If all of them are
+    // already completed, they are reopened instead.
+    private void markTaskComplete() {
+        int[] indices = getSelectedModelIndices();
+        if (indices.length > 0) {
+            boolean completed = false;
+            for (int index : indices) {
+                if (!listModel.getElementAt(index).isCompleted()) {
+                    completed = true;
+                    break;
+                }
+            }
+
+            changeCompleted(indices, completed);
+        } else {
+            JOptionPane.showMessageDialog(this, "Please select a task to mark as complete!", 
+                                        "No Selection", JOptionPane.INFORMATION_MESSAGE);
+        }
+    }
+
+    // Only the tasks that actually change are set and recorded, so undo can
+    // simply invert them
+    private void changeCompleted(int[] indices, boolean completed) {
+        int[] changed = new int[indices.length];
+        int count = 0;
+        for (int index : indices) {
+            if (listModel.getElementAt(index).isCompleted() != completed) {
+                changed[count++] = index;
+            }
+        }
+        if (count == 0) {
+            return;
+        }
+        changed = Arrays.copyOf(changed, count);
+        setTasksCompleted(changed, completed);
+        recordUndo(UndoLog.Operation.setCompleted(changed, completed));
+    }
+
+    // Sets or clears the due date of every selected task in one batch
+    private void setDueDate() {
+        int[] indices = getSelectedModelIndices();
+        if (indices.length == 0) {
+            JOptionPane.showMessageDialog(this, "Please select a task to set a due date for!", 
+                                        "No Selection", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        Task first = listModel.getElementAt(indices[0]);
+        Object input = JOptionPane.showInputDialog(this, "Due date (yyyy-MM-dd HH:mm), empty for none:", "Set Due Date",
+                                                   JOptionPane.QUESTION_MESSAGE, null, null,
+                                                   first.hasDue() ? Task.formatDue(first.getDue()) : "");
+        if (input == null) {
+            return;
+        }
+        long due;
+        try {
+            due = input.toString().trim().isEmpty() ? 0 : Task.parseDue(input.toString());
+        } catch (IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(this, e.getMessage(), "Set Due Date", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        changeDue(indices, due);
+    }
+
+    // Like changeCompleted, only the tasks whose due time changes are set,
+    // and their old due times recorded for undo
+    private void changeDue(int[] indices, long due) {
+        int[] changed = new int[indices.length];
+        long[] previous = new long[indices.length];
+        int count = 0;
+        for (int index : indices) {
+            long old = listModel.getElementAt(index).getDue();
+            if (old != due) {
+                previous[count] = old;
+                changed[count++] = index;
+            }
+        }
+        if (count == 0) {
+            return;
+        }
+        changed = Arrays.copyOf(changed, count);
+        setTasksDue(changed, due);
+        recordUndo(UndoLog.Operation.setDue(changed, Arrays.copyOf(previous, count), due));
+    }
+
+    // Deletes every selected task in one batch, after one confirmation
+    private void deleteTask() {
+        int[] indices = getSelectedModelIndices();
+        if (indices.length > 0) {
+            boolean confirmDelete = true;
+            if (showConfirmDialogs) {
+                String question = indices.length == 1
+                        ? "Are you sure you want to delete this task?"
+                        : "Are you sure you want to delete these " + indices.length + " tasks?";
+                int confirm = JOptionPane.showConfirmDialog(this, question,
+                    "Confirm Delete", JOptionPane.YES_NO_OPTION);
+                confirmDelete = (confirm == JOptionPane.YES_OPTION);
+            }
+            
+            if (confirmDelete) {
+                List<Task> removedTasks = removeTasks(indices);
+                recordUndo(UndoLog.Operation.delete(indices, removedTasks));
+            }
+        } else {
+            JOptionPane.showMessageDialog(this, "Please select a task to delete!", 
+                                        "No Selection", JOptionPane.INFORMATION_MESSAGE);
+        }
+    }
+
+    private void saveTasksToFile() {
+        if (listModel instanceof PagedTaskListModel) {
+            // Edits are already in the mapped store; just push them to disk,
+            // off the EDT
+            Runnable force = ((PagedTaskListModel) listModel).forceLater();
+            int size = listModel.getSize();
+            persistence.submit(journal -> {
+                long start = System.nanoTime();
+                force.run();
+                TaskMetrics.SAVE.recordSince(start, 0, size);
+            }, autoSave ? null : () ->
+                JOptionPane.showMessageDialog(this, "Tasks saved successfully!", 
+                                            "Save Complete", JOptionPane.INFORMATION_MESSAGE), null);
+            return;
+        }
+        if (autoSave) {
+            // Already journaled; the snapshot must not undo another process's changes
+            persistence.saveJournaledSnapshot(currentList.copyTasks(), null);
+            return;
+        }
+        persistence.saveSnapshot(currentList.copyTasks(), () ->
+            JOptionPane.showMessageDialog(this, "Tasks saved successfully!", 
+                                        "Save Complete", JOptionPane.INFORMATION_MESSAGE));
+    }
+
+    private void showSaveError(IOException e) {
+        JOptionPane.showMessageDialog(this, "Error saving tasks: " + e.getMessage(), 
+                                    "Save Error", JOptionPane.ERROR_MESSAGE);
+    }
+
+    private void loadTasksFromFile() {
+        long start = System.nanoTime();
+        OpenTaskList list = currentList;
+        // New tasks could collide with ids that have not been streamed in yet
+        setLoading(true);
+        // The loader reads the store file, so a paged model must let go of it
+        closePagedModel();
+        persistence.load(new PersistenceWorker.LoadListener() {
+            @Override
+            public void loadStarting(int expectedTasks, long nextId) {
+                // Ids another window has reserved are above every task loaded
+                nextTaskId = Math.max(nextTaskId, nextId);
+                // A large list is kept in columns; anything smaller as Task objects
+                boolean columnar = expectedTasks >= TaskStore.COLUMNAR_LOAD_THRESHOLD;
+                if (columnar != listModel instanceof ColumnarTaskListModel) {
+                    setListModel(columnar ? new ColumnarTaskListModel() : new TaskListModel());
+                }
+            }
+
+            @Override
+            public void tasksLoaded(List<Task> tasks, boolean first, int percent) {
+                if (first) {
+                    listModel.replaceAll(tasks);
+                    searchIndex.clear();
+                    undoLog.clear();
+                } else {
+                    listModel.addAll(tasks);
+                }
+                if (listModel.isSearchable()) {
+                    searchIndex.addAll(tasks);
+                }
+                updateSearch();
+                for (Task task : tasks) {
+                    nextTaskId = Math.max(nextTaskId, task.getId() + 1);
+                }
+                loadProgress.setValue(percent);
+            }
+
+            @Override
+            public void pagedStoreReady(PagedTaskListModel pagedModel, long nextId) {
+                setListModel(pagedModel);
+                nextTaskId = Math.max(nextTaskId, Math.max(nextId, pagedModel.getNextId()));
+            }
+
+            @Override
+            public void loadFinished() {
+                TaskMetrics.LOAD.recordSince(start, 0, listModel.getSize());
+                scheduleReminders(list);
+                setLoading(false);
+                if (EXIT_AFTER_STARTUP) {
+                    System.exit(0);
+                }
+            }
+
+            @Override
+            public void loadFailed(IOException e) {
+                if (EXIT_AFTER_STARTUP) {
+                    System.exit(1);
+                }
+                setLoading(false);
+                JOptionPane.showMessageDialog(TodoListFrame.this, "Error loading tasks: " + e.getMessage(), 
+                                            "Load Error", JOptionPane.ERROR_MESSAGE);
+            }
+        });
+    }
+
+    // Bulk import of a CSV or JSON dump from another tracker. The file is
+    // parsed and checked for duplicates in the background while the list
+    // stays visible; the new tasks then go in as one edit, which a single
+    // undo takes back out.
+    private void importTasks() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new FileNameExtensionFilter("Task dumps (CSV, JSON, JSON Lines)",
+                                                          "csv", "json", "jsonl", "ndjson"));
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = chooser.getSelectedFile();
+        if (!TaskImport.canImport(file)) {
+            JOptionPane.showMessageDialog(this, "Please choose a .csv, .json or .jsonl file!", 
+                                        "Import Tasks", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+
+        long start = System.nanoTime();
+        TaskImport job = new TaskImport(file, listModel.getIndex().contentHashes());
+        runningImport = job;
+        // Loading mode keeps the list from changing under the duplicate check
+        setLoading(true);
+        cancelImportButton.setVisible(true);
+        Thread thread = new Thread(() -> {
+            try {
+                TaskImport.Result result = job.run(percent -> SwingUtilities.invokeLater(
+                        () -> loadProgress.setValue(Math.max(loadProgress.getValue(), percent))));
+                SwingUtilities.invokeLater(() -> finishImport(job, result, file, start));
+            } catch (CancellationException e) {
+                SwingUtilities.invokeLater(this::endImport);
+            } catch (IOException | RuntimeException | OutOfMemoryError e) {
+                SwingUtilities.invokeLater(() -> {
+                    endImport();
+                    JOptionPane.showMessageDialog(this, "Error importing tasks: " + e.getMessage(), 
+                                                "Import Error", JOptionPane.ERROR_MESSAGE);
+                });
+            }
+        }, "task-import");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void finishImport(TaskImport job, TaskImport.Result result, File file, long start) {
+        endImport();
+        if (job.isCancelled()) {
+            return;
+        }
+        List<Task> tasks = new ArrayList<>(result.rows.size());
+        int[] indices = new int[result.rows.size()];
+        for (int i = 0; i < indices.length; i++) {
+            TaskImport.Row row = result.rows.get(i);
+            Task task = new Task(nextTaskId++, row.description);
+            task.setCompleted(row.completed);
+            tasks.add(task);
+            indices[i] = listModel.getSize() + i;
+        }
+        if (!tasks.isEmpty()) {
+            insertTasks(indices, tasks);
+            recordUndo(UndoLog.Operation.add(indices, tasks));
+        }
+        TaskMetrics.IMPORT.recordSince(start, file.length(), tasks.size());
+        JOptionPane.showMessageDialog(this, "Imported " + tasks.size() + (tasks.size() == 1 ? " task" : " tasks")
+                                      + ", skipped " + result.duplicates
+                                      + (result.duplicates == 1 ? " duplicate." : " duplicates."),
+                                      "Import Tasks", JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    private void endImport() {
+        runningImport = null;
+        cancelImportButton.setVisible(false);
+        setLoading(false);
+    }
+
+    // Every open list that keeps its tasks on the heap is written out whole
+    private void saveOpenLists() {
+        for (OpenTaskList list : openLists.values()) {
+            if (list == currentList) {
+                saveTasksToFile();
+            } else if (!list.getModel().isWriteThrough()) {
+                if (autoSave) {
+                    list.getPersistence().saveJournaledSnapshot(list.copyTasks(), null);
+                } else {
+                    list.getPersistence().saveSnapshot(list.copyTasks(), null);
+                }
+            }
+        }
+    }
+
+    // Shows another list. An open list is swapped in as it was left; any
+    // other one is opened and loaded in the background.
+    private void switchToList(String name) {
+        if (currentList != null) {
+            currentList.setNextTaskId(nextTaskId);
+        }
+        OpenTaskList list = openList(name);
+        currentList = list;
+        listModel = list.getModel();
+        searchIndex = list.getSearchIndex();
+        searchModel = list.getSearchModel();
+        persistence = list.getPersistence();
+        undoLog = list.getUndoLog();
+        nextTaskId = list.getNextTaskId();
+
+        taskList.clearSelection();
+        searchInput.setText("");
+        updateSearchControls();
+        updateViewControls();
+        updateSearch();
+        listSelector.setSelectedItem(name);
+        setTitle("To-Do List Manager v2.0 - " + name);
+        updateUndoButtons();
+
+        // Until the window has painted, the first load waits for it
+        if (!list.isLoaded() && painted) {
+            list.setLoaded(true);
+            loadTasksFromFile();
+        }
+        closeLeastRecentlyUsedLists();
+    }
+
+    private OpenTaskList openList(String name) {
+        OpenTaskList list = openLists.get(name);
+        if (list == null) {
+            list = new OpenTaskList(name, (long) undoMemoryMegabytes << 20, this::showSaveError);
+            openLists.put(name, list);
+            if (fileWatcher != null) {
+                try {
+                    fileWatcher.watch(list.getStore().getSnapshotFile().getAbsoluteFile().getParentFile());
+                } catch (IOException e) {
+                    // Not watched; Load Tasks still picks up other processes' changes
+                }
+            }
+        }
+        return list;
+    }
+
+    // Asks every open list whose files were touched to check for changes
+    // by another process. Without auto-save the window holds edits that are
+    // not on disk, so the files are only read again on Load Tasks.
+    private void taskFilesChanged(Set<File> files) {
+        if (!autoSave) {
+            return;
+        }
+        for (OpenTaskList list : openLists.values()) {
+            File snapshotFile = list.getStore().getSnapshotFile().getAbsoluteFile();
+            if (list.getModel().isWriteThrough()
+                    || !(files.contains(snapshotFile) || files.contains(snapshotFile.getParentFile())
+                         || files.contains(list.getStore().getJournal().getFile().getAbsoluteFile()))) {
+                continue;
+            }
+            list.getPersistence().checkForExternalChanges((tasks, nextId) -> applyExternalChanges(list, tasks, nextId));
+        }
+    }
+
+    // Brings an open list up to date with its files after another process
+    // (the command line, a second window) changed them; see TaskListDiff.
+    // Nothing is journaled, as the changes are already on disk. The undo
+    // history refers to exact positions, so it is dropped if anything
+    // changed.
+    private boolean applyExternalChanges(OpenTaskList list, List<Task> tasks, long nextId) {
+        if (!openLists.containsValue(list)) {
+            return true; // closed since
+        }
+        if (list == currentList && loading) {
+            return false;
+        }
+        TaskModel model = list.getModel();
+        if (model.isWriteThrough()) {
+            return true;
+        }
+
+        if (list == currentList) {
+            nextTaskId = Math.max(nextTaskId, nextId);
+        } else {
+            list.setNextTaskId(Math.max(list.getNextTaskId(), nextId));
+        }
+        if (!TaskListDiff.apply(model, tasks, list.getSearchIndex())) {
+            return true;
+        }
+        list.getUndoLog().clear();
+        scheduleReminders(list);
+        if (list == currentList) {
+            updateSearch();
+            updateUndoButtons();
+        }
+        return true;
+    }
+
+    // Lists past MAX_OPEN_LISTS are closed, oldest first. Without auto-save
+    // a list on the heap may hold unsaved edits, so it stays open.
+    private void closeLeastRecentlyUsedLists() {
+        Iterator<OpenTaskList> oldestFirst = openLists.values().iterator();
+        while (openLists.size() > MAX_OPEN_LISTS && oldestFirst.hasNext()) {
+            OpenTaskList list = oldestFirst.next();
+            if (list == currentList || !(autoSave || list.getModel().isWriteThrough())) {
+                continue;
+            }
+            oldestFirst.remove();
+            reminders.cancelAll(list);
+            list.close();
+        }
+    }
+
+    private void createList() {
+        String name = JOptionPane.showInputDialog(this, "Name of the new list:", "New List",
+                                                  JOptionPane.QUESTION_MESSAGE);
+        if (name == null) {
+            return;
+        }
+        name = name.trim();
+        if (!TaskStore.isValidListName(name)) {
+            JOptionPane.showMessageDialog(this, "List names may only use letters, digits, spaces, '-' and '_'\n"
+                    + "(at most " + TaskStore.MAX_LIST_NAME_LENGTH + " characters).", "New List", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        int position = 1;
+        for (; position < listSelector.getItemCount(); position++) {
+            int order = String.CASE_INSENSITIVE_ORDER.compare(name, listSelector.getItemAt(position));
+            if (order == 0) {
+                JOptionPane.showMessageDialog(this, "A list named \"" + listSelector.getItemAt(position)
+                        + "\" already exists.", "New List", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+            if (order < 0) {
+                break;
+            }
+        }
+
+        // The empty snapshot creates the list's file, so it is there on the
+        // next start even if nothing is added to it
+        OpenTaskList list = openList(name);
+        list.setLoaded(true);
+        list.getPersistence().saveSnapshot(new ArrayList<>(), null);
+        listSelector.insertItemAt(name, position);
+        switchToList(name);
+    }
+
+    // Swaps a paged model out while the persistence thread works on it, and
+    // back in once it is done. It comes back with the same rows or none at
+    // all, so unlike setListModel the undo history is kept.
+    private void detachListModel(TaskModel model) {
+        taskList.clearSelection();
+        listModel = model;
+        currentList.setModel(model);
+        updateSearch();
+    }
+
+    private void setListModel(TaskModel model) {
+        listModel = model;
+        currentList.setModel(model);
+        // The undo history refers to positions in the old list
+        undoLog.clear();
+        // Paged lists are too large to index on the heap, so they cannot be
+        // searched
+        searchIndex.clear();
+        searchInput.setText("");
+        updateSearchControls();
+        updateViewControls();
+        updateSearch();
+    }
+
+    // A paged list has no search index or views; the status line says
+    // why their controls are disabled
+    private void updateSearchControls() {
+        boolean searchable = listModel.isSearchable();
+        searchInput.setEnabled(searchable);
+        searchStatus.setVisible(!searchable);
+    }
+
+    // Only searchable lists have views; paged ones always show everything
+    // in list order
+    private void updateViewControls() {
+        boolean enabled = listModel.isSearchable();
+        viewSelector.setEnabled(enabled);
+        sortByNameBox.setEnabled(enabled);
+    }
+
+    // The chosen view of the list, which is the list model itself for all
+    // tasks in list order
+    private ListModel<Task> currentView() {
+        TaskViews.Filter filter = (TaskViews.Filter) viewSelector.getSelectedItem();
+        boolean sortByName = sortByNameBox.isSelected();
+        if (filter == TaskViews.Filter.ALL && !sortByName) {
+            return listModel;
+        }
+        TaskViews views = currentList.getViews();
+        return views != null ? views.get(filter, sortByName) : listModel;
+    }
+
+    // Shows the tasks matching the search field, or the chosen view if it
+    // is empty. Search results are always all matches in list order.
+    private void updateSearch() {
+        String query = searchInput.getText().trim();
+        if (query.isEmpty()) {
+            ListModel<Task> view = currentView();
+            if (taskList.getModel() != view) {
+                taskList.setModel(view);
+            }
+            return;
+        }
+        searchModel.setMatches(searchIndex.search(query));
+        if (taskList.getModel() != searchModel) {
+            taskList.setModel(searchModel);
+        }
+    }
+
+    // Model indices of the selected rows, ascending. A view knows where its
+    // rows are in the list; while a search is shown, the selected ids are
+    // looked up in the list's id index.
+    private int[] getSelectedModelIndices() {
+        int[] selected = taskList.getSelectedIndices();
+        if (selected.length == 0 || taskList.getModel() == listModel) {
+            return selected;
+        }
+        if (taskList.getModel() instanceof TaskViews.View) {
+            TaskViews.View view = (TaskViews.View) taskList.getModel();
+            int[] indices = new int[selected.length];
+            for (int i = 0; i < selected.length; i++) {
+                indices[i] = view.modelIndex(selected[i]);
+            }
+            Arrays.sort(indices);
+            return indices;
+        }
+        TaskIndex index = listModel.getIndex();
+        int[] indices = new int[selected.length];
+        int found = 0;
+        for (int row : selected) {
+            int position = index.indexOfId(searchModel.getIdAt(row));
+            if (position >= 0) {
+                indices[found++] = position;
+            }
+        }
+        Arrays.sort(indices, 0, found);
+        return found == indices.length ? indices : Arrays.copyOf(indices, found);
+    }
+
+    // The model is taken off the window here and closed on the persistence
+    // thread, which forces the mapping and writes the checksum
+    private void closePagedModel() {
+        if (listModel instanceof PagedTaskListModel) {
+            setListModel(new TaskListModel());
+            persistence.closePaged();
+        }
+    }
+
+    private void setLoading(boolean loading) {
+        this.loading = loading;
+        loadProgress.setValue(0);
+        loadProgress.setVisible(loading);
+        taskInput.setEnabled(!loading);
+        addButton.setEnabled(!loading);
+        completeButton.setEnabled(!loading);
+        deleteButton.setEnabled(!loading);
+        dueButton.setEnabled(!loading);
+        saveButton.setEnabled(!loading);
+        loadButton.setEnabled(!loading);
+        importButton.setEnabled(!loading);
+        massdeleteButton.setEnabled(!loading);
+        restoreButton.setEnabled(!loading);
+        // Loads and archive reads call back into the list they started on
+        listSelector.setEnabled(!loading);
+        newListButton.setEnabled(!loading);
+        if (loading) {
+            undoButton.setEnabled(false);
+            redoButton.setEnabled(false);
+        } else {
+            updateUndoButtons();
+            if (apiServer != null) {
+                apiServer.resume();
+            }
+        }
+    }
+
+    // Custom renderer for the task list. It runs for every visible row on
+    // every paint, so it allocates nothing: fonts are derived once per list
+    // font, the status mark is drawn by an icon instead of being
+    // concatenated onto the description, and the label text is kept by the
+    // task. Setting it does not fire a property change, which would cost an
+    // event per row; the label UI only listens for one to render HTML, and
+    // task text is shown as it was typed.
+    static class TaskRenderer extends DefaultListCellRenderer {
+        private static final Color COMPLETED_COLOR = new Color(100, 100, 100);
+        private static final Color OVERDUE_COLOR = new Color(198, 40, 40);
+
+        private final StatusIcon completedIcon = new StatusIcon("\u2713");
+        private final StatusIcon pendingIcon = new StatusIcon("\u25cb");
+        private Font baseFont;
+        private Font plainFont;
+        private Font italicFont;
+
+        @Override
+        public Component getListCellRendererComponent(JList<?> list, Object value, 
+                int index, boolean isSelected, boolean cellHasFocus) {
+            Object text = value instanceof Task ? ((Task) value).getLabel() : value;
+            super.getListCellRendererComponent(list, text, index, isSelected, cellHasFocus);
+            
+            if (value instanceof Task) {
+                Task task = (Task) value;
+                if (list.getFont() != baseFont) {
+                    updateFonts(list.getFont());
+                }
+                
+                if (task.isCompleted()) {
+                    setIcon(completedIcon);
+                    setForeground(isSelected ? Color.WHITE : COMPLETED_COLOR);
+                    setFont(italicFont);
+                } else {
+                    setIcon(pendingIcon);
+                    boolean overdue = task.hasDue() && task.getDue() <= System.currentTimeMillis();
+                    setForeground(isSelected ? Color.WHITE : overdue ? OVERDUE_COLOR : Color.BLACK);
+                    setFont(plainFont);
+                }
+            }
+            
+            return this;
+        }
+
+        @Override
+        protected void firePropertyChange(String propertyName, Object oldValue, Object newValue) {
+            if (!"text".equals(propertyName)) {
+                super.firePropertyChange(propertyName, oldValue, newValue);
+            }
+        }
+
+        private void updateFonts(Font font) {
+            baseFont = font;
+            plainFont = font.deriveFont(Font.PLAIN);
+            italicFont = font.deriveFont(Font.ITALIC);
+            completedIcon.resize(getFontMetrics(plainFont), getFontMetrics(italicFont));
+            pendingIcon.resize(getFontMetrics(plainFont), getFontMetrics(italicFont));
+        }
+    }
+
+    // Draws a task status mark in the label's current font and colour
+    private static class StatusIcon implements Icon {
+        private final String mark;
+        private int width;
+        private int height;
+        private int ascent;
+
+        StatusIcon(String mark) {
+            this.mark = mark;
+        }
+
+        void resize(FontMetrics plain, FontMetrics italic) {
+            width = Math.max(plain.stringWidth(mark), italic.stringWidth(mark));
+            height = Math.max(plain.getHeight(), italic.getHeight());
+            ascent = Math.max(plain.getAscent(), italic.getAscent());
+        }
+
+        @Override
+        public void paintIcon(Component c, Graphics g, int x, int y) {
+            g.setFont(c.getFont());
+            g.setColor(c.getForeground());
+            g.drawString(mark, x, y + ascent);
+        }
+
+        @Override
+        public int getIconWidth() {
+            return width;
+        }
+
+        @Override
+        public int getIconHeight() {
+            return height;
+        }
+    }
+
+    public static void main(String[] args) {
+        // Make the system look and feel the default one rather than setting
+        // it, which would first load the cross-platform one only to replace
+        // it. Swing then loads a single look and feel, on the EDT, when the
+        // first component is made.
+        if (System.getProperty("swing.defaultlaf") == null) {
+            System.setProperty("swing.defaultlaf", UIManager.getSystemLookAndFeelClassName());
+        }
+
+        SwingUtilities.invokeLater(() -> {
+            new TodoListFrame().setVisible(true);
+        });
+        // The main thread is otherwise idle; JMX is slow to initialize
+        TaskMetrics.registerMBeans();
+    }
+}
@@ -0,0 +1,229 @@
+package todo;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+// Undo and redo stacks of list edits. Each record holds only what is
+// needed to invert the edit: the list positions it touched and, for adds
+// and deletes, the tasks themselves. Records are applied strictly in stack
+// order, so the positions are always exact and every undo or redo is one
+// bulk model operation.
+//
+// The stacks share a memory limit (an estimate of the bytes the records
+// keep alive). A mass delete is checkpointed once its session is in the
+// MassDeleteArchive: the record then drops its tasks and reads them back
+// from the archive when undone. When the limit is still exceeded, the
+// oldest records are forgotten. Everything except Operation.setSession is
+// for the EDT only.
+class UndoLog {
+    static final long DEFAULT_MEMORY_LIMIT = 32L << 20;
+
+    // Rough per-object costs for the memory estimate
+    private static final long RECORD_OVERHEAD = 64;
+    private static final long TASK_OVERHEAD = 80;
+
+    enum Kind {
+        ADD,            // tasks were inserted at indices
+        SET_COMPLETED,  // tasks at indices were set to completed, all of them changed
+        SET_DUE,        // tasks at indices had previous dues and were set to due
+        DELETE,         // tasks were removed from indices
+        MASS_DELETE     // the whole list (tasks, at 0..n-1) was cleared
+    }
+
+    static final class Operation {
+        private final Kind kind;
+        private final int[] indices;
+        private final boolean completed;
+        private final long[] previousDues;
+        private final long due;
+        private List<Task> tasks;
+        private volatile MassDeleteArchive.Session session;
+        private long size;
+
+        private Operation(Kind kind, int[] indices, List<Task> tasks, boolean completed) {
+            this(kind, indices, tasks, completed, null, 0);
+        }
+
+        private Operation(Kind kind, int[] indices, List<Task> tasks, boolean completed, long[] previousDues, long due) {
+            this.kind = kind;
+            this.indices = indices;
+            this.tasks = tasks;
+            this.completed = completed;
+            this.previousDues = previousDues;
+            this.due = due;
+            this.size = estimateSize();
+        }
+
+        static Operation add(int[] indices, List<Task> tasks) {
+            return new Operation(Kind.ADD, indices, tasks, false);
+        }
+
+        static Operation setCompleted(int[] indices, boolean completed) {
+            return new Operation(Kind.SET_COMPLETED, indices, null, completed);
+        }
+
+        static Operation setDue(int[] indices, long[] previousDues, long due) {
+            return new Operation(Kind.SET_DUE, indices, null, false, previousDues, due);
+        }
+
+        static Operation delete(int[] indices, List<Task> tasks) {
+            return new Operation(Kind.DELETE, indices, tasks, false);
+        }
+
+        static Operation massDelete(List<Task> tasks) {
+            return new Operation(Kind.MASS_DELETE, allIndices(tasks.size()), tasks, false);
+        }
+
+        // A mass delete whose tasks were never on the heap; it can only be
+        // undone from the archive
+        static Operation massDelete(int count) {
+            return new Operation(Kind.MASS_DELETE, allIndices(count), null, false);
+        }
+
+        private static int[] allIndices(int count) {
+            int[] indices = new int[count];
+            for (int i = 0; i < count; i++) {
+                indices[i] = i;
+            }
+            return indices;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public int[] getIndices() {
+            return indices;
+        }
+
+        public boolean isCompleted() {
+            return completed;
+        }
+
+        public long[] getPreviousDues() {
+            return previousDues;
+        }
+
+        public long getDue() {
+            return due;
+        }
+
+        // Null for a checkpointed mass delete; read getSession() instead
+        public List<Task> getTasks() {
+            return tasks;
+        }
+
+        public MassDeleteArchive.Session getSession() {
+            return session;
+        }
+
+        // Called on the persistence thread once a mass delete is archived
+        public void setSession(MassDeleteArchive.Session session) {
+            this.session = session;
+        }
+
+        private long estimateSize() {
+            long bytes = RECORD_OVERHEAD + (long) indices.length * Integer.BYTES;
+            if (previousDues != null) {
+                bytes += (long) previousDues.length * Long.BYTES;
+            }
+            if (tasks != null) {
+                for (Task task : tasks) {
+                    bytes += TASK_OVERHEAD + 2L * task.getDescription().length();
+                }
+            }
+            return bytes;
+        }
+    }
+
+    private final Deque<Operation> undoStack = new ArrayDeque<>();
+    private final Deque<Operation> redoStack = new ArrayDeque<>();
+    private long memoryLimit;
+    private long memoryUsed;
+
+    public UndoLog(long memoryLimit) {
+        this.memoryLimit = memoryLimit;
+    }
+
+    public void setMemoryLimit(long memoryLimit) {
+        this.memoryLimit = memoryLimit;
+        trim();
+    }
+
+    public long getMemoryUsed() {
+        return memoryUsed;
+    }
+
+    // Records a new edit; anything that could have been redone is dropped
+    public void record(Operation operation) {
+        for (Operation redo : redoStack) {
+            memoryUsed -= redo.size;
+        }
+        redoStack.clear();
+        undoStack.push(operation);
+        memoryUsed += operation.size;
+        trim();
+    }
+
+    // The session holding a mass delete's tasks has been written, so the
+    // record no longer needs to keep them in memory
+    public void checkpoint(Operation operation) {
+        if (operation.session == null || operation.tasks == null) {
+            return;
+        }
+        operation.tasks = null;
+        long size = operation.estimateSize();
+        if (undoStack.contains(operation) || redoStack.contains(operation)) {
+            memoryUsed -= operation.size - size;
+        }
+        operation.size = size;
+    }
+
+    public boolean canUndo() {
+        return !undoStack.isEmpty();
+    }
+
+    public boolean canRedo() {
+        return !redoStack.isEmpty();
+    }
+
+    // The edit to invert, or null; it moves to the redo stack
+    public Operation undo() {
+        Operation operation = undoStack.poll();
+        if (operation != null) {
+            redoStack.push(operation);
+        }
+        return operation;
+    }
+
+    // The edit to apply again, or null; it moves back to the undo stack
+    public Operation redo() {
+        Operation operation = redoStack.poll();
+        if (operation != null) {
+            undoStack.push(operation);
+        }
+        return operation;
+    }
+
+    public void clear() {
+        undoStack.clear();
+        redoStack.clear();
+        memoryUsed = 0;
+    }
+
+    // Forgets the oldest edits until the log fits its limit. Redo records
+    // are the newest state and go first; the most recent undo is kept even
+    // when it alone is over the limit.
+    private void trim() {
+        while (memoryUsed > memoryLimit && !redoStack.isEmpty()) {
+            memoryUsed -= redoStack.removeLast().size;
+        }
+        Iterator<Operation> oldestFirst = undoStack.descendingIterator();
+        while (memoryUsed > memoryLimit && undoStack.size() > 1) {
+            memoryUsed -= oldestFirst.next().size;
+            oldestFirst.remove();
+        }
+    }
+}
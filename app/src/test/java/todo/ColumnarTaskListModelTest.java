@@ -0,0 +1,40 @@
+package todo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class ColumnarTaskListModelTest {
+    private static Task task(long id, String description, boolean completed, long due) {
+        Task task = new Task(id, description);
+        task.setCompleted(completed);
+        task.setDue(due);
+        return task;
+    }
+
+    @Test
+    void keepsDuesThroughEdits() {
+        ColumnarTaskListModel model = new ColumnarTaskListModel();
+        model.replaceAll(List.of(task(1, "Buy milk", false, 100),
+                                 task(2, "Call the bank", true, 200),
+                                 task(3, "Water plants", false, 0),
+                                 task(4, "Pay rent", false, 400)));
+        assertEquals(100, model.getElementAt(0).getDue());
+        assertEquals(200, model.getElementAt(1).getDue());
+
+        model.setDue(new int[] {2}, 300);
+        model.removeAll(new int[] {0});
+        model.insertAll(new int[] {1}, List.of(task(5, "Café in 東京", false, 500)));
+        assertEquals(200, model.getElementAt(0).getDue());
+        assertEquals(500, model.getElementAt(1).getDue());
+        assertEquals(300, model.getElementAt(2).getDue());
+        assertEquals(400, model.getElementAt(3).getDue());
+
+        // Completed tasks and tasks without a due are skipped
+        List<String> visited = new ArrayList<>();
+        model.forEachPendingDue((index, id, due) -> visited.add(index + ":" + id + ":" + due));
+        assertEquals(List.of("1:5:500", "2:3:300", "3:4:400"), visited);
+    }
+}
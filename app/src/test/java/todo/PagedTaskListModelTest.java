@@ -0,0 +1,115 @@
+package todo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PagedTaskListModelTest {
+    @TempDir
+    File directory;
+
+    // True if the file ends in a checksum trailer right after its index
+    static boolean hasTrailer(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(TaskStoreFile.HEADER_SIZE);
+            channel.read(header, 0);
+            long end = header.getLong(TaskStoreFile.INDEX_OFFSET_OFFSET)
+                    + (long) header.getInt(TaskStoreFile.COUNT_OFFSET) * Long.BYTES;
+            if (channel.size() != end + TaskStoreFile.TRAILER_SIZE) {
+                return false;
+            }
+            ByteBuffer trailer = ByteBuffer.allocate(Integer.BYTES);
+            channel.read(trailer, end);
+            return trailer.getInt(0) == TaskStoreFile.CHECKSUM_MAGIC;
+        }
+    }
+
+    static List<Task> read(File file) throws IOException {
+        List<Task> tasks = new ArrayList<>();
+        TaskStoreFile.stream(file, tasks::add, progress -> { });
+        return tasks;
+    }
+
+    @Test
+    void closeWritesTheChecksumAgain() throws IOException {
+        File file = new File(directory, "tasks.dat");
+        TaskStoreFile.write(file, List.of(new Task(1, "Buy milk"), new Task(2, "Call the bank"), new Task(3, "Water plants")));
+        assertTrue(hasTrailer(file));
+
+        PagedTaskListModel model = new PagedTaskListModel(file);
+        assertFalse(hasTrailer(file));
+        model.setCompleted(new int[] {0}, true);
+        model.remove(1);
+        model.add(new Task(4, "Pay rent"));
+        model.setDue(new int[] {2}, 42);
+        model.close();
+        // A second close, as the shutdown job may do, changes nothing
+        model.close();
+
+        assertTrue(hasTrailer(file));
+        assertTrue(TaskStoreFile.verify(file));
+        List<Task> tasks = read(file);
+        assertEquals(3, tasks.size());
+        assertEquals("Buy milk", tasks.get(0).getDescription());
+        assertTrue(tasks.get(0).isCompleted());
+        assertEquals("Water plants", tasks.get(1).getDescription());
+        assertEquals("Pay rent", tasks.get(2).getDescription());
+        assertEquals(42, tasks.get(2).getDue());
+    }
+
+    @Test
+    void compactDropsRemovedRecords() throws IOException {
+        File file = new File(directory, "tasks.dat");
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 1; i <= 30_000; i++) {
+            tasks.add(new Task(i, "A task with a description of some length, number " + i));
+        }
+        TaskStoreFile.write(file, tasks, 40_000);
+        PagedTaskListModel model = new PagedTaskListModel(file);
+        assertFalse(model.needsCompaction());
+
+        // Every row but each third one: twice as much garbage as live records
+        int[] removed = new int[20_000];
+        for (int i = 0, k = 0; i < tasks.size(); i++) {
+            if (i % 3 != 0) {
+                removed[k++] = i;
+            }
+        }
+        model.removeAll(removed);
+        model.setCompleted(new int[] {1}, true);
+        assertTrue(model.needsCompaction());
+        long before = file.length();
+
+        model.compact();
+        assertFalse(model.needsCompaction());
+        assertTrue(file.length() < before / 2);
+        assertEquals(10_000, model.getSize());
+        assertEquals(4, model.getIdAt(1));
+        assertTrue(model.getElementAt(1).isCompleted());
+
+        // Edits carry on in the new file
+        model.add(new Task(40_000, "Added after"));
+        model.remove(0);
+        model.close();
+        assertTrue(hasTrailer(file));
+        assertTrue(TaskStoreFile.verify(file));
+        List<Task> read = read(file);
+        assertEquals(10_000, read.size());
+        assertEquals(4, read.get(0).getId());
+        assertTrue(read.get(0).isCompleted());
+        assertEquals("Added after", read.get(read.size() - 1).getDescription());
+        try (PagedTaskListModel reopened = new PagedTaskListModel(file)) {
+            assertEquals(40_001, reopened.getNextId());
+        }
+    }
+}
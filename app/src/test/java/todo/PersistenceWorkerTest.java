@@ -0,0 +1,138 @@
+package todo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import javax.swing.SwingUtilities;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PersistenceWorkerTest {
+    @TempDir
+    File directory;
+
+    private File storeFile() {
+        return new File(directory, "tasks.dat");
+    }
+
+    private PersistenceWorker worker() {
+        TaskStore store = new TaskStore(storeFile(), new File(directory, "tasks.txt"),
+                                        new TaskJournal(new File(directory, "tasks.journal").getPath()));
+        return new PersistenceWorker(store, ArrayList::new, e -> { });
+    }
+
+    // A store just large enough to be paged, loaded as a PagedTaskListModel
+    private PagedTaskListModel loadPaged(PersistenceWorker worker) throws Exception {
+        List<Task> tasks = new ArrayList<>(TaskStore.PAGED_LOAD_THRESHOLD);
+        for (int i = 1; i <= TaskStore.PAGED_LOAD_THRESHOLD; i++) {
+            tasks.add(new Task(i, "Task " + i));
+        }
+        TaskStoreFile.write(storeFile(), tasks);
+
+        CompletableFuture<PagedTaskListModel> opened = new CompletableFuture<>();
+        worker.load(new PersistenceWorker.LoadListener() {
+            @Override
+            public void loadStarting(int expectedTasks, long nextId) {
+                opened.completeExceptionally(new AssertionError("Loaded onto the heap"));
+            }
+
+            @Override
+            public void tasksLoaded(List<Task> tasks, boolean first, int percent) {
+            }
+
+            @Override
+            public void pagedStoreReady(PagedTaskListModel model, long nextId) {
+                opened.complete(model);
+            }
+
+            @Override
+            public void loadFinished() {
+            }
+
+            @Override
+            public void loadFailed(IOException e) {
+                opened.completeExceptionally(e);
+            }
+        });
+        PagedTaskListModel model = opened.get(30, TimeUnit.SECONDS);
+        assertFalse(PagedTaskListModelTest.hasTrailer(storeFile()));
+        return model;
+    }
+
+    // Ids another window reserved in the lock file are not handed out again
+    @Test
+    void loadStartsAtReservedIds() throws Exception {
+        TaskStoreFile.write(storeFile(), List.of(new Task(1, "Buy milk"), new Task(2, "Call the bank")));
+        TaskStore other = new TaskStore(storeFile(), new File(directory, "tasks.txt"),
+                                        new TaskJournal(new File(directory, "tasks.journal").getPath()));
+        Closeable lock = other.lock();
+        other.reserveIds(2000);
+        lock.close();
+
+        PersistenceWorker worker = worker();
+        CompletableFuture<Long> started = new CompletableFuture<>();
+        worker.load(new PersistenceWorker.LoadListener() {
+            @Override
+            public void loadStarting(int expectedTasks, long nextId) {
+                started.complete(nextId);
+            }
+
+            @Override
+            public void tasksLoaded(List<Task> tasks, boolean first, int percent) {
+            }
+
+            @Override
+            public void pagedStoreReady(PagedTaskListModel model, long nextId) {
+            }
+
+            @Override
+            public void loadFinished() {
+            }
+
+            @Override
+            public void loadFailed(IOException e) {
+                started.completeExceptionally(e);
+            }
+        });
+        assertEquals(2000, started.get(30, TimeUnit.SECONDS));
+        worker.close();
+    }
+
+    private void assertClosedWithEdit() throws IOException {
+        assertTrue(PagedTaskListModelTest.hasTrailer(storeFile()));
+        assertTrue(TaskStoreFile.verify(storeFile()));
+        List<Task> tasks = PagedTaskListModelTest.read(storeFile());
+        assertEquals(TaskStore.PAGED_LOAD_THRESHOLD, tasks.size());
+        assertTrue(tasks.get(0).isCompleted());
+    }
+
+    @Test
+    void closePagedWritesTheChecksum() throws Exception {
+        PersistenceWorker worker = worker();
+        PagedTaskListModel model = loadPaged(worker);
+        SwingUtilities.invokeAndWait(() -> model.setCompleted(new int[] {0}, true));
+
+        worker.closePaged();
+        worker.close();
+        assertClosedWithEdit();
+    }
+
+    // The window exiting with the list still paged
+    @Test
+    void shutdownClosesAPagedModelLeftOpen() throws Exception {
+        PersistenceWorker worker = worker();
+        PagedTaskListModel model = loadPaged(worker);
+        SwingUtilities.invokeAndWait(() -> model.setCompleted(new int[] {0}, true));
+
+        worker.close();
+        assertClosedWithEdit();
+    }
+}
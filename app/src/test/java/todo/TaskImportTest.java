@@ -0,0 +1,173 @@
+package todo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// One generated dump written as CSV, a JSON array and JSON Lines, each
+// imported and checked against a reference worked out row by row: the
+// description cleaned, and a row dropped if its key is already in the
+// list or appeared earlier in the file. The dump is a few chunks long, so
+// records are cut at chunk boundaries too.
+class TaskImportTest {
+    private static final int ROWS = 60_000;
+    private static final String[] WORDS = {"Buy", "milk", "call", "the", "bank", "Café", "naïve", "東京", "Ünïcode",
+                                           "a,b", "\"quoted\"", "back\\slash", "line\nbreak", "tab\there", "  spaced  "};
+
+    @TempDir
+    File directory;
+
+    private static class Dump {
+        final List<String> existing = new ArrayList<>();
+        final List<String> descriptions = new ArrayList<>();
+        final List<Boolean> completed = new ArrayList<>();
+    }
+
+    private static Dump generate(long seed) {
+        Random random = new Random(seed);
+        Dump dump = new Dump();
+        for (int i = 0; i < 500; i++) {
+            dump.existing.add(description(random));
+        }
+        for (int i = 0; i < ROWS; i++) {
+            String description;
+            int kind = random.nextInt(20);
+            if (kind == 0) {
+                description = respace(random, dump.existing.get(random.nextInt(dump.existing.size())));
+            } else if (kind == 1 && !dump.descriptions.isEmpty()) {
+                description = respace(random, dump.descriptions.get(random.nextInt(dump.descriptions.size())));
+            } else if (kind == 2) {
+                // Nothing left once cleaned, so not a row at all
+                description = " \n\t ";
+            } else {
+                description = description(random);
+            }
+            dump.descriptions.add(description);
+            dump.completed.add(random.nextInt(3) == 0);
+        }
+        return dump;
+    }
+
+    private static String description(Random random) {
+        StringBuilder description = new StringBuilder();
+        int words = 1 + random.nextInt(6);
+        for (int i = 0; i < words; i++) {
+            description.append(i == 0 ? "" : " ").append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return description.append(' ').append(random.nextInt(100_000)).toString();
+    }
+
+    // The same key with different case and whitespace
+    private static String respace(Random random, String description) {
+        String changed = random.nextBoolean() ? description.toUpperCase(Locale.ROOT) : description;
+        return " " + changed.replace(" ", random.nextBoolean() ? "  " : "\n") + "\t";
+    }
+
+    private static long[] existingHashes(Dump dump) {
+        long[] hashes = new long[dump.existing.size()];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = TaskIndex.contentHash(dump.existing.get(i));
+        }
+        return hashes;
+    }
+
+    private static List<String> expected(Dump dump) {
+        Set<String> seen = new HashSet<>();
+        for (String description : dump.existing) {
+            seen.add(TaskImport.key(description));
+        }
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < dump.descriptions.size(); i++) {
+            String cleaned = dump.descriptions.get(i).trim().replaceAll("\\s+", " ");
+            if (!cleaned.isEmpty() && seen.add(cleaned.toLowerCase(Locale.ROOT))) {
+                expected.add(cleaned + "|" + dump.completed.get(i));
+            }
+        }
+        return expected;
+    }
+
+    private static String csvField(String value) {
+        if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    private File write(String name, String text) throws IOException {
+        File file = new File(directory, name);
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static List<String> run(File file, Dump dump) throws IOException {
+        TaskImport.Result result = new TaskImport(file, existingHashes(dump)).run(percent -> { });
+        List<String> imported = new ArrayList<>();
+        for (TaskImport.Row row : result.rows) {
+            imported.add(row.description + "|" + row.completed);
+        }
+        return imported;
+    }
+
+    @Test
+    void csvMatchesTheReference() throws IOException {
+        Dump dump = generate(1);
+        // The description is not the first column
+        StringBuilder csv = new StringBuilder("id,Title,done\n");
+        for (int i = 0; i < ROWS; i++) {
+            csv.append(i).append(',').append(csvField(dump.descriptions.get(i))).append(',')
+                    .append(dump.completed.get(i) ? "yes" : "no").append('\n');
+        }
+        File file = write("tasks.csv", csv.toString());
+        assertTrue(file.length() > 2 * TaskImport.CHUNK_SIZE);
+        assertEquals(expected(dump), run(file, dump));
+    }
+
+    @Test
+    void jsonArrayMatchesTheReference() throws IOException {
+        Dump dump = generate(2);
+        StringBuilder json = new StringBuilder("[\n");
+        for (int i = 0; i < ROWS; i++) {
+            json.append(i == 0 ? "" : ",\n").append("{\"id\": ").append(i).append(", \"tags\": [\"x\", {\"y\": 1}]")
+                    .append(", \"title\": ").append(Json.quote(dump.descriptions.get(i)))
+                    .append(", \"done\": ").append(dump.completed.get(i)).append('}');
+        }
+        File file = write("tasks.json", json.append("\n]\n").toString());
+        assertTrue(file.length() > 2 * TaskImport.CHUNK_SIZE);
+        assertEquals(expected(dump), run(file, dump));
+    }
+
+    @Test
+    void jsonLinesMatchesTheReference() throws IOException {
+        Dump dump = generate(3);
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < ROWS; i++) {
+            lines.append("{\"description\": ").append(Json.quote(dump.descriptions.get(i)))
+                    .append(", \"status\": \"").append(dump.completed.get(i) ? "done" : "open").append("\"}\n");
+        }
+        File file = write("tasks.jsonl", lines.toString());
+        assertTrue(file.length() > 2 * TaskImport.CHUNK_SIZE);
+        assertEquals(expected(dump), run(file, dump));
+    }
+
+    @Test
+    void cancelStopsTheImport() throws IOException {
+        File file = write("tasks.csv", "description\nBuy milk\n");
+        TaskImport taskImport = new TaskImport(file, new long[0]);
+        taskImport.cancel();
+        assertThrows(CancellationException.class, () -> taskImport.run(percent -> { }));
+    }
+}
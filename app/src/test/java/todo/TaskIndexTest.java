@@ -0,0 +1,166 @@
+package todo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Random edits, some of them larger than MAX_DRIFT, with lookups by id and
+// by text checked after each one against a scan of the model
+class TaskIndexTest {
+    private static final int EDITS = 3_000;
+    private static final String[] WORDS = {"buy", "milk", "call", "the", "bank", "café", "東京", "pay", "rent"};
+
+    @TempDir
+    File directory;
+
+    @Test
+    void heapModelLookupsMatchAScan() {
+        fuzz(new TaskListModel(), new Random(1));
+    }
+
+    @Test
+    void columnarModelLookupsMatchAScan() {
+        fuzz(new ColumnarTaskListModel(), new Random(2));
+    }
+
+    @Test
+    void pagedModelLookupsMatchAScan() throws IOException {
+        File file = new File(directory, "tasks.dat");
+        Random random = new Random(3);
+        long[] nextId = {1};
+        TaskStoreFile.write(file, tasks(random, nextId, 2_000));
+        try (PagedTaskListModel model = new PagedTaskListModel(file)) {
+            fuzz(model, random, nextId);
+            model.compact();
+            check(model, random, nextId[0]);
+        }
+    }
+
+    private static void fuzz(TaskModel model, Random random) {
+        long[] nextId = {1};
+        model.replaceAll(tasks(random, nextId, 2_000));
+        fuzz(model, random, nextId);
+    }
+
+    private static void fuzz(TaskModel model, Random random, long[] nextId) {
+        for (int edit = 0; edit < EDITS; edit++) {
+            int size = model.getSize();
+            int count = random.nextInt(50) == 0 ? TaskIndex.MAX_DRIFT + random.nextInt(200) : 1 + random.nextInt(5);
+            switch (size < 100 ? random.nextInt(3) : random.nextInt(7)) {
+                case 0:
+                    model.add(tasks(random, nextId, 1).get(0));
+                    break;
+                case 1:
+                    model.addAll(random.nextInt(size + 1), tasks(random, nextId, count));
+                    break;
+                case 2: {
+                    int[] indices = indices(random, size + count, count);
+                    model.insertAll(indices, tasks(random, nextId, indices.length));
+                    break;
+                }
+                case 3:
+                    model.remove(random.nextInt(size));
+                    break;
+                case 4:
+                    model.removeAll(indices(random, size, count));
+                    break;
+                case 5:
+                    model.setCompleted(indices(random, size, count), random.nextBoolean());
+                    break;
+                default:
+                    if (random.nextInt(100) == 0 && !model.isWriteThrough()) {
+                        model.replaceAll(tasks(random, nextId, 1_000 + random.nextInt(1_000)));
+                    }
+            }
+            check(model, random, nextId[0]);
+        }
+    }
+
+    private static void check(TaskModel model, Random random, long nextId) {
+        TaskIndex index = model.getIndex();
+        for (int i = 0; i < 5; i++) {
+            long id = 1 + random.nextInt((int) nextId);
+            assertEquals(scanForId(model, id), index.indexOfId(id), "id " + id);
+        }
+        for (int i = 0; i < 3; i++) {
+            String description = respace(random, description(random));
+            int row = index.indexOfDuplicate(description);
+            if (row < 0) {
+                assertEquals(-1, scanForText(model, description), description);
+            } else {
+                assertEquals(TaskImport.key(description), TaskImport.key(model.getElementAt(row).getDescription()));
+            }
+        }
+    }
+
+    private static int scanForId(TaskModel model, long id) {
+        for (int i = 0; i < model.getSize(); i++) {
+            if (model.getIdAt(i) == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int scanForText(TaskModel model, String description) {
+        String key = TaskImport.key(description);
+        for (int i = 0; i < model.getSize(); i++) {
+            if (TaskImport.key(model.getElementAt(i).getDescription()).equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Few enough distinct texts that most lookups find a duplicate
+    private static String description(Random random) {
+        return WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " "
+                + random.nextInt(40);
+    }
+
+    private static String respace(Random random, String description) {
+        String changed = random.nextBoolean() ? description.toUpperCase(Locale.ROOT) : description;
+        return random.nextBoolean() ? " " + changed.replace(" ", "\t ") : changed;
+    }
+
+    private static List<Task> tasks(Random random, long[] nextId, int count) {
+        List<Task> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tasks.add(new Task(nextId[0]++, description(random)));
+        }
+        return tasks;
+    }
+
+    private static int[] indices(Random random, int bound, int count) {
+        TreeSet<Integer> chosen = new TreeSet<>();
+        while (chosen.size() < Math.min(count, bound)) {
+            chosen.add(random.nextInt(bound));
+        }
+        return chosen.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // The ASCII path normalizes on the fly; it must agree with hashing the key
+    @Test
+    void asciiHashMatchesTheKeyHash() {
+        Random random = new Random(4);
+        char[] alphabet = "aAbBzZ09 \t\n\r\u000b\f!~_".toCharArray();
+        for (int i = 0; i < 200_000; i++) {
+            char[] text = new char[random.nextInt(20)];
+            for (int c = 0; c < text.length; c++) {
+                text[c] = random.nextInt(10) == 0 ? (char) random.nextInt(0x80) : alphabet[random.nextInt(alphabet.length)];
+            }
+            String description = new String(text);
+            assertEquals(TaskIndex.hashKey(TaskImport.key(description)), TaskIndex.contentHash(description),
+                         description);
+        }
+        assertEquals(TaskIndex.hashKey(TaskImport.key("  CAFÉ  au\tlait")), TaskIndex.contentHash("Café au lait"));
+    }
+}
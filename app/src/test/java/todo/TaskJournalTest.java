@@ -0,0 +1,174 @@
+package todo;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TaskJournalTest {
+    @TempDir
+    File directory;
+
+    private TaskJournal journal() {
+        return new TaskJournal(new File(directory, "tasks.journal").getPath());
+    }
+
+    // Replays the journal from disk, as the next process to open it would
+    private List<Task> replayAdded() throws IOException {
+        return new ArrayList<>(journal().readReplay().addedTasks());
+    }
+
+    @Test
+    void replaysEditsInOrder() throws IOException {
+        TaskJournal journal = journal();
+        journal.appendAdd(1, false, "Buy milk");
+        journal.appendAdd(2, false, "Call the bank");
+        journal.appendAdd(3, true, "Water plants");
+        journal.appendSetCompleted(1, true);
+        journal.appendSetDue(2, 1_793_610_000_000L);
+        journal.appendDelete(3);
+        journal.flush();
+
+        List<Task> tasks = replayAdded();
+        assertEquals(2, tasks.size());
+        assertEquals("Buy milk", tasks.get(0).getDescription());
+        assertTrue(tasks.get(0).isCompleted());
+        assertEquals("Call the bank", tasks.get(1).getDescription());
+        assertEquals(1_793_610_000_000L, tasks.get(1).getDue());
+        assertEquals(3, journal().readReplay().getMaxId());
+    }
+
+    @Test
+    void appliesEditsToSnapshotTasks() throws IOException {
+        TaskJournal journal = journal();
+        journal.appendSetCompleted(1, true);
+        journal.appendSetDue(1, 42);
+        journal.appendDelete(2);
+        journal.flush();
+
+        TaskJournal.Replay replay = journal().readReplay();
+        Task kept = new Task(1, "From the snapshot");
+        assertTrue(replay.apply(kept));
+        assertTrue(kept.isCompleted());
+        assertEquals(42, kept.getDue());
+        assertFalse(replay.apply(new Task(2, "Deleted since")));
+        assertTrue(replay.apply(new Task(3, "Untouched")));
+    }
+
+    @Test
+    void clearDropsEverythingBeforeIt() throws IOException {
+        TaskJournal journal = journal();
+        journal.appendAdd(1, false, "Before");
+        journal.appendClear();
+        journal.appendAdd(2, false, "After");
+        journal.flush();
+
+        TaskJournal.Replay replay = journal().readReplay();
+        assertFalse(replay.apply(new Task(7, "From the snapshot")));
+        List<Task> tasks = new ArrayList<>(replay.addedTasks());
+        assertEquals(1, tasks.size());
+        assertEquals("After", tasks.get(0).getDescription());
+        assertEquals(2, replay.getMaxId());
+    }
+
+    @Test
+    void descriptionCannotInjectRecords() throws IOException {
+        TaskJournal journal = journal();
+        journal.appendAdd(1, false, "Keep\nX\nD|2");
+        journal.appendAdd(2, false, "Innocent\r\nS|2|true");
+        journal.flush();
+
+        List<Task> tasks = replayAdded();
+        assertEquals(2, tasks.size());
+        assertEquals("Keep\nX\nD|2", tasks.get(0).getDescription());
+        assertEquals("Innocent\r\nS|2|true", tasks.get(1).getDescription());
+        assertFalse(tasks.get(1).isCompleted());
+    }
+
+    @Test
+    void escapingRoundTrips() throws IOException {
+        String[] descriptions = {
+            "C:\\temp\\new", "trailing \\", "\\n is not a line break", "a|b|c", "",
+        };
+        TaskJournal journal = journal();
+        for (int i = 0; i < descriptions.length; i++) {
+            journal.appendAdd(i + 1, false, descriptions[i]);
+        }
+        journal.flush();
+
+        List<Task> tasks = replayAdded();
+        assertEquals(descriptions.length, tasks.size());
+        for (int i = 0; i < descriptions.length; i++) {
+            assertEquals(descriptions[i], tasks.get(i).getDescription());
+        }
+    }
+
+    @Test
+    void writesUtf8() throws IOException {
+        TaskJournal journal = journal();
+        journal.appendAdd(1, false, "Café ✓ 日本");
+        journal.flush();
+
+        assertArrayEquals("A|1|false|Café ✓ 日本\n".getBytes(StandardCharsets.UTF_8),
+                          Files.readAllBytes(journal.getFile().toPath()));
+        assertEquals("Café ✓ 日本", replayAdded().get(0).getDescription());
+    }
+
+    @Test
+    void skipsTornRecord() throws IOException {
+        TaskJournal journal = journal();
+        journal.appendAdd(1, true, "Whole");
+        journal.flush();
+        // A crash partway through the next write
+        try (FileOutputStream stream = new FileOutputStream(journal.getFile(), true)) {
+            stream.write("S|1|fa\nT|1|12x".getBytes(StandardCharsets.US_ASCII));
+        }
+
+        List<Task> tasks = replayAdded();
+        assertEquals(1, tasks.size());
+        assertTrue(tasks.get(0).isCompleted());
+        assertFalse(tasks.get(0).hasDue());
+    }
+
+    @Test
+    void skipsRecordsWithGarbageFlags() throws IOException {
+        TaskJournal journal = journal();
+        journal.appendAdd(1, true, "Done");
+        journal.flush();
+        try (FileOutputStream stream = new FileOutputStream(journal.getFile(), true)) {
+            stream.write("S|1|truth\nS|1|\nA|2|yes|Garbage\nS|3|f\n".getBytes(StandardCharsets.US_ASCII));
+        }
+
+        TaskJournal.Replay replay = journal().readReplay();
+        List<Task> tasks = new ArrayList<>(replay.addedTasks());
+        assertEquals(1, tasks.size());
+        assertTrue(tasks.get(0).isCompleted());
+        Task fromSnapshot = new Task(3, "From the snapshot");
+        fromSnapshot.setCompleted(true);
+        assertTrue(replay.apply(fromSnapshot));
+        assertTrue(fromSnapshot.isCompleted());
+    }
+
+    @Test
+    void maxIdCountsUnflushedAndDeletedTasks() throws IOException {
+        TaskJournal journal = journal();
+        journal.appendAdd(5, false, "Flushed");
+        journal.appendDelete(5);
+        journal.flush();
+        assertEquals(5, journal.getMaxId());
+
+        journal.appendAdd(9, false, "Pending");
+        assertEquals(9, journal.getMaxId());
+        assertEquals(5, journal().readReplay().getMaxId());
+    }
+}
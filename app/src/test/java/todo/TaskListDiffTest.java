@@ -0,0 +1,149 @@
+package todo;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+
+// Random external edits to a store, diffed into the model, against the
+// list the diff promises: the model's rows in their order with the stored
+// versions in place, then the new tasks in store order
+class TaskListDiffTest {
+    private static final int ROUNDS = 2000;
+
+    @Test
+    void heapModelMatchesTheStore() {
+        fuzz(TaskListModel::new, 1);
+    }
+
+    @Test
+    void columnarModelMatchesTheStore() {
+        fuzz(ColumnarTaskListModel::new, 2);
+    }
+
+    private static void fuzz(Supplier<TaskModel> models, long seed) {
+        Random random = new Random(seed);
+        for (int round = 0; round < ROUNDS; round++) {
+            TaskModel model = models.get();
+            TaskSearchIndex index = new TaskSearchIndex();
+            List<Task> before = new ArrayList<>();
+            int size = random.nextInt(40);
+            for (int i = 1; i <= size; i++) {
+                before.add(task(random, i));
+            }
+            model.replaceAll(copy(before));
+            index.addAll(copy(before));
+
+            List<Task> store = copy(before);
+            assertFalse(TaskListDiff.apply(model, store, index));
+
+            long nextId = size + 1;
+            int edits = random.nextInt(8);
+            for (int e = 0; e < edits; e++) {
+                int kind = random.nextInt(6);
+                if (store.isEmpty() || kind == 0) {
+                    store.add(task(random, nextId++));
+                } else {
+                    int i = random.nextInt(store.size());
+                    Task task = store.get(i);
+                    switch (kind) {
+                        case 1:
+                            store.remove(i);
+                            break;
+                        case 2:
+                            task.setCompleted(!task.isCompleted());
+                            break;
+                        case 3:
+                            task.setDue(random.nextBoolean() ? 0 : 1_000 + random.nextInt(1_000));
+                            break;
+                        case 4:
+                            Task renamed = new Task(task.getId(), description(random));
+                            renamed.setCompleted(task.isCompleted());
+                            renamed.setDue(task.getDue());
+                            store.set(i, renamed);
+                            break;
+                        default:
+                            // Another process compacted in a different order
+                            Collections.shuffle(store.subList(i, store.size()), random);
+                            break;
+                    }
+                }
+            }
+
+            List<Task> expected = expected(before, store);
+            TaskListDiff.apply(model, copy(store), index);
+            assertEquals(expected.size(), model.getSize(), "round " + round);
+            for (int i = 0; i < expected.size(); i++) {
+                Task want = expected.get(i);
+                Task got = model.getElementAt(i);
+                assertEquals(want.getId(), got.getId(), "round " + round);
+                assertEquals(want.getDescription(), got.getDescription(), "round " + round);
+                assertEquals(want.isCompleted(), got.isCompleted(), "round " + round);
+                assertEquals(want.getDue(), got.getDue(), "round " + round);
+            }
+            for (int word = 0; word < 30; word += 7) {
+                assertArrayEquals(search(expected, "w" + word), index.search("w" + word), "round " + round);
+            }
+        }
+    }
+
+    private static List<Task> expected(List<Task> before, List<Task> store) {
+        Map<Long, Task> byId = new HashMap<>();
+        for (Task task : store) {
+            byId.put(task.getId(), task);
+        }
+        List<Task> expected = new ArrayList<>();
+        for (Task task : before) {
+            Task stored = byId.remove(task.getId());
+            if (stored != null) {
+                expected.add(stored);
+            }
+        }
+        for (Task task : store) {
+            if (byId.containsKey(task.getId())) {
+                expected.add(task);
+            }
+        }
+        return expected;
+    }
+
+    private static long[] search(List<Task> tasks, String term) {
+        return tasks.stream()
+                .filter(task -> TaskSearchIndex.tokenize(task.getDescription()).stream().anyMatch(w -> w.startsWith(term)))
+                .mapToLong(Task::getId)
+                .sorted()
+                .toArray();
+    }
+
+    private static Task task(Random random, long id) {
+        Task task = new Task(id, description(random));
+        task.setCompleted(random.nextInt(4) == 0);
+        if (random.nextInt(3) == 0) {
+            task.setDue(1_000 + random.nextInt(1_000));
+        }
+        return task;
+    }
+
+    private static String description(Random random) {
+        return "w" + random.nextInt(30) + " w" + random.nextInt(30);
+    }
+
+    private static List<Task> copy(List<Task> tasks) {
+        List<Task> copies = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            Task copy = new Task(task.getId(), task.getDescription());
+            copy.setCompleted(task.isCompleted());
+            copy.setDue(task.getDue());
+            copies.add(copy);
+        }
+        return copies;
+    }
+}
@@ -0,0 +1,133 @@
+package todo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+// The wheel on a fake clock against a brute-force map of what is
+// scheduled. A reminder must not fire before its due time, must fire by
+// the first poll in or after its due tick, and must fire once. One already
+// past when it is scheduled may wait for the next tick.
+class TaskRemindersTest {
+    private static final long TICK = TaskReminders.TICK_MILLIS;
+    private static final int STEPS = 200_000;
+
+    private static class Expected {
+        final long due;
+        // Tick by which it must have fired
+        final long latest;
+
+        Expected(long due, long latest) {
+            this.due = due;
+            this.latest = latest;
+        }
+    }
+
+    @Test
+    void wheelMatchesBruteForce() {
+        Random random = new Random(1);
+        long[] now = {1_700_000_000_000L + random.nextInt(1_000_000)};
+        TaskReminders reminders = new TaskReminders(due -> { }, () -> now[0]);
+        Object[] owners = {new Object(), new Object(), new Object()};
+        Map<Object, Map<Long, Expected>> expected = new HashMap<>();
+        for (Object owner : owners) {
+            expected.put(owner, new HashMap<>());
+        }
+        int fired = 0;
+
+        for (int step = 0; step < STEPS; step++) {
+            Object owner = owners[random.nextInt(owners.length)];
+            long id = random.nextInt(50);
+            int kind = random.nextInt(10);
+            if (kind < 4) {
+                long due = now[0] + delta(random);
+                reminders.schedule(owner, id, due);
+                long tick = (due + TICK - 1) / TICK;
+                expected.get(owner).put(id, new Expected(due, Math.max(tick, now[0] / TICK + 1)));
+            } else if (kind < 6) {
+                reminders.cancel(owner, id);
+                expected.get(owner).remove(id);
+            } else if (kind == 6 && random.nextInt(20) == 0) {
+                reminders.cancelAll(owner);
+                expected.get(owner).clear();
+            } else {
+                now[0] += step(random);
+                long nowTick = now[0] / TICK;
+                for (TaskReminders.Reminder reminder : reminders.poll()) {
+                    Expected want = expected.get(reminder.getOwner()).remove(reminder.getId());
+                    assertNotNull(want, "step " + step + ": fired a cancelled or repeated reminder");
+                    assertEquals(want.due, reminder.getDue(), "step " + step);
+                    assertTrue(reminder.getDue() <= now[0], "step " + step + ": fired early");
+                    fired++;
+                }
+                for (Map<Long, Expected> pending : expected.values()) {
+                    for (Expected want : pending.values()) {
+                        assertTrue(want.latest > nowTick, "step " + step + ": missed a reminder");
+                    }
+                }
+            }
+            int size = 0;
+            for (Map<Long, Expected> pending : expected.values()) {
+                size += pending.size();
+            }
+            assertEquals(size, reminders.size(), "step " + step);
+        }
+        // The fuzz is only worth something if plenty came due
+        assertTrue(fired > STEPS / 20, "only " + fired + " fired");
+    }
+
+    // Due times from already past to beyond the wheel's top level, so
+    // every level and the cascades between them are used
+    private static long delta(Random random) {
+        switch (random.nextInt(6)) {
+            case 0:
+                return -random.nextInt(10_000);
+            case 1:
+                return random.nextInt(64 * 1000);
+            case 2:
+                return random.nextInt(64 * 64) * TICK + random.nextInt(1000);
+            case 3:
+                return random.nextInt(64 * 64 * 64) * TICK;
+            case 4:
+                return (long) random.nextInt(64 * 64 * 64 * 64) * TICK;
+            default:
+                return random.nextInt(20) == 0 ? Long.MAX_VALUE / 4 : random.nextInt(5_000);
+        }
+    }
+
+    // Mostly within a tick or a few, now and then across a cascade or more
+    private static long step(Random random) {
+        switch (random.nextInt(10)) {
+            case 0:
+                return random.nextInt(64 * 64) * TICK;
+            case 1:
+                return random.nextInt(64 * 64 * 16) * TICK;
+            default:
+                return random.nextInt(3 * 1000);
+        }
+    }
+
+    @Test
+    void rescheduleReplacesTheReminder() {
+        long[] now = {1_000_000L};
+        TaskReminders reminders = new TaskReminders(due -> { }, () -> now[0]);
+        Object owner = new Object();
+        reminders.schedule(owner, 1, now[0] + 5_000);
+        reminders.schedule(owner, 1, now[0] + 120_000);
+        assertEquals(1, reminders.size());
+
+        now[0] += 10_000;
+        assertTrue(reminders.poll().isEmpty());
+        now[0] += 110_000;
+        List<TaskReminders.Reminder> due = reminders.poll();
+        assertEquals(1, due.size());
+        assertEquals(1_120_000L, due.get(0).getDue());
+        assertEquals(0, reminders.size());
+    }
+}
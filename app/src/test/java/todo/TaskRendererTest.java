@@ -0,0 +1,55 @@
+package todo;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import javax.swing.JList;
+import org.junit.jupiter.api.Test;
+
+// The renderer runs for every visible row on every paint, so scrolling a
+// long list must not leave garbage behind
+class TaskRendererTest {
+    private static final int ROWS = 10_000;
+
+    @Test
+    void repaintDoesNotAllocate() {
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assertTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        Task[] tasks = {
+            new Task(1, "Pending"),
+            new Task(2, "Completed"),
+            new Task(3, "Due in the future"),
+            new Task(4, "Overdue"),
+        };
+        tasks[1].setCompleted(true);
+        tasks[2].setDue(System.currentTimeMillis() + 86_400_000L);
+        tasks[3].setDue(System.currentTimeMillis() - 86_400_000L);
+        JList<Task> list = new JList<>(tasks);
+        TodoListFrame.TaskRenderer renderer = new TodoListFrame.TaskRenderer();
+
+        // Warm up, which derives the fonts, builds the labels and loads
+        // whatever the first calls load. The JVM itself can still allocate
+        // the odd few bytes, e.g. when it deoptimizes, so each pass is held
+        // under one byte a row: a single object per row would be 16 bytes
+        // a row at least.
+        for (int i = 0; i < 5; i++) {
+            render(list, renderer, tasks);
+        }
+
+        for (int round = 0; round < 5; round++) {
+            long before = threads.getCurrentThreadAllocatedBytes();
+            render(list, renderer, tasks);
+            long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+            assertTrue(allocated < ROWS, allocated + " bytes allocated rendering " + ROWS + " rows");
+        }
+    }
+
+    private static void render(JList<Task> list, TodoListFrame.TaskRenderer renderer, Task[] tasks) {
+        for (int i = 0; i < ROWS; i++) {
+            renderer.getListCellRendererComponent(list, tasks[i % tasks.length], i, i % 7 == 0, false);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package todo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TaskStoreFileTest {
+    @TempDir
+    File directory;
+
+    // A version 1 file as written before due times: 13-byte record headers
+    // and no checksum trailer
+    static void writeVersion1(File file, List<Task> tasks) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long[] offsets = new long[tasks.size()];
+            long position = TaskStoreFile.HEADER_SIZE;
+            long nextId = 1;
+            for (int i = 0; i < tasks.size(); i++) {
+                Task task = tasks.get(i);
+                byte[] description = task.getDescription().getBytes(StandardCharsets.UTF_8);
+                ByteBuffer record = ByteBuffer.allocate(13 + description.length);
+                record.putLong(task.getId());
+                record.put(task.isCompleted() ? TaskStoreFile.FLAG_COMPLETED : 0);
+                record.putInt(description.length);
+                record.put(description);
+                offsets[i] = position;
+                position += write(channel, record, position);
+                nextId = Math.max(nextId, task.getId() + 1);
+            }
+            ByteBuffer index = ByteBuffer.allocate(offsets.length * Long.BYTES);
+            for (long offset : offsets) {
+                index.putLong(offset);
+            }
+            long indexOffset = position;
+            write(channel, index, position);
+
+            ByteBuffer header = ByteBuffer.allocate(TaskStoreFile.HEADER_SIZE);
+            header.putInt(TaskStoreFile.MAGIC);
+            header.putShort((short) 1);
+            header.putShort((short) 0);
+            header.putInt(tasks.size());
+            header.putInt(0);
+            header.putLong(nextId);
+            header.putLong(indexOffset);
+            write(channel, header, 0);
+        }
+    }
+
+    private static int write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        buffer.flip();
+        int length = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+        return length;
+    }
+
+    private static Task task(long id, String description, boolean completed, long due) {
+        Task task = new Task(id, description);
+        task.setCompleted(completed);
+        task.setDue(due);
+        return task;
+    }
+
+    @Test
+    void writesAndReadsDues() throws IOException {
+        File file = new File(directory, "tasks.dat");
+        TaskStoreFile.write(file, List.of(task(1, "Buy milk", false, 1_793_610_000_000L),
+                                          task(2, "Café in 東京", true, 0),
+                                          task(5, "Pay rent", true, 42)), 9);
+        assertTrue(TaskStoreFile.verify(file));
+
+        List<Task> tasks = PagedTaskListModelTest.read(file);
+        assertEquals(3, tasks.size());
+        assertEquals(1_793_610_000_000L, tasks.get(0).getDue());
+        assertFalse(tasks.get(0).isCompleted());
+        assertEquals("Café in 東京", tasks.get(1).getDescription());
+        assertEquals(0, tasks.get(1).getDue());
+        assertTrue(tasks.get(1).isCompleted());
+        assertEquals(42, tasks.get(2).getDue());
+
+        try (TaskStoreFile.Reader reader = new TaskStoreFile.Reader(file)) {
+            assertTrue(reader.isCurrentVersion());
+            assertEquals(9, reader.getNextId());
+            assertEquals(42, reader.read(2).getDue());
+            assertEquals(5, reader.read(2).getId());
+        }
+    }
+
+    @Test
+    void readsVersion1Files() throws IOException {
+        File file = new File(directory, "tasks.dat");
+        writeVersion1(file, List.of(task(1, "Buy milk", true, 0), task(3, "Café in 東京", false, 0)));
+
+        List<Task> tasks = PagedTaskListModelTest.read(file);
+        assertEquals(2, tasks.size());
+        assertEquals(1, tasks.get(0).getId());
+        assertTrue(tasks.get(0).isCompleted());
+        assertEquals(0, tasks.get(0).getDue());
+        assertEquals("Café in 東京", tasks.get(1).getDescription());
+        assertFalse(tasks.get(1).isCompleted());
+
+        try (TaskStoreFile.Reader reader = new TaskStoreFile.Reader(file)) {
+            assertFalse(reader.isCurrentVersion());
+            assertEquals(4, reader.getNextId());
+            assertEquals("Café in 東京", reader.read(1).getDescription());
+            assertEquals(0, reader.read(1).getDue());
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package todo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TaskStoreTest {
+    @TempDir
+    File directory;
+
+    // Two stores on the same files stand in for two processes
+    private TaskStore store() {
+        return new TaskStore(new File(directory, "tasks.dat"), new File(directory, "tasks.txt"),
+                             new TaskJournal(new File(directory, "tasks.journal").getPath()));
+    }
+
+    @Test
+    void pagingLocksOutOtherProcesses() throws IOException {
+        TaskStore window = store();
+        Closeable lock = window.lock();
+        window.holdForPaging();
+        lock.close();
+
+        TaskStore cli = store();
+        IOException e = assertThrows(IOException.class, cli::lock);
+        assertTrue(e.getMessage().contains("open in another window"), e.getMessage());
+        // The window itself carries on
+        window.lock().close();
+
+        window.releasePaging();
+        cli.lock().close();
+    }
+
+    // Paged lists edit records in place, so a version 1 file is written
+    // again in the current format first, and dues set on it then stick
+    @Test
+    void shouldPageRewritesVersion1Files() throws IOException {
+        File file = new File(directory, "tasks.dat");
+        List<Task> tasks = new ArrayList<>(TaskStore.PAGED_LOAD_THRESHOLD);
+        for (int i = 1; i <= TaskStore.PAGED_LOAD_THRESHOLD; i++) {
+            Task task = new Task(i, "Task " + i);
+            task.setCompleted(i % 2 == 0);
+            tasks.add(task);
+        }
+        TaskStoreFileTest.writeVersion1(file, tasks);
+
+        assertTrue(store().shouldPage());
+        try (TaskStoreFile.Reader reader = new TaskStoreFile.Reader(file)) {
+            assertTrue(reader.isCurrentVersion());
+        }
+        PagedTaskListModel model = new PagedTaskListModel(file);
+        model.setDue(new int[] {1, 5}, 1_793_610_000_000L);
+        model.close();
+
+        List<Task> read = PagedTaskListModelTest.read(file);
+        assertEquals(TaskStore.PAGED_LOAD_THRESHOLD, read.size());
+        assertEquals(0, read.get(0).getDue());
+        assertEquals(1_793_610_000_000L, read.get(1).getDue());
+        assertTrue(read.get(1).isCompleted());
+        assertEquals(1_793_610_000_000L, read.get(5).getDue());
+        assertEquals("Task 6", read.get(5).getDescription());
+    }
+
+    // Deleting the highest ids and compacting must not hand them out again
+    @Test
+    void nextIdSurvivesCompactions() throws IOException {
+        TaskStore store = store();
+        TaskJournal journal = store.getJournal();
+        for (int id = 1; id <= 6; id++) {
+            journal.appendAdd(id, false, "Task " + id);
+        }
+        journal.flush();
+        for (int id = 4; id <= 6; id++) {
+            journal.appendDelete(id);
+        }
+        // The deletes are still buffered when the first snapshot is taken
+        store.saveSnapshot(List.of(new Task(1, "Task 1"), new Task(2, "Task 2"), new Task(3, "Task 3")));
+        store.saveSnapshot(store.loadAll());
+        assertEquals(3, store.loadAll().size());
+        assertEquals(7, store.nextId());
+        assertEquals(7, store().nextId());
+    }
+
+    @Test
+    void nextIdIncludesIdsReservedElsewhere() throws IOException {
+        TaskStore other = store();
+        other.saveSnapshot(List.of(new Task(1, "Buy milk"), new Task(2, "Call the bank")));
+        Closeable lock = other.lock();
+        other.reserveIds(2000);
+        lock.close();
+
+        TaskStore store = store();
+        lock = store.lock();
+        try {
+            assertEquals(2000, store.nextId());
+        } finally {
+            lock.close();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package todo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+import org.junit.jupiter.api.Test;
+
+// Random edits of every kind, small and bulk, with all six views checked
+// after each one against a brute-force filter and sort of the model. Each
+// view also has a copy kept up to date only from its list events, the way
+// a JList would; rows the events did not say were added or changed must
+// still hold the same task.
+class TaskViewsTest {
+    private static final int ROUNDS = 300;
+    private static final int EDITS = 40;
+    private static final Comparator<Task> BY_NAME = Comparator.comparing(Task::getDescription, String.CASE_INSENSITIVE_ORDER)
+            .thenComparing(Task::getDescription)
+            .thenComparingLong(Task::getId);
+
+    @Test
+    void heapModelViewsMatchBruteForce() {
+        fuzz(TaskListModel::new, 1);
+    }
+
+    @Test
+    void columnarModelViewsMatchBruteForce() {
+        fuzz(ColumnarTaskListModel::new, 2);
+    }
+
+    // A view's rows as the events describe them: the id and completed flag
+    // of each row, or null for a row an event said was added or changed
+    private static class EventCopy implements ListDataListener {
+        final List<String> rows = new ArrayList<>();
+
+        @Override
+        public void intervalAdded(ListDataEvent e) {
+            for (int i = e.getIndex0(); i <= e.getIndex1(); i++) {
+                rows.add(i, null);
+            }
+        }
+
+        @Override
+        public void intervalRemoved(ListDataEvent e) {
+            rows.subList(e.getIndex0(), e.getIndex1() + 1).clear();
+        }
+
+        @Override
+        public void contentsChanged(ListDataEvent e) {
+            for (int i = e.getIndex0(); i <= e.getIndex1(); i++) {
+                rows.set(i, null);
+            }
+        }
+    }
+
+    private static void fuzz(Supplier<TaskModel> models, long seed) {
+        Random random = new Random(seed);
+        long[] nextId = {1};
+        for (int round = 0; round < ROUNDS; round++) {
+            TaskModel model = models.get();
+            model.replaceAll(tasks(random, nextId, random.nextInt(100)));
+            TaskViews views = new TaskViews(model);
+            List<TaskViews.View> all = new ArrayList<>();
+            List<EventCopy> copies = new ArrayList<>();
+            for (TaskViews.Filter filter : TaskViews.Filter.values()) {
+                for (boolean sortByName : new boolean[] {false, true}) {
+                    TaskViews.View view = views.get(filter, sortByName);
+                    EventCopy copy = new EventCopy();
+                    copy.rows.addAll(Collections.nCopies(view.getSize(), null));
+                    view.addListDataListener(copy);
+                    all.add(view);
+                    copies.add(copy);
+                }
+            }
+            check(model, all, copies, round);
+            for (int edit = 0; edit < EDITS; edit++) {
+                edit(random, model, nextId);
+                check(model, all, copies, round);
+            }
+            views.detach();
+        }
+    }
+
+    private static void edit(Random random, TaskModel model, long[] nextId) {
+        int size = model.getSize();
+        // Now and then more than BULK_EDIT tasks at once
+        int count = random.nextInt(10) == 0 ? TaskViews.BULK_EDIT + 1 + random.nextInt(20) : 1 + random.nextInt(4);
+        switch (size == 0 ? random.nextInt(3) : random.nextInt(9)) {
+            case 0:
+                model.add(tasks(random, nextId, 1).get(0));
+                break;
+            case 1:
+                model.addAll(random.nextInt(size + 1), tasks(random, nextId, count));
+                break;
+            case 2:
+                if (random.nextInt(20) == 0) {
+                    model.replaceAll(tasks(random, nextId, random.nextInt(100)));
+                } else {
+                    int[] indices = indices(random, size + count, count);
+                    model.insertAll(indices, tasks(random, nextId, indices.length));
+                }
+                break;
+            case 3:
+                model.remove(random.nextInt(size));
+                break;
+            case 4:
+                model.removeAll(indices(random, size, count));
+                break;
+            case 5:
+            case 6:
+                model.setCompleted(indices(random, size, count), random.nextBoolean());
+                break;
+            case 7:
+                model.setDue(indices(random, size, count), random.nextInt(3) * 1_000L);
+                break;
+            default:
+                if (random.nextInt(10) == 0) {
+                    model.clear();
+                } else {
+                    model.setCompleted(indices(random, size, count), true);
+                }
+        }
+    }
+
+    private static void check(TaskModel model, List<TaskViews.View> views, List<EventCopy> copies, int round) {
+        int v = 0;
+        for (TaskViews.Filter filter : TaskViews.Filter.values()) {
+            for (boolean sortByName : new boolean[] {false, true}) {
+                List<Task> expected = new ArrayList<>();
+                for (int i = 0; i < model.getSize(); i++) {
+                    Task task = model.getElementAt(i);
+                    if (filter == TaskViews.Filter.ALL || task.isCompleted() == (filter == TaskViews.Filter.COMPLETED)) {
+                        expected.add(task);
+                    }
+                }
+                if (sortByName) {
+                    expected.sort(BY_NAME);
+                }
+                String name = "round " + round + ", " + filter + (sortByName ? " by name" : "");
+                TaskViews.View view = views.get(v);
+                List<String> copy = copies.get(v).rows;
+                assertEquals(expected.size(), view.getSize(), name);
+                assertEquals(expected.size(), copy.size(), name);
+                for (int row = 0; row < expected.size(); row++) {
+                    Task task = expected.get(row);
+                    String shown = task.getId() + "|" + task.isCompleted();
+                    assertEquals(task.getId(), view.getElementAt(row).getId(), name);
+                    assertEquals(task.getId(), model.getIdAt(view.modelIndex(row)), name);
+                    if (copy.get(row) != null) {
+                        assertEquals(shown, copy.get(row), name + ", row " + row + " changed without an event");
+                    }
+                    copy.set(row, shown);
+                }
+                v++;
+            }
+        }
+    }
+
+    // count distinct ascending indices below bound, or all of them if fewer
+    private static int[] indices(Random random, int bound, int count) {
+        TreeSet<Integer> chosen = new TreeSet<>();
+        while (chosen.size() < Math.min(count, bound)) {
+            chosen.add(random.nextInt(bound));
+        }
+        return chosen.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // Few distinct names, some differing only in case, so name order has ties
+    private static List<Task> tasks(Random random, long[] nextId, int count) {
+        String[] names = {"buy milk", "Buy milk", "call the bank", "Water plants", "pay rent", "Pay Rent", "zebra"};
+        List<Task> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Task task = new Task(nextId[0]++, names[random.nextInt(names.length)]);
+            task.setCompleted(random.nextBoolean());
+            tasks.add(task);
+        }
+        return tasks;
+    }
+}
@@ -0,0 +1,63 @@
+package todo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+// Deterministic task lists for the benchmarks. The same seed always gives
+// the same descriptions, so results from different runs are comparable.
+final class BenchmarkTasks {
+    static final long SEED = 42;
+
+    private static final String[] WORDS = {
+        "buy", "milk", "call", "mom", "write", "report", "fix", "bug", "review", "pull",
+        "request", "book", "flight", "pay", "rent", "clean", "kitchen", "plan", "sprint",
+        "update", "docs", "renew", "passport", "water", "plants", "email", "team", "meeting",
+        "prepare", "slides", "order", "groceries", "backup", "laptop", "read", "chapter"
+    };
+
+    private BenchmarkTasks() {
+    }
+
+    // count tasks with ids 1..count, 3-8 words each, every third completed
+    static List<Task> generate(int count) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        List<Task> tasks = new ArrayList<>(count);
+        StringBuilder description = new StringBuilder();
+        for (int i = 1; i <= count; i++) {
+            description.setLength(0);
+            int words = 3 + random.nextInt(6);
+            for (int w = 0; w < words; w++) {
+                if (w > 0) {
+                    description.append(' ');
+                }
+                description.append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            Task task = new Task(i, description.toString());
+            task.setCompleted(i % 3 == 0);
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    static File createTempDirectory() throws IOException {
+        return Files.createTempDirectory("todo-bench").toFile();
+    }
+
+    static void deleteRecursively(File directory) throws IOException {
+        if (directory == null || !directory.exists()) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory.toPath())) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package todo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Bulk mutations of the in-memory list models (Task objects or columns),
+// with a listener attached the way JList attaches one, so event coalescing
+// is part of what is measured
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class ListModelBenchmark {
+    @Param({"1000", "100000"})
+    int size;
+
+    @Param({"objects", "columnar"})
+    String layout;
+
+    private List<Task> tasks;
+    private List<Task> half;
+    // Every tenth row, as a scattered multi-selection
+    private int[] everyTenth;
+    private TaskModel model;
+    private final CountingListener listener = new CountingListener();
+
+    @Setup(Level.Trial)
+    public void generate() {
+        tasks = BenchmarkTasks.generate(size);
+        half = tasks.subList(0, size / 2);
+        everyTenth = new int[size / 10];
+        for (int i = 0; i < everyTenth.length; i++) {
+            everyTenth[i] = i * 10;
+        }
+    }
+
+    // Every benchmark starts from a full model
+    @Setup(Level.Invocation)
+    public void fill() {
+        model = layout.equals("columnar") ? new ColumnarTaskListModel() : new TaskListModel();
+        model.addListDataListener(listener);
+        model.replaceAll(tasks);
+    }
+
+    @Benchmark
+    public int replaceAll() {
+        model.replaceAll(half);
+        return listener.events;
+    }
+
+    @Benchmark
+    public int appendAll() {
+        model.addAll(tasks);
+        return listener.events;
+    }
+
+    @Benchmark
+    public int insertAllAtFront() {
+        model.addAll(0, half);
+        return listener.events;
+    }
+
+    @Benchmark
+    public int removeHalf() {
+        int from = size / 4;
+        int to = from + size / 2 - 1;
+        if (model instanceof TaskListModel) {
+            ((TaskListModel) model).removeRange(from, to);
+        } else {
+            int[] indices = new int[to - from + 1];
+            for (int i = 0; i < indices.length; i++) {
+                indices[i] = from + i;
+            }
+            model.removeAll(indices);
+        }
+        return listener.events;
+    }
+
+    @Benchmark
+    public int removeEveryTenth() {
+        model.removeAll(everyTenth);
+        return listener.events;
+    }
+
+    @Benchmark
+    public int completeEveryTenth() {
+        model.setCompleted(everyTenth, true);
+        return listener.events;
+    }
+
+    @Benchmark
+    public int countCompleted() {
+        if (model instanceof ColumnarTaskListModel) {
+            return ((ColumnarTaskListModel) model).getCompletedCount();
+        }
+        int count = 0;
+        for (int i = 0; i < model.getSize(); i++) {
+            if (model.getElementAt(i).isCompleted()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int clear() {
+        model.clear();
+        return listener.events;
+    }
+
+    @Benchmark
+    public int removeFromFrontOneByOne() {
+        for (int i = 0; i < 100; i++) {
+            model.remove(0);
+        }
+        return listener.events;
+    }
+
+    private static class CountingListener implements ListDataListener {
+        int events;
+
+        @Override
+        public void intervalAdded(ListDataEvent e) {
+            events++;
+        }
+
+        @Override
+        public void intervalRemoved(ListDataEvent e) {
+            events++;
+        }
+
+        @Override
+        public void contentsChanged(ListDataEvent e) {
+            events++;
+        }
+    }
+}
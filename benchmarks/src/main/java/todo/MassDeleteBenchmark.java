@@ -0,0 +1,72 @@
+package todo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// The archival half of massDeleteTasks: writing the deleted tasks to the
+// mass delete archive, either from the in-memory copy or streamed from the
+// store file a paged list was moved to. restoreNewest reads one session
+// back from an archive that also holds every earlier iteration's sessions.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class MassDeleteBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    private File directory;
+    private List<Task> tasks;
+    private File clearedStore;
+    private MassDeleteArchive archive;
+    private MassDeleteArchive.Session newest;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = BenchmarkTasks.createTempDirectory();
+        tasks = BenchmarkTasks.generate(size);
+        clearedStore = new File(directory, TaskStore.SNAPSHOT_FILE + ".cleared");
+        TaskStoreFile.write(clearedStore, tasks);
+        archive = new MassDeleteArchive(new File(directory, MassDeleteArchive.DIRECTORY));
+        newest = archive.append(tasks::forEach);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkTasks.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public MassDeleteArchive.Session archiveFromMemory() throws IOException {
+        return archive.append(tasks::forEach);
+    }
+
+    @Benchmark
+    public MassDeleteArchive.Session archiveFromPagedStore() throws IOException {
+        return archive.append(sink -> TaskStoreFile.stream(clearedStore, sink, progress -> { }));
+    }
+
+    @Benchmark
+    public void restoreNewest(Blackhole blackhole) throws IOException {
+        archive.restore(newest, blackhole::consume);
+    }
+}
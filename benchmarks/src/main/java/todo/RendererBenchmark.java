@@ -0,0 +1,75 @@
+package todo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.swing.JList;
+import java.awt.Component;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+// Cost of one repaint of a screenful of rows: configuring the renderer for
+// each visible task, and configuring plus painting it into an image. Runs
+// headless, so the numbers include Java2D software rendering only.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Xms512m", "-Xmx512m"})
+public class RendererBenchmark {
+    static final int VISIBLE_ROWS = 30;
+
+    private JList<Task> list;
+    private TodoListFrame.TaskRenderer renderer;
+    private BufferedImage image;
+    private Graphics2D graphics;
+
+    @Setup
+    public void setUp() {
+        TaskListModel model = new TaskListModel();
+        model.replaceAll(BenchmarkTasks.generate(1000));
+        list = new JList<>(model);
+        renderer = new TodoListFrame.TaskRenderer();
+        list.setCellRenderer(renderer);
+        image = new BufferedImage(400, 24, BufferedImage.TYPE_INT_RGB);
+        graphics = image.createGraphics();
+    }
+
+    @TearDown
+    public void tearDown() {
+        graphics.dispose();
+    }
+
+    @Benchmark
+    public int configureVisibleRows() {
+        int width = 0;
+        for (int row = 0; row < VISIBLE_ROWS; row++) {
+            Component cell = renderer.getListCellRendererComponent(list, list.getModel().getElementAt(row),
+                                                                   row, row == 0, false);
+            width += cell.getPreferredSize().width;
+        }
+        return width;
+    }
+
+    @Benchmark
+    public BufferedImage paintVisibleRows() {
+        for (int row = 0; row < VISIBLE_ROWS; row++) {
+            Component cell = renderer.getListCellRendererComponent(list, list.getModel().getElementAt(row),
+                                                                   row, row == 0, false);
+            cell.setBounds(0, 0, image.getWidth(), image.getHeight());
+            cell.paint(graphics);
+        }
+        return image;
+    }
+}
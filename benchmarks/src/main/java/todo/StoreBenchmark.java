@@ -0,0 +1,67 @@
+package todo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// What saveTasksToFile and loadTasksFromFile do on the persistence thread:
+// write a full snapshot, and stream the snapshot plus journal back in
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class StoreBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    private File directory;
+    private List<Task> tasks;
+    private File writeTarget;
+    private TaskStore store;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = BenchmarkTasks.createTempDirectory();
+        tasks = BenchmarkTasks.generate(size);
+        writeTarget = new File(directory, "write.dat");
+
+        File snapshot = new File(directory, TaskStore.SNAPSHOT_FILE);
+        TaskStoreFile.write(snapshot, tasks);
+        store = new TaskStore(snapshot, new File(directory, TaskStore.LEGACY_FILE),
+                              new TaskJournal(new File(directory, TaskStore.JOURNAL_FILE).getPath()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        store.close();
+        BenchmarkTasks.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public void save() throws IOException {
+        TaskStoreFile.write(writeTarget, tasks);
+    }
+
+    @Benchmark
+    public void load(Blackhole blackhole) throws IOException {
+        store.load(blackhole::consume, progress -> { });
+    }
+}